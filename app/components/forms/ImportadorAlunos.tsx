@@ -5,7 +5,7 @@ import { useImportadorAlunos } from '@/app/hooks/useImportadorAlunos';
 interface Props { turmaId: number; onClose: () => void; onSuccess: () => void; }
 
 export default function ImportadorAlunos({ turmaId, onClose, onSuccess }: Props) {
-  const { file, loading, fileInputRef, handleFileChange, handleUpload } = useImportadorAlunos(turmaId, onSuccess, onClose);
+  const { file, loading, progresso, fileInputRef, handleFileChange, handleUpload } = useImportadorAlunos(turmaId, onSuccess, onClose);
 
   return (
     <div className="fixed inset-0 z-50 flex items-center justify-center bg-black/60 backdrop-blur-sm p-4">
@@ -24,7 +24,7 @@ export default function ImportadorAlunos({ turmaId, onClose, onSuccess }: Props)
             )}
           </div>
           <button onClick={handleUpload} disabled={!file || loading} className="w-full mt-6 bg-indigo-600 text-white py-3 rounded-lg font-bold hover:bg-indigo-700 disabled:opacity-50 flex items-center justify-center gap-2 shadow-md">
-            {loading ? <><Loader2 className="animate-spin" /> Processando...</> : 'Enviar Arquivo'}
+            {loading ? <><Loader2 className="animate-spin" /> Processando...{progresso > 0 && ` (${progresso} alunos lidos)`}</> : 'Enviar Arquivo'}
           </button>
         </div>
       </div>
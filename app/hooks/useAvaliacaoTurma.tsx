@@ -1,8 +1,9 @@
 import { useState, useEffect, useCallback, useMemo } from "react";
 import { useRouter } from "next/navigation";
 import api from "@/app/services/api";
+import { abrirEventosTurma } from "@/app/services/eventosTurma";
 import Swal from 'sweetalert2';
-import { Turma, Aluno, Capacidade, Disciplina, Avaliacao, Criterio } from "@/app/types";
+import { Turma, Aluno, Capacidade, Disciplina, Avaliacao, Criterio, BootstrapTurma } from "@/app/types";
 
 // Tipos auxiliares locais ou exportados
 export interface DisciplinaDisponivel extends Disciplina {
@@ -67,29 +68,16 @@ export function useAvaliacaoTurma(turmaId: string, initialEstruturaId: string |
     if (!turmaId) return;
     setLoading(true);
     try {
-      const [resTurma, resAlunos, resDiscs] = await Promise.all([
-        api.get<Turma>(`/turmas/${turmaId}`),
-        api.get<Aluno[]>(`/turmas/${turmaId}/alunos`),
-        api.get<Disciplina[]>(`/turmas/${turmaId}/disciplinas`),
-      ]);
+      // Turma, alunos e disciplinas (já com o snapshot de cada uma) numa única requisição
+      const res = await api.get<BootstrapTurma>(`/turmas/${turmaId}/bootstrap`);
+      const { turma: turmaData, alunos: alunosData, disciplinas } = res.data;
 
-      const turmaData = resTurma.data;
       setTurma(turmaData);
-      setAlunos(Array.isArray(resAlunos.data) ? resAlunos.data : []);
+      setAlunos(Array.isArray(alunosData) ? alunosData : []);
 
-      const defaultSnapshotId = turmaData.estruturaSnapshotId || 0;
-      
-      const initialDiscs: DisciplinaDisponivel[] = Array.isArray(resDiscs.data) ? resDiscs.data.map(d => ({
-        ...d, isPrincipal: d.id === turmaData.disciplinaId, avaliacaoId: d.id, 
+      const mappedDiscs: DisciplinaDisponivel[] = Array.isArray(disciplinas) ? disciplinas.map(({ snapshotId, ...d }) => ({
+        ...d, isPrincipal: d.id === turmaData.disciplinaId, avaliacaoId: snapshotId ?? d.id,
       })) : [];
-      
-      const mappedDiscs = await Promise.all(initialDiscs.map(async d => {
-          if (d.isPrincipal && defaultSnapshotId) return { ...d, avaliacaoId: defaultSnapshotId };
-          try {
-              const res = await api.get<number>(`/disciplinas/${d.id}/snapshot-status`);
-              return { ...d, avaliacaoId: res.data };
-          } catch { return d; }
-      }));
       setDisciplinasDisponiveis(mappedDiscs);
 
       // Auto-seleção de disciplina/estrutura se não vier na URL
@@ -99,8 +87,8 @@ export function useAvaliacaoTurma(turmaId: string, initialEstruturaId: string |
           setSelectedDiscId(def.id.toString());
       }
       // Auto-seleção de aluno
-      if (!alunoSelecionado && resAlunos.data.length > 0) {
-          setAlunoSelecionado(resAlunos.data[0]);
+      if (!alunoSelecionado && alunosData.length > 0) {
+          setAlunoSelecionado(alunosData[0]);
       }
 
     } catch (err) {
@@ -155,6 +143,50 @@ export function useAvaliacaoTurma(turmaId: string, initialEstruturaId: string |
     load();
   }, [selectedEstruturaId, isSnapshotReady, alunoSelecionado, checarStatusFinalizacao]);
 
+  // Tempo real: eventos SSE da turma (alterações de outros professores no aluno selecionado).
+  // Ao (re)conectar, o feed incremental recupera o que mudou enquanto a conexão esteve fora.
+  useEffect(() => {
+    if (typeof window === 'undefined' || !turmaId || !selectedEstruturaId || !isSnapshotReady || !alunoSelecionado) return;
+    let cursor: number | null = null;
+    let ativo = true;
+
+    const aplicar = (avs: any[]) => {
+      const doAluno = avs.filter(av => av.alunoId === alunoSelecionado.id);
+      if (doAluno.length === 0) return;
+      setAvaliacoesState(prev => {
+        const novo = { ...prev };
+        doAluno.forEach(av => { novo[av.criterioId] = { atendeu: av.atendeu, obs: av.observacao || '', finalizada: av.finalizada }; });
+        return novo;
+      });
+    };
+
+    const recuperar = async () => {
+      try {
+        const res = await api.get<{ cursor: number; alteracoes: any[]; recarregar?: boolean }>(`/avaliacoes/changes`, {
+          params: { turmaId, estruturaDisciplinaId: selectedEstruturaId, ...(cursor !== null ? { since: cursor } : {}) }
+        });
+        if (!ativo) return;
+        // Cursor mais antigo que o feed guarda: recarrega as avaliações do aluno inteiras
+        if (res.data.recarregar) checarStatusFinalizacao(alunoSelecionado.id, selectedEstruturaId);
+        else if (cursor !== null) aplicar(res.data.alteracoes || []);
+        cursor = res.data.cursor;
+      } catch { /* a próxima reconexão tenta de novo */ }
+    };
+
+    const doSnapshot = (e: MessageEvent) => {
+      const ev = JSON.parse(e.data);
+      return ev.snapshotDisciplinaId?.toString() === selectedEstruturaId && ev.alunoId === alunoSelecionado.id ? ev : null;
+    };
+    const fechar = abrirEventosTurma(turmaId, fonte => {
+      fonte.onopen = () => { recuperar(); };
+      fonte.addEventListener('AVALIACAO', (e) => { const ev = doSnapshot(e as MessageEvent); if (ev) aplicar([ev]); });
+      fonte.addEventListener('FECHAMENTO', (e) => { if (doSnapshot(e as MessageEvent)) checarStatusFinalizacao(alunoSelecionado.id, selectedEstruturaId); });
+      fonte.addEventListener('REABERTURA', (e) => { if (doSnapshot(e as MessageEvent)) checarStatusFinalizacao(alunoSelecionado.id, selectedEstruturaId); });
+    });
+
+    return () => { ativo = false; fechar(); };
+  }, [turmaId, selectedEstruturaId, isSnapshotReady, alunoSelecionado, checarStatusFinalizacao]);
+
 
   // --- ACTIONS: Negócio ---
 
@@ -209,16 +241,19 @@ export function useAvaliacaoTurma(turmaId: string, initialEstruturaId: string |
     if (!alunoSelecionado || !selectedEstruturaId || !isSnapshotReady) return;
     setFinalizando(true);
     try {
-      const promises = todosCriteriosIds.map(critId => api.post(`/avaliacoes`, {
+      const lote = todosCriteriosIds.map(critId => ({
         alunoId: alunoSelecionado.id, estruturaDisciplinaId: Number(selectedEstruturaId), criterioId: critId, atendeu, observacao: avaliacoesState[critId]?.obs || ''
       }));
-      await Promise.all(promises);
+      const res = await api.post<{ criterioId: number; sucesso: boolean; mensagem: string }[]>(`/avaliacoes/lote`, lote);
+      const salvos = new Set(res.data.filter(item => item.sucesso).map(item => item.criterioId));
       setAvaliacoesState(prev => {
         const novo = { ...prev };
-        todosCriteriosIds.forEach(id => novo[id] = { atendeu, obs: novo[id]?.obs || '', finalizada: false });
+        todosCriteriosIds.filter(id => salvos.has(id)).forEach(id => novo[id] = { atendeu, obs: novo[id]?.obs || '', finalizada: false });
         return novo;
       });
-      Swal.fire({ icon: 'success', title: 'Atualizado!', toast: true, position: 'top-end', timer: 1500, showConfirmButton: false });
+      const falhas = res.data.length - salvos.size;
+      if (falhas > 0) Swal.fire('Atenção', `${falhas} critério(s) não puderam ser atualizados.`, 'warning');
+      else Swal.fire({ icon: 'success', title: 'Atualizado!', toast: true, position: 'top-end', timer: 1500, showConfirmButton: false });
     } catch { Swal.fire('Erro', 'Falha na atualização em massa.', 'error'); }
     finally { setFinalizando(false); }
   };
@@ -248,8 +283,10 @@ export function useAvaliacaoTurma(turmaId: string, initialEstruturaId: string |
     
     setFinalizando(true);
     try {
-      await api.post(`/avaliacoes/fechar/turma/${turmaId}?estruturaDisciplinaId=${selectedEstruturaId}`);
-      Swal.fire('Concluído!', 'Turma fechada.', 'success');
+      const resFechamento = await api.post<{ nomeAluno: string; sucesso: boolean; mensagem: string }[]>(`/avaliacoes/fechar/turma/${turmaId}?estruturaDisciplinaId=${selectedEstruturaId}`);
+      const falhas = Array.isArray(resFechamento.data) ? resFechamento.data.filter(r => !r.sucesso) : [];
+      if (falhas.length > 0) Swal.fire('Turma fechada com pendências', `${falhas.length} aluno(s) não puderam ser fechados: ${falhas.map(f => f.nomeAluno).join(', ')}`, 'warning');
+      else Swal.fire('Concluído!', 'Turma fechada.', 'success');
       if (alunoSelecionado) await checarStatusFinalizacao(alunoSelecionado.id, selectedEstruturaId!);
     } catch { Swal.fire('Erro', 'Falha ao fechar turma.', 'error'); }
     finally { setFinalizando(false); }
@@ -1,6 +1,7 @@
 import { useState, useEffect } from 'react';
 import { useRouter } from 'next/navigation';
 import api from '@/app/services/api';
+import { abrirEventosTurma } from '@/app/services/eventosTurma';
 import Swal from 'sweetalert2';
 import { Turma, Boletim, DashboardKPIs, ChartDataFaixa, ChartDataStatus } from '@/app/types';
 
@@ -68,6 +69,20 @@ export function useDashboard() {
     .finally(() => setLoadingDados(false));
   }, [selectedTurmaId, estruturaSnapshotId]);
 
+  // 2.1 Tempo real: níveis atualizados pelo stream SSE da turma, sem recarregar o boletim inteiro
+  useEffect(() => {
+    if (!selectedTurmaId || !estruturaSnapshotId || !getToken()) return;
+
+    const atualizar = (e: MessageEvent) => {
+      const ev = JSON.parse(e.data);
+      if (ev.snapshotDisciplinaId !== estruturaSnapshotId || !ev.boletim) return;
+      setBoletins(prev => prev.map(b => b.nomeAluno === ev.boletim.nomeAluno ? { ...b, ...ev.boletim } : b));
+    };
+    return abrirEventosTurma(selectedTurmaId, fonte => {
+      ['NIVEL', 'FECHAMENTO', 'REABERTURA'].forEach(tipo => fonte.addEventListener(tipo, atualizar as EventListener));
+    });
+  }, [selectedTurmaId, estruturaSnapshotId]);
+
   // 3. Cálculos (KPIs e Gráficos)
   const totalAlunos = boletins.length;
   const kpis: DashboardKPIs = {
@@ -2,7 +2,7 @@ import { useState, useEffect } from 'react';
 import { useRouter } from 'next/navigation';
 import api from '@/app/services/api';
 import Swal from 'sweetalert2';
-import { Turma, Aluno, Disciplina, DisciplinaOpcao } from '@/app/types';
+import { Turma, Aluno, DisciplinaOpcao, DisciplinaBootstrap, BootstrapTurma } from '@/app/types';
 
 export function useDetalhesTurma(id: string) {
   const router = useRouter();
@@ -15,16 +15,15 @@ export function useDetalhesTurma(id: string) {
   const [isModalOpen, setIsModalOpen] = useState(false);
   const [disciplinasModal, setDisciplinasModal] = useState<DisciplinaOpcao[]>([]);
   const [loadingModal, setLoadingModal] = useState(false);
+  const [disciplinasTurma, setDisciplinasTurma] = useState<DisciplinaBootstrap[] | null>(null);
 
   const carregarDados = async () => {
     setLoading(true);
     try {
-      const [resTurma, resAlunos] = await Promise.all([
-        api.get<Turma>(`/turmas/${id}`),
-        api.get<Aluno[]>(`/turmas/${id}/alunos`) 
-      ]);
-      setTurma(resTurma.data);
-      setAlunos(resAlunos.data);
+      const res = await api.get<BootstrapTurma>(`/turmas/${id}/bootstrap`);
+      setTurma(res.data.turma);
+      setAlunos(res.data.alunos);
+      setDisciplinasTurma(res.data.disciplinas);
     } catch (error) {
       Swal.fire('Erro', 'Erro ao carregar turma.', 'error');
     } finally { setLoading(false); }
@@ -54,17 +53,16 @@ export function useDetalhesTurma(id: string) {
     setDisciplinasModal([]);
 
     try {
-        const resDiscs = await api.get<Disciplina[]>(`/turmas/${turma.id}/disciplinas`);
-        const checked = await Promise.all(resDiscs.data.map(async (d) => {
-            let snapId = (d.id === turma.disciplinaId && turma.estruturaSnapshotId) ? turma.estruturaSnapshotId : null;
-            if (!snapId) {
-                try {
-                    const res = await api.get<number>(`/disciplinas/${d.id}/snapshot-status`);
-                    snapId = res.data;
-                } catch { snapId = null; }
-            }
-            return { ...d, snapshotId: snapId, status: snapId ? 'PRONTO' : 'SEM_SNAPSHOT' } as DisciplinaOpcao;
-        }));
+        // Disciplinas e snapshots já vieram no bootstrap; só recarrega se a tela ainda não os tiver
+        let discs = disciplinasTurma;
+        if (!discs) {
+            const res = await api.get<BootstrapTurma>(`/turmas/${turma.id}/bootstrap`, { params: { alunos: false } });
+            discs = res.data.disciplinas;
+            setDisciplinasTurma(discs);
+        }
+        const checked = discs.map(d => (
+            { ...d, status: d.snapshotId ? 'PRONTO' : 'SEM_SNAPSHOT' } as DisciplinaOpcao
+        ));
         setDisciplinasModal(checked);
     } catch (err) {
         Swal.fire('Erro', 'Erro ao buscar disciplinas.', 'error');
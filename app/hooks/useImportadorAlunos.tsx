@@ -7,6 +7,7 @@ const BASE_URL = 'http://localhost:8080/api';
 export function useImportadorAlunos(turmaId: number, onSuccess: () => void, onClose: () => void) {
   const [file, setFile] = useState<File | null>(null);
   const [loading, setLoading] = useState(false);
+  const [progresso, setProgresso] = useState(0);
   const fileInputRef = useRef<HTMLInputElement>(null);
 
   const handleFileChange = (e: React.ChangeEvent<HTMLInputElement>) => {
@@ -16,14 +17,15 @@ export function useImportadorAlunos(turmaId: number, onSuccess: () => void, onCl
   const handleUpload = async () => {
     if (!file) return;
     setLoading(true);
+    setProgresso(0);
     const formData = new FormData();
     formData.append('file', file);
 
     try {
       const token = localStorage.getItem('token') || sessionStorage.getItem('token');
       
-      // ROTA CORRIGIDA PARA O SEU CONTROLLER
-      const response = await fetch(`${BASE_URL}/arquivos/importar-alunos?turmaId=${turmaId}`, {
+      // Importação assíncrona: o envio devolve o id do job e a situação é consultada até terminar
+      const response = await fetch(`${BASE_URL}/arquivos/jobs/importar-alunos?turmaId=${turmaId}`, {
           method: 'POST',
           headers: { 'Authorization': `Bearer ${token}` },
           body: formData
@@ -33,8 +35,23 @@ export function useImportadorAlunos(turmaId: number, onSuccess: () => void, onCl
           const msg = await response.text();
           throw new Error(msg || "Erro ao enviar arquivo.");
       }
+
+      let job = await response.json();
+      while (job.status === 'AGUARDANDO' || job.status === 'EXECUTANDO') {
+          await new Promise(resolve => setTimeout(resolve, 1000));
+          const situacao = await fetch(`${BASE_URL}/arquivos/jobs/${job.id}`, {
+              headers: { 'Authorization': `Bearer ${token}` }
+          });
+          if (!situacao.ok) throw new Error("Não foi possível acompanhar a importação.");
+          job = await situacao.json();
+          setProgresso(job.linhasProcessadas);
+      }
+
+      if (job.status === 'FALHOU') {
+          throw new Error(job.erros?.[0] || "Erro ao importar alunos.");
+      }
       
-      Swal.fire('Sucesso!', 'Alunos importados com sucesso.', 'success');
+      Swal.fire('Sucesso!', job.resultado || 'Alunos importados com sucesso.', 'success');
       onSuccess();
       onClose();
     } catch (err: any) {
@@ -43,5 +60,5 @@ export function useImportadorAlunos(turmaId: number, onSuccess: () => void, onCl
     } finally { setLoading(false); }
   };
 
-  return { file, loading, fileInputRef, handleFileChange, handleUpload };
+  return { file, loading, progresso, fileInputRef, handleFileChange, handleUpload };
 }
\ No newline at end of file
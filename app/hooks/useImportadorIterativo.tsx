@@ -83,8 +83,8 @@ export function useImportadorIterativo(disciplinaId: number, initialData: Capaci
 
       setLoading(true);
       try {
+          // O backend aplica só a diferença e já regera os níveis quando os totais de críticos/desejáveis mudam
           await api.post(`/gestao/disciplinas/${disciplinaId}/importar-lote`, parsedData);
-          await api.post(`/gestao/disciplinas/${disciplinaId}/gerar-niveis`);
           
           await Swal.fire('Sucesso!', 'Estrutura salva com sucesso.', 'success');
           onSuccess();
@@ -1,7 +1,7 @@
 import { useState, useEffect, useCallback } from "react";
 import { useSearchParams } from "next/navigation";
 import api from "@/app/services/api";
-import { Turma, Disciplina, BoletimRelatorio, NivelRegra, DisciplinaComSnapshot } from "@/app/types";
+import { Turma, BoletimRelatorio, NivelRegra, DisciplinaComSnapshot, BootstrapTurma } from "@/app/types";
 
 export function useRelatorioTurma(turmaId: string) {
   const searchParams = useSearchParams();
@@ -19,21 +19,13 @@ export function useRelatorioTurma(turmaId: string) {
   const carregarContexto = useCallback(async () => {
     setLoadingDados(true);
     try {
-      const [resTurma, resDiscs] = await Promise.all([
-        api.get<Turma>(`/turmas/${turmaId}`),
-        api.get<Disciplina[]>(`/turmas/${turmaId}/disciplinas`)
-      ]);
-      setTurma(resTurma.data);
+      // Turma e disciplinas já com o snapshot de cada uma, numa única requisição (sem a lista de alunos)
+      const res = await api.get<BootstrapTurma>(`/turmas/${turmaId}/bootstrap`, { params: { alunos: false } });
+      setTurma(res.data.turma);
 
-      const resolved = await Promise.all(resDiscs.data.map(async (d) => {
-        let snapId = (d.id === resTurma.data.disciplinaId && resTurma.data.estruturaSnapshotId) 
-            ? resTurma.data.estruturaSnapshotId 
-            : null;
-        if (!snapId) {
-            try { const r = await api.get<number>(`/disciplinas/${d.id}/snapshot-status`); snapId = r.data; } catch {}
-        }
-        return { ...d, isPrincipal: d.id === resTurma.data.disciplinaId, snapshotId: snapId } as DisciplinaComSnapshot;
-      }));
+      const resolved = res.data.disciplinas.map(d => (
+        { ...d, isPrincipal: d.id === res.data.turma.disciplinaId } as DisciplinaComSnapshot
+      ));
       setDisciplinas(resolved);
 
       if (!selectedSnapshotId) {
@@ -2,7 +2,7 @@ import { useState, useEffect, useCallback } from 'react';
 import { useRouter } from 'next/navigation';
 import api from '@/app/services/api';
 import Swal from 'sweetalert2';
-import { Turma, Disciplina, DisciplinaOpcao } from '@/app/types';
+import { Turma, DisciplinaOpcao, BootstrapTurma } from '@/app/types';
 
 export function useTurmas() {
   const router = useRouter();
@@ -76,19 +76,11 @@ export function useTurmas() {
         const token = localStorage.getItem('token') || sessionStorage.getItem('token');
         const headers = { Authorization: `Bearer ${token}` };
 
-        const resDiscs = await api.get<Disciplina[]>(`/turmas/${turma.id}/disciplinas`, { headers });
-        const disciplinasVerificadas = await Promise.all(resDiscs.data.map(async (d) => {
-            let snapId: number | null = null;
-            if (d.id === turma.disciplinaId && turma.estruturaSnapshotId) {
-                snapId = turma.estruturaSnapshotId;
-            } else {
-                try {
-                    const resSnap = await api.get<number>(`/disciplinas/${d.id}/snapshot-status`, { headers });
-                    snapId = resSnap.data;
-                } catch { snapId = null; }
-            }
-            return { ...d, snapshotId: snapId, status: snapId ? 'PRONTO' : 'SEM_SNAPSHOT' } as DisciplinaOpcao;
-        }));
+        // Disciplinas elegíveis já com o snapshot de cada uma, numa única requisição (sem a lista de alunos)
+        const res = await api.get<BootstrapTurma>(`/turmas/${turma.id}/bootstrap`, { headers, params: { alunos: false } });
+        const disciplinasVerificadas = res.data.disciplinas.map(d => (
+            { ...d, status: d.snapshotId ? 'PRONTO' : 'SEM_SNAPSHOT' } as DisciplinaOpcao
+        ));
         setDisciplinasModal(disciplinasVerificadas);
     } catch (err) {
         Swal.fire('Erro', 'Erro ao carregar disciplinas.', 'error');
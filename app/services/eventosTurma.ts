@@ -0,0 +1,39 @@
+import api from './api';
+
+/**
+ * Abre o stream SSE da turma e o mantém aberto até a função devolvida ser chamada.
+ * EventSource não envia o cabeçalho Authorization: cada conexão pede antes um ticket de uso único
+ * (POST autenticado) e o passa na URL. Por isso a reconexão é feita aqui, com ticket novo, e não pelo navegador.
+ * @param turmaId Turma cujos eventos serão recebidos.
+ * @param configurar Registra os listeners em cada conexão aberta (inclusive nas reconexões).
+ * @returns Função que fecha o stream.
+ */
+export function abrirEventosTurma(turmaId: number | string, configurar: (fonte: EventSource) => void): () => void {
+  let fonte: EventSource | null = null;
+  let espera: ReturnType<typeof setTimeout> | null = null;
+  let ativo = true;
+
+  const reconectar = () => {
+    if (ativo) espera = setTimeout(conectar, 3000);
+  };
+
+  const conectar = async () => {
+    try {
+      const res = await api.post<{ ticket: string }>(`/turmas/${turmaId}/eventos/ticket`);
+      if (!ativo) return;
+      fonte = new EventSource(`${api.defaults.baseURL}/turmas/${turmaId}/eventos?ticket=${encodeURIComponent(res.data.ticket)}`);
+      configurar(fonte);
+      fonte.onerror = () => { fonte?.close(); reconectar(); };
+    } catch (err: any) {
+      // Sem acesso à turma não adianta tentar de novo
+      if (err?.response?.status !== 403) reconectar();
+    }
+  };
+
+  conectar();
+  return () => {
+    ativo = false;
+    if (espera) clearTimeout(espera);
+    fonte?.close();
+  };
+}
@@ -195,4 +195,16 @@ export interface NivelRegra {
 export interface DisciplinaComSnapshot extends Disciplina {
     snapshotId: number | null;
     isPrincipal: boolean;
-}
\ No newline at end of file
+}
+
+// --- Bootstrap da Turma (GET /turmas/{id}/bootstrap) ---
+
+export interface DisciplinaBootstrap extends Disciplina {
+    snapshotId: number | null;
+}
+
+export interface BootstrapTurma {
+    turma: Turma;
+    alunos: Aluno[];
+    disciplinas: DisciplinaBootstrap[];
+}
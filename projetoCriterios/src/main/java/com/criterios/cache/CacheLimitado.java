@@ -0,0 +1,86 @@
+package com.criterios.cache;
+
+import com.criterios.dto.MetricasCacheDTO;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+
+/**
+ * Cache em memória com capacidade máxima e remoção do item menos usado (LRU).
+ * Pensado para dados imutáveis por chave (ex.: estruturas de Snapshot), com métricas de acerto/falha.
+ */
+public class CacheLimitado<K, V> {
+
+    private final String nome;
+    private final int capacidade;
+    private final Map<K, V> mapa;
+
+    private final LongAdder acertos = new LongAdder();
+    private final LongAdder falhas = new LongAdder();
+    private final LongAdder remocoes = new LongAdder();
+
+    public CacheLimitado(String nome, int capacidade) {
+        this.nome = nome;
+        this.capacidade = capacidade;
+        // accessOrder = true: cada leitura move a chave para o fim, e o "mais antigo" é o menos usado
+        this.mapa = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<K, V> eldest) {
+                if (size() > CacheLimitado.this.capacidade) {
+                    remocoes.increment();
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    /**
+     * Retorna o valor em cache ou o carrega com a função informada.
+     * O carregamento roda fora do lock; valores nulos não são armazenados.
+     */
+    public V obter(K chave, Function<K, V> carregador) {
+        V valor;
+        synchronized (mapa) {
+            valor = mapa.get(chave);
+        }
+        if (valor != null) {
+            acertos.increment();
+            return valor;
+        }
+
+        falhas.increment();
+        valor = carregador.apply(chave);
+        if (valor != null) {
+            synchronized (mapa) {
+                mapa.put(chave, valor);
+            }
+        }
+        return valor;
+    }
+
+    public void invalidar(K chave) {
+        synchronized (mapa) {
+            mapa.remove(chave);
+        }
+    }
+
+    public void limpar() {
+        synchronized (mapa) {
+            mapa.clear();
+        }
+    }
+
+    public MetricasCacheDTO metricas() {
+        int tamanho;
+        synchronized (mapa) {
+            tamanho = mapa.size();
+        }
+        long a = acertos.sum();
+        long f = falhas.sum();
+        double taxa = (a + f) > 0 ? (double) a / (a + f) : 0.0;
+        return new MetricasCacheDTO(nome, tamanho, capacidade, a, f, remocoes.sum(), taxa);
+    }
+}
@@ -0,0 +1,34 @@
+package com.criterios.config;
+
+import com.criterios.cache.CacheLimitado;
+import com.criterios.dto.RelatorioValidacaoTemplateDTO;
+import com.criterios.services.EstruturaSerializada;
+import com.criterios.services.ReguaCompilada;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Caches em memória da aplicação. Todos ficam visíveis em GET /api/admin/caches.
+ */
+@Configuration
+public class CacheConfig {
+
+    @Bean
+    public CacheLimitado<Long, ReguaCompilada> cacheRegua(
+            @Value("${criterios.cache.regua.capacidade:512}") int capacidade) {
+        return new CacheLimitado<>("regua-niveis", capacidade);
+    }
+
+    @Bean
+    public CacheLimitado<Long, EstruturaSerializada> cacheEstrutura(
+            @Value("${criterios.cache.estrutura.capacidade:256}") int capacidade) {
+        return new CacheLimitado<>("estrutura-snapshot", capacidade);
+    }
+
+    @Bean
+    public CacheLimitado<Long, RelatorioValidacaoTemplateDTO> cacheValidacaoTemplate(
+            @Value("${criterios.cache.validacao.capacidade:256}") int capacidade) {
+        return new CacheLimitado<>("validacao-template", capacidade);
+    }
+}
@@ -0,0 +1,31 @@
+package com.criterios.config;
+
+import org.springframework.boot.CommandLineRunner;
+import org.springframework.stereotype.Component;
+
+import com.criterios.repository.AvaliacaoRepository;
+import com.criterios.repository.ResumoAvaliacaoRepository;
+import com.criterios.services.ResumoAvaliacaoService;
+
+import lombok.RequiredArgsConstructor;
+
+/**
+ * Preenche tb_resumo_avaliacao na primeira inicialização após a criação da tabela,
+ * quando já existem avaliações gravadas sem contadores.
+ */
+@Component
+@RequiredArgsConstructor
+public class ResumoAvaliacaoInitializer implements CommandLineRunner {
+
+    private final ResumoAvaliacaoRepository resumoRepository;
+    private final AvaliacaoRepository avaliacaoRepository;
+    private final ResumoAvaliacaoService resumoAvaliacaoService;
+
+    @Override
+    public void run(String... args) throws Exception {
+        if (resumoRepository.count() == 0 && avaliacaoRepository.count() > 0) {
+            System.out.println(":: RECONSTRUINDO RESUMOS DE AVALIAÇÃO ::");
+            resumoAvaliacaoService.reconstruir();
+        }
+    }
+}
@@ -1,6 +1,7 @@
 package com.criterios.config;
 
 import com.criterios.security.SecurityFilter;
+import jakarta.servlet.DispatcherType;
 import lombok.RequiredArgsConstructor;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
@@ -39,6 +40,8 @@ public class SecurityConfig {
                         // 1. Rotas Públicas (Autenticação e OPTIONS) - Mais permissivas
                         .requestMatchers("/api/auth/**").permitAll()
                         .requestMatchers(HttpMethod.OPTIONS, "/**").permitAll()
+                        // Redespacho assíncrono (fim do stream SSE): a requisição original já foi autorizada
+                        .dispatcherTypeMatchers(DispatcherType.ASYNC).permitAll()
 
                         // 2. Rotas de GESTOR (Criação/Edição/Deleção de Disciplinas e Rotas de Admin)
                        
@@ -2,10 +2,15 @@ package com.criterios.controller;
 
 import com.criterios.dto.AlterarSenhaDTO;
 import com.criterios.dto.CadastroUsuarioDTO;
+import com.criterios.dto.MetricasCacheDTO;
+import com.criterios.dto.RelatorioCompactacaoDTO;
+import com.criterios.cache.CacheLimitado;
 import com.criterios.entities.TipoUsuario;
 import com.criterios.entities.Usuario;
 import com.criterios.repository.UsuarioRepository;
 import com.criterios.services.AuthorizationService; // Serviço de Autenticação para Alterar Senha
+import com.criterios.services.CompactacaoSnapshotService;
+import com.criterios.services.ResumoAvaliacaoService;
 import lombok.RequiredArgsConstructor;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.context.SecurityContextHolder;
@@ -22,6 +27,9 @@ public class AdminController {
     private final UsuarioRepository usuarioRepository;
     private final PasswordEncoder passwordEncoder;
     private final AuthorizationService authorizationService;
+    private final List<CacheLimitado<?, ?>> caches;
+    private final ResumoAvaliacaoService resumoAvaliacaoService;
+    private final CompactacaoSnapshotService compactacaoSnapshotService;
 
     // 1. Listar todos os professores (Para popular os selects de turma/admin)
     @GetMapping("/professores")
@@ -75,4 +83,46 @@ public class AdminController {
             return ResponseEntity.internalServerError().body("Erro ao alterar senha.");
         }
     }
-}
\ No newline at end of file
+
+    // 4. Métricas dos caches em memória (acertos, falhas, remoções)
+    @GetMapping("/caches")
+    public ResponseEntity<List<MetricasCacheDTO>> metricasCaches() {
+        return ResponseEntity.ok(caches.stream().map(CacheLimitado::metricas).toList());
+    }
+
+    // 5. Reconstrói os contadores materializados de avaliação a partir de tb_avaliacao (em blocos)
+    @PostMapping("/resumos/reconstruir")
+    public ResponseEntity<?> reconstruirResumos() {
+        String emailLogado = SecurityContextHolder.getContext().getAuthentication().getName();
+        Usuario admin = usuarioRepository.findByEmail(emailLogado)
+                .orElseThrow(() -> new RuntimeException("Gestor não encontrado no contexto de segurança."));
+
+        if (admin.getTipo() != TipoUsuario.GESTOR) {
+            return ResponseEntity.status(403).body("Apenas Gestores podem reconstruir os resumos.");
+        }
+
+        long linhas = resumoAvaliacaoService.reconstruir();
+        return ResponseEntity.ok("Resumos reconstruídos: " + linhas + " linhas.");
+    }
+
+    // 6. Compactação de snapshots órfãos: último relatório da execução agendada
+    @GetMapping("/snapshots/compactacao")
+    public ResponseEntity<RelatorioCompactacaoDTO> relatorioCompactacao() {
+        RelatorioCompactacaoDTO relatorio = compactacaoSnapshotService.getUltimoRelatorio();
+        return relatorio != null ? ResponseEntity.ok(relatorio) : ResponseEntity.noContent().build();
+    }
+
+    // 7. Executa a compactação agora (mesmos limites e pausas da execução agendada)
+    @PostMapping("/snapshots/compactar")
+    public ResponseEntity<?> compactarSnapshots() {
+        String emailLogado = SecurityContextHolder.getContext().getAuthentication().getName();
+        Usuario admin = usuarioRepository.findByEmail(emailLogado)
+                .orElseThrow(() -> new RuntimeException("Gestor não encontrado no contexto de segurança."));
+
+        if (admin.getTipo() != TipoUsuario.GESTOR) {
+            return ResponseEntity.status(403).body("Apenas Gestores podem compactar snapshots.");
+        }
+
+        return ResponseEntity.ok(compactacaoSnapshotService.compactar());
+    }
+}
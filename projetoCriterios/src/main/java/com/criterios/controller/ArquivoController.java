@@ -1,15 +1,28 @@
 package com.criterios.controller;
 
 import com.criterios.dto.EstruturaImportacaoDTO;
+import com.criterios.dto.JobImportacaoDTO;
+import com.criterios.dto.ResultadoImportacaoLoteAlunosDTO;
+import com.criterios.dto.ResultadoImportacaoSnapshotDTO;
+import com.criterios.entities.Usuario;
+import com.criterios.repository.UsuarioRepository;
 import com.criterios.services.ArquivoService;
+import com.criterios.services.ArquivoSnapshotService;
+import com.criterios.services.BufferAvaliacaoService;
+import com.criterios.services.ImportacaoLoteAlunosService;
+import com.criterios.services.JobImportacaoService;
 import lombok.RequiredArgsConstructor;
 import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import java.io.IOException;
+import java.io.InputStream;
 
 @RestController
 @RequestMapping("/api/arquivos")
@@ -17,6 +30,11 @@ import java.io.IOException;
 public class ArquivoController {
 
     private final ArquivoService arquivoService;
+    private final BufferAvaliacaoService bufferAvaliacaoService;
+    private final ArquivoSnapshotService arquivoSnapshotService;
+    private final JobImportacaoService jobImportacaoService;
+    private final ImportacaoLoteAlunosService importacaoLoteAlunosService;
+    private final UsuarioRepository usuarioRepository;
 
     // 1. Download do Boletim em Excel
     @GetMapping("/boletim/download")
@@ -24,6 +42,7 @@ public class ArquivoController {
             @RequestParam Long alunoId, 
             @RequestParam Long disciplinaId) throws IOException {
         
+        bufferAvaliacaoService.descarregar(disciplinaId);
         byte[] excelBytes = arquivoService.gerarBoletimExcel(alunoId, disciplinaId);
 
         return ResponseEntity.ok()
@@ -75,4 +94,116 @@ public class ArquivoController {
             return ResponseEntity.internalServerError().body("Erro ao processar arquivo: " + e.getMessage());
         }
     }
-}
\ No newline at end of file
+
+    // 5. [NOVO] Exportação do Snapshot (estrutura + níveis, opcionalmente turmas/alunos/avaliações) em NDJSON gzip
+    @GetMapping("/snapshots/{snapshotId}/exportar")
+    public ResponseEntity<StreamingResponseBody> exportarSnapshot(
+            @PathVariable Long snapshotId,
+            @RequestParam(value = "avaliacoes", defaultValue = "false") boolean incluirAvaliacoes) {
+        if (!arquivoSnapshotService.existe(snapshotId)) {
+            return ResponseEntity.notFound().build();
+        }
+        if (incluirAvaliacoes) {
+            bufferAvaliacaoService.descarregar(snapshotId);
+        }
+
+        StreamingResponseBody corpo = saida -> arquivoSnapshotService.exportar(snapshotId, incluirAvaliacoes, saida);
+        return ResponseEntity.ok()
+                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=snapshot_" + snapshotId + ".ndjson.gz")
+                .contentType(MediaType.parseMediaType("application/gzip"))
+                .body(corpo);
+    }
+
+    // 6. [NOVO] Importação de um arquivo de Snapshot gerado pela exportação acima (cria um snapshot novo)
+    @PostMapping("/snapshots/importar")
+    public ResponseEntity<?> importarSnapshot(@RequestParam("file") MultipartFile file) {
+        String emailLogado = SecurityContextHolder.getContext().getAuthentication().getName();
+        Usuario usuario = usuarioRepository.findByEmail(emailLogado)
+                .orElseThrow(() -> new RuntimeException("Usuário não encontrado"));
+        try {
+            ResultadoImportacaoSnapshotDTO resultado = arquivoSnapshotService.importar(file.getInputStream(), usuario);
+            return ResponseEntity.ok(resultado);
+        } catch (IOException e) {
+            return ResponseEntity.badRequest().body("Erro ao ler arquivo: " + e.getMessage());
+        } catch (RuntimeException e) {
+            return ResponseEntity.badRequest().body(e.getMessage());
+        }
+    }
+
+    // 7. [NOVO] Listas de chamada de várias turmas num único .zip (um PDF por turma, associado pelo id ou nome
+    // da turma no nome do arquivo). Devolve o relatório por turma; falhas de um arquivo não afetam os demais.
+    // Professores só importam para as próprias turmas; gestores, para qualquer uma.
+    @PostMapping("/importar-alunos-lote")
+    public ResponseEntity<?> uploadLoteAlunos(@RequestParam("file") MultipartFile file) {
+        Usuario usuario = usuarioLogado();
+        try (InputStream in = file.getInputStream()) {
+            ResultadoImportacaoLoteAlunosDTO resultado = importacaoLoteAlunosService.importarZip(in, usuario, linhas -> {});
+            return ResponseEntity.ok(resultado);
+        } catch (IOException e) {
+            return ResponseEntity.badRequest().body("Erro ao ler arquivo: " + e.getMessage());
+        } catch (RuntimeException e) {
+            return ResponseEntity.badRequest().body(e.getMessage());
+        }
+    }
+
+    // 8. [NOVO] Importações assíncronas: o upload é guardado em disco e a resposta (202) traz o id do job.
+    // O processamento é o mesmo dos endpoints 2, 3, 4 e 7; a situação e o resultado saem em GET /jobs/{id}.
+    @PostMapping("/jobs/importar-alunos")
+    public ResponseEntity<?> jobImportarAlunos(
+            @RequestParam("file") MultipartFile file,
+            @RequestParam("turmaId") Long turmaId) {
+        return submeterJob(JobImportacaoDTO.Tipo.ALUNOS_PDF, file,
+                (arquivo, progresso) -> arquivoService.importarAlunosViaPdf(arquivo, turmaId, progresso));
+    }
+
+    @PostMapping("/jobs/importar-alunos-lote")
+    public ResponseEntity<?> jobImportarLoteAlunos(@RequestParam("file") MultipartFile file) {
+        Usuario usuario = usuarioLogado();
+        return submeterJob(JobImportacaoDTO.Tipo.ALUNOS_LOTE, file, (arquivo, progresso) -> {
+            try (InputStream in = arquivo.getInputStream()) {
+                return importacaoLoteAlunosService.importarZip(in, usuario, progresso);
+            }
+        });
+    }
+
+    @PostMapping("/jobs/importar-criterios")
+    public ResponseEntity<?> jobImportarCriterios(
+            @RequestParam("file") MultipartFile file,
+            @RequestParam("capacidadeId") Long capacidadeId) {
+        return submeterJob(JobImportacaoDTO.Tipo.CRITERIOS, file,
+                (arquivo, progresso) -> arquivoService.importarCriteriosViaArquivo(arquivo, capacidadeId, progresso));
+    }
+
+    @PostMapping("/jobs/importar-estrutura-completa")
+    public ResponseEntity<?> jobImportarEstrutura(
+            @RequestParam("file") MultipartFile file,
+            @RequestParam("disciplinaId") Long disciplinaId) {
+        return submeterJob(JobImportacaoDTO.Tipo.ESTRUTURA, file,
+                (arquivo, progresso) -> arquivoService.preProcessarEstrutura(arquivo, disciplinaId, progresso));
+    }
+
+    @GetMapping("/jobs/{id}")
+    public ResponseEntity<JobImportacaoDTO> consultarJob(@PathVariable String id) {
+        String emailLogado = SecurityContextHolder.getContext().getAuthentication().getName();
+        return jobImportacaoService.consultar(id, emailLogado)
+                .map(ResponseEntity::ok)
+                .orElse(ResponseEntity.notFound().build());
+    }
+
+    private Usuario usuarioLogado() {
+        String emailLogado = SecurityContextHolder.getContext().getAuthentication().getName();
+        return usuarioRepository.findByEmail(emailLogado)
+                .orElseThrow(() -> new RuntimeException("Usuário não encontrado"));
+    }
+
+    private ResponseEntity<?> submeterJob(JobImportacaoDTO.Tipo tipo, MultipartFile file, JobImportacaoService.Tarefa tarefa) {
+        String emailLogado = SecurityContextHolder.getContext().getAuthentication().getName();
+        try {
+            return ResponseEntity.status(HttpStatus.ACCEPTED).body(jobImportacaoService.submeter(tipo, file, emailLogado, tarefa));
+        } catch (IOException e) {
+            return ResponseEntity.badRequest().body("Erro ao receber arquivo: " + e.getMessage());
+        } catch (RuntimeException e) {
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).body(e.getMessage());
+        }
+    }
+}
@@ -4,9 +4,14 @@ import java.util.List;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 import com.criterios.dto.AvaliacaoDTO;
+import com.criterios.dto.AvaliacaoRespostaDTO;
+import com.criterios.dto.ItemLoteResultadoDTO;
 import com.criterios.dto.ResultadoBoletimDTO;
+import com.criterios.dto.ResultadoFechamentoDTO;
 import com.criterios.entities.Avaliacao;
+import com.criterios.services.AlteracaoAvaliacaoService;
 import com.criterios.services.AvaliacaoServices;
+import com.criterios.services.BufferAvaliacaoService;
 import com.criterios.repository.AvaliacaoRepository; 
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
@@ -20,13 +25,16 @@ public class AvaliacaoController {
 
     private final AvaliacaoServices avaliacaoServices;
     private final AvaliacaoRepository avaliacaoRepository;
+    // Write-behind: as leituras descarregam o buffer antes de abrir a transação do serviço
+    private final BufferAvaliacaoService bufferAvaliacaoService;
+    private final AlteracaoAvaliacaoService alteracaoAvaliacaoService;
 
     @PostMapping
     public ResponseEntity<?> registrar(@RequestBody @Valid AvaliacaoDTO dto) {
         try {
             // O DTO já carrega o EstruturaDisciplinaId
             log.info("Registrando avaliação para aluno {}, critério {}", dto.getAlunoId(), dto.getCriterioId());
-            Avaliacao resultado = avaliacaoServices.registrarAvaliacao(dto);
+            AvaliacaoRespostaDTO resultado = avaliacaoServices.registrarAvaliacao(dto);
             return ResponseEntity.ok(resultado);
         } catch (RuntimeException e) {
             log.error("Erro ao registrar avaliação: {}", e.getMessage());
@@ -37,12 +45,30 @@ public class AvaliacaoController {
         }
     }
 
+    // [NOVO ENDPOINT] Registro em lote (ex.: "marcar todos"): uma requisição e uma transação para N critérios
+    @PostMapping("/lote")
+    public ResponseEntity<?> registrarLote(@RequestBody List<AvaliacaoDTO> dtos) {
+        try {
+            log.info("Registrando lote de {} avaliações", dtos != null ? dtos.size() : 0);
+            bufferAvaliacaoService.descarregar(); // cliques pendentes não podem sobrescrever o lote depois
+            List<ItemLoteResultadoDTO> resultados = avaliacaoServices.registrarAvaliacoesEmLote(dtos);
+            return ResponseEntity.ok(resultados);
+        } catch (RuntimeException e) {
+            log.error("Erro ao registrar lote de avaliações: {}", e.getMessage());
+            return ResponseEntity.badRequest().body(e.getMessage());
+        } catch (Exception e) {
+            log.error("Erro inesperado ao registrar lote de avaliações", e);
+            return ResponseEntity.internalServerError().body("Erro ao salvar avaliações. Tente novamente.");
+        }
+    }
+
     @GetMapping
     public ResponseEntity<List<Avaliacao>> listarAvaliacoes(
             @RequestParam Long alunoId, 
             @RequestParam Long estruturaDisciplinaId) { // CORRIGIDO: Usa EstruturaDisciplinaId
         try {
             // CORRIGIDO: Chama o método adaptado para o Snapshot
+            bufferAvaliacaoService.descarregar(estruturaDisciplinaId);
             return ResponseEntity.ok(avaliacaoRepository.findByAlunoAndEstruturaDisciplina(alunoId, estruturaDisciplinaId));
         } catch (Exception e) {
             log.error("Erro ao listar avaliações: {}", e.getMessage());
@@ -50,12 +76,28 @@ public class AvaliacaoController {
         }
     }
 
+    // [NOVO ENDPOINT] Feed incremental: só as células da turma alteradas desde o cursor informado
+    @GetMapping("/changes")
+    public ResponseEntity<?> listarAlteracoes(
+            @RequestParam Long turmaId,
+            @RequestParam Long estruturaDisciplinaId,
+            @RequestParam(required = false) Long since) {
+        try {
+            bufferAvaliacaoService.descarregar(estruturaDisciplinaId);
+            return ResponseEntity.ok(alteracaoAvaliacaoService.buscarDesde(turmaId, estruturaDisciplinaId, since));
+        } catch (Exception e) {
+            log.error("Erro ao listar alterações de avaliações: {}", e.getMessage());
+            return ResponseEntity.internalServerError().body(e.getMessage());
+        }
+    }
+
     @GetMapping("/boletim")
     public ResponseEntity<?> consultarBoletim(
             @RequestParam Long alunoId, 
             @RequestParam Long estruturaDisciplinaId) { // CORRIGIDO: Usa EstruturaDisciplinaId
         try {
             // CORRIGIDO: Passa EstruturaDisciplinaId para o serviço
+            bufferAvaliacaoService.descarregar(estruturaDisciplinaId);
             return ResponseEntity.ok(avaliacaoServices.calcularNivelAluno(alunoId, estruturaDisciplinaId));
         } catch (Exception e) {
             log.error("Erro ao calcular boletim: {}", e.getMessage());
@@ -69,6 +111,7 @@ public class AvaliacaoController {
             @RequestParam Long estruturaDisciplinaId) { // CORRIGIDO: Usa EstruturaDisciplinaId
         try {
             // CORRIGIDO: Passa EstruturaDisciplinaId para o serviço
+            bufferAvaliacaoService.descarregar(estruturaDisciplinaId);
             return ResponseEntity.ok(avaliacaoServices.gerarBoletimTurma(turmaId, estruturaDisciplinaId));
         } catch (Exception e) {
             log.error("Erro ao gerar boletim da turma: {}", e.getMessage());
@@ -83,6 +126,7 @@ public class AvaliacaoController {
             @RequestParam Long estruturaDisciplinaId) { // CORRIGIDO: Usa EstruturaDisciplinaId
         try {
             // CORRIGIDO: Passa EstruturaDisciplinaId para o serviço
+            bufferAvaliacaoService.descarregar(estruturaDisciplinaId);
             ResultadoBoletimDTO resultado = avaliacaoServices.finalizarAvaliacao(alunoId, estruturaDisciplinaId);
             return ResponseEntity.ok(resultado);
         } catch (RuntimeException e) {
@@ -100,7 +144,8 @@ public class AvaliacaoController {
             @RequestParam Long estruturaDisciplinaId) { // CORRIGIDO: Usa EstruturaDisciplinaId
         try {
             // CORRIGIDO: Passa EstruturaDisciplinaId para o serviço
-            List<ResultadoBoletimDTO> resultados = avaliacaoServices.finalizarAvaliacaoTurma(turmaId, estruturaDisciplinaId);
+            bufferAvaliacaoService.descarregar(estruturaDisciplinaId);
+            List<ResultadoFechamentoDTO> resultados = avaliacaoServices.finalizarAvaliacaoTurma(turmaId, estruturaDisciplinaId);
             return ResponseEntity.ok(resultados);
         } catch (RuntimeException e) {
             log.error("Erro ao fechar avaliação da turma: {}", e.getMessage());
@@ -111,6 +156,23 @@ public class AvaliacaoController {
         }
     }
 
+    // [NOVO ENDPOINT] Reabrir Avaliação da Turma INTEIRA
+    @PostMapping("/reabrir/turma/{turmaId}")
+    public ResponseEntity<?> reabrirAvaliacaoTurma(
+            @PathVariable Long turmaId,
+            @RequestParam Long estruturaDisciplinaId) {
+        try {
+            bufferAvaliacaoService.descarregar(estruturaDisciplinaId);
+            List<ResultadoFechamentoDTO> resultados = avaliacaoServices.reabrirAvaliacaoTurma(turmaId, estruturaDisciplinaId);
+            return ResponseEntity.ok(resultados);
+        } catch (RuntimeException e) {
+            log.error("Erro ao reabrir avaliação da turma: {}", e.getMessage());
+            return ResponseEntity.badRequest().body(e.getMessage());
+        } catch (Exception e) {
+            log.error("Erro inesperado ao reabrir avaliação da turma", e);
+            return ResponseEntity.internalServerError().body("Erro ao reabrir avaliação da turma.");
+        }
+    }
 
     // [NOVO ENDPOINT] Reabrir Avaliação
     @PostMapping("/reabrir")
@@ -119,6 +181,7 @@ public class AvaliacaoController {
             @RequestParam Long estruturaDisciplinaId) { // CORRIGIDO: Usa EstruturaDisciplinaId
         try {
             // CORRIGIDO: Passa EstruturaDisciplinaId para o serviço
+            bufferAvaliacaoService.descarregar(estruturaDisciplinaId);
             avaliacaoServices.reabrirAvaliacao(alunoId, estruturaDisciplinaId);
             return ResponseEntity.ok("Avaliação reaberta com sucesso.");
         } catch (RuntimeException e) {
@@ -1,31 +1,60 @@
 package com.criterios.controller;
 
-import com.criterios.entities.Capacidade;
-import com.criterios.repository.CapacidadeRepository;
+import com.criterios.services.EstruturaSerializada;
+import com.criterios.services.EstruturaSnapshotService;
 import lombok.RequiredArgsConstructor;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
-import java.util.List;
-
 @RestController
 @RequestMapping("/api/estrutura") // Corresponde à chamada do Frontend
 @RequiredArgsConstructor
 public class EstruturaController {
 
-    private final CapacidadeRepository capacidadeRepository;
+    private final EstruturaSnapshotService estruturaSnapshotService;
 
     @GetMapping("/{snapshotId}/capacidades")
-    public ResponseEntity<List<Capacidade>> listarCapacidadesSnapshot(@PathVariable Long snapshotId) {
-        // Usa o método que já traz os critérios juntos (JOIN FETCH)
-        // Isso é essencial para evitar erro de "LazyInitialization" e garantir que a árvore venha completa.
-        List<Capacidade> capacidades = capacidadeRepository.findBySnapshotDisciplinaIdFetchCriterios(snapshotId);
-        
-        if (capacidades.isEmpty()) {
-            // Opcional: Tenta buscar sem o fetch se a lista estiver vazia, ou retorna vazio mesmo
-            return ResponseEntity.ok(java.util.Collections.emptyList());
+    public ResponseEntity<byte[]> listarCapacidadesSnapshot(
+            @PathVariable Long snapshotId,
+            @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch,
+            @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding) {
+        // O JSON da árvore (capacidades + critérios) já vem serializado do cache do Snapshot
+        EstruturaSerializada estrutura = estruturaSnapshotService.obterEstrutura(snapshotId);
+
+        // ETag forte por representação: a versão gzip recebe sufixo próprio
+        boolean gzip = acceptEncoding != null && acceptEncoding.toLowerCase().contains("gzip");
+        String etag = gzip ? estrutura.etag().replaceFirst("\"$", "-gz\"") : estrutura.etag();
+
+        if (etagCorresponde(ifNoneMatch, etag)) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED)
+                    .eTag(etag)
+                    .header(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING)
+                    .build();
+        }
+
+        ResponseEntity.BodyBuilder resposta = ResponseEntity.ok()
+                .eTag(etag)
+                .cacheControl(CacheControl.noCache()) // o navegador guarda, mas revalida com If-None-Match
+                .header(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING)
+                .contentType(MediaType.APPLICATION_JSON);
+
+        if (gzip) {
+            return resposta.header(HttpHeaders.CONTENT_ENCODING, "gzip").body(estrutura.gzip());
+        }
+        return resposta.body(estrutura.json());
+    }
+
+    private boolean etagCorresponde(String ifNoneMatch, String etag) {
+        if (ifNoneMatch == null) return false;
+        for (String candidato : ifNoneMatch.split(",")) {
+            String valor = candidato.trim();
+            if (valor.startsWith("W/")) valor = valor.substring(2);
+            if (valor.equals("*") || valor.equals(etag)) return true;
         }
-        
-        return ResponseEntity.ok(capacidades);
+        return false;
     }
-}
\ No newline at end of file
+}
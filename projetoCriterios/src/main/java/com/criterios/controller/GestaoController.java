@@ -1,14 +1,23 @@
 package com.criterios.controller;
 
 import com.criterios.dto.CapacidadeImportDTO;
+import com.criterios.dto.PrevisaoNiveisDTO;
+import com.criterios.dto.RelatorioValidacaoTemplateDTO;
+import com.criterios.dto.ResultadoSimulacaoDTO;
+import com.criterios.dto.SimulacaoNiveisDTO;
 import com.criterios.entities.*;
 import com.criterios.repository.CapacidadeRepository;
+import com.criterios.services.BufferAvaliacaoService;
+import com.criterios.services.GeracaoNiveisService;
 import com.criterios.services.GerenciamentoCriterioService;
+import com.criterios.services.SimulacaoReguaService;
+import com.criterios.services.ValidacaoTemplateService;
 import lombok.RequiredArgsConstructor;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
 import java.util.List;
+import java.util.stream.Collectors;
 
 @RestController
 @RequestMapping("/api/gestao")
@@ -17,6 +26,10 @@ public class GestaoController {
 
     private final GerenciamentoCriterioService gestaoService;
     private final CapacidadeRepository capacidadeRepository;
+    private final SimulacaoReguaService simulacaoReguaService;
+    private final BufferAvaliacaoService bufferAvaliacaoService;
+    private final GeracaoNiveisService geracaoNiveisService;
+    private final ValidacaoTemplateService validacaoTemplateService;
 
     @PostMapping("/criterios")
     public ResponseEntity<Criterio> adicionarCriterio(
@@ -29,12 +42,27 @@ public class GestaoController {
     @GetMapping("/disciplinas/{disciplinaId}/validar")
     public ResponseEntity<String> validarDisciplina(@PathVariable("disciplinaId") Long disciplinaTemplateId) {
         try {
-            gestaoService.validarRegraMinimoCritico(disciplinaTemplateId);
+            RelatorioValidacaoTemplateDTO relatorio = validacaoTemplateService.validar(disciplinaTemplateId);
+            if (!relatorio.isValido()) {
+                return ResponseEntity.badRequest().body(relatorio.getViolacoes().stream()
+                        .map(RelatorioValidacaoTemplateDTO.Violacao::getMensagem)
+                        .collect(Collectors.joining(" ")));
+            }
             return ResponseEntity.ok("Disciplina válida. Todas as capacidades possuem critérios críticos.");
         } catch (RuntimeException e) {
             return ResponseEntity.badRequest().body(e.getMessage());
         }
     }
+
+    // [NOVO] Relatório com todas as violações da estrutura do template (em cache até a próxima alteração)
+    @GetMapping("/disciplinas/{disciplinaId}/validacao")
+    public ResponseEntity<RelatorioValidacaoTemplateDTO> relatorioValidacao(@PathVariable("disciplinaId") Long disciplinaTemplateId) {
+        try {
+            return ResponseEntity.ok(validacaoTemplateService.validar(disciplinaTemplateId));
+        } catch (RuntimeException e) {
+            return ResponseEntity.notFound().build();
+        }
+    }
     
     @GetMapping("/disciplinas/{disciplinaId}/capacidades")
     // [CORRIGIDO] Usa findByDisciplinaTemplateId
@@ -43,20 +71,60 @@ public class GestaoController {
     }
 
     @PostMapping("/disciplinas/{disciplinaId}/importar-lote")
-    public ResponseEntity<String> importarLote(
+    public ResponseEntity<?> importarLote(
             @PathVariable("disciplinaId") Long disciplinaTemplateId,
             @RequestBody List<CapacidadeImportDTO> dados) {
-        gestaoService.salvarImportacaoEmMassa(disciplinaTemplateId, dados);
-        return ResponseEntity.ok("Importação realizada com sucesso!");
+        try {
+            // Aplica só a diferença para a estrutura atual e regera os níveis quando os totais mudam
+            return ResponseEntity.ok(gestaoService.salvarImportacaoEmMassa(disciplinaTemplateId, dados));
+        } catch (RuntimeException e) {
+            return ResponseEntity.badRequest().body(e.getMessage());
+        }
     }
 
+    // [CORREÇÃO] Recebe o id da disciplina: a estrutura template é resolvida no serviço
     @PostMapping("/disciplinas/{disciplinaId}/gerar-niveis")
-    public ResponseEntity<String> gerarNiveis(@PathVariable("disciplinaId") Long disciplinaTemplateId) {
+    public ResponseEntity<String> gerarNiveis(
+            @PathVariable("disciplinaId") Long disciplinaTemplateId,
+            @RequestParam(value = "estrategia", required = false) String estrategia) {
         try {
-            gestaoService.gerarNiveisAutomaticos(disciplinaTemplateId);
+            geracaoNiveisService.gerarParaDisciplina(disciplinaTemplateId, estrategia);
             return ResponseEntity.ok("Níveis gerados com sucesso!");
-        } catch (Exception e) {
-            return ResponseEntity.internalServerError().body("Erro ao gerar níveis: " + e.getMessage());
+        } catch (RuntimeException e) {
+            return ResponseEntity.badRequest().body("Erro ao gerar níveis: " + e.getMessage());
+        }
+    }
+
+    // [NOVO] Prévia da régua (nada é gravado) e de onde os alunos dos snapshots existentes ficariam nela
+    @GetMapping("/disciplinas/{disciplinaId}/niveis/previa")
+    public ResponseEntity<?> previsualizarNiveis(
+            @PathVariable("disciplinaId") Long disciplinaTemplateId,
+            @RequestParam(value = "estrategia", required = false) String estrategia) {
+        try {
+            bufferAvaliacaoService.descarregar();
+            PrevisaoNiveisDTO previa = geracaoNiveisService.previsualizar(disciplinaTemplateId, estrategia);
+            return ResponseEntity.ok(previa);
+        } catch (RuntimeException e) {
+            return ResponseEntity.badRequest().body(e.getMessage());
+        }
+    }
+
+    @GetMapping("/niveis/estrategias")
+    public ResponseEntity<List<String>> listarEstrategiasNiveis() {
+        return ResponseEntity.ok(geracaoNiveisService.listarEstrategias());
+    }
+
+    // [NOVO] Simulação "e se": distribuição de níveis do snapshot em réguas candidatas (nada é gravado)
+    @PostMapping("/snapshots/{snapshotId}/simular-niveis")
+    public ResponseEntity<?> simularNiveis(
+            @PathVariable("snapshotId") Long snapshotDisciplinaId,
+            @RequestBody SimulacaoNiveisDTO dto) {
+        try {
+            bufferAvaliacaoService.descarregar(snapshotDisciplinaId);
+            ResultadoSimulacaoDTO resultado = simulacaoReguaService.simular(snapshotDisciplinaId, dto);
+            return ResponseEntity.ok(resultado);
+        } catch (RuntimeException e) {
+            return ResponseEntity.badRequest().body(e.getMessage());
         }
     }
-}
\ No newline at end of file
+}
@@ -1,22 +1,33 @@
 package com.criterios.controller;
 
+import com.criterios.dto.BootstrapTurmaDTO;
+import com.criterios.dto.MatrizTurmaDTO;
 import com.criterios.dto.TurmaDTO;
 import com.criterios.dto.TurmaResponseDTO;
 import com.criterios.entities.Aluno;
 import com.criterios.entities.Disciplina;
+import com.criterios.entities.TipoUsuario;
 import com.criterios.entities.Turma;
 import com.criterios.entities.Usuario;
+import com.criterios.eventos.EventosTurmaHub;
 import com.criterios.repository.AlunoRepository;
 import com.criterios.repository.DisciplinaRepository;
 import com.criterios.repository.TurmaRepository;
 import com.criterios.repository.UsuarioRepository;
+import com.criterios.security.TicketEventosService;
+import com.criterios.services.BufferAvaliacaoService;
+import com.criterios.services.MatrizTurmaService;
 import com.criterios.services.TurmaService;
 import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
 import java.util.List;
+import java.util.Map;
 
 @RestController
 @RequestMapping("/api/turmas")
@@ -28,6 +39,10 @@ public class TurmaController {
     private final UsuarioRepository usuarioRepository;
     private final DisciplinaRepository disciplinaRepository;
     private final AlunoRepository alunoRepository;
+    private final EventosTurmaHub eventosTurmaHub;
+    private final MatrizTurmaService matrizTurmaService;
+    private final BufferAvaliacaoService bufferAvaliacaoService;
+    private final TicketEventosService ticketEventosService;
 
     // --- ENDPOINTS BÁSICOS (CRUD) ---
 
@@ -99,6 +114,52 @@ public class TurmaController {
         return ResponseEntity.ok(alunoRepository.findByTurmaId(id));
     }
 
+    // [NOVO ENDPOINT] Carga inicial das telas da turma (turma + alunos + disciplinas com snapshot) num único round trip
+    @GetMapping("/{id}/bootstrap")
+    public ResponseEntity<BootstrapTurmaDTO> bootstrapTurma(
+            @PathVariable Long id,
+            @RequestParam(value = "alunos", defaultValue = "true") boolean incluirAlunos) {
+        try {
+            return ResponseEntity.ok(turmaService.buscarBootstrap(id, incluirAlunos));
+        } catch (RuntimeException e) {
+            return ResponseEntity.notFound().build();
+        }
+    }
+
+    // [NOVO ENDPOINT] Grade compacta da turma (alunos x critérios) numa única resposta
+    @GetMapping("/{id}/matriz")
+    public ResponseEntity<MatrizTurmaDTO> matrizTurma(@PathVariable Long id, @RequestParam("snapshot") Long snapshotId) {
+        bufferAvaliacaoService.descarregar(snapshotId);
+        return ResponseEntity.ok(matrizTurmaService.montar(id, snapshotId));
+    }
+
+    // [NOVO ENDPOINT] Ticket de uso único para abrir o stream SSE (EventSource não envia o cabeçalho Authorization)
+    @PostMapping("/{id}/eventos/ticket")
+    public ResponseEntity<?> ticketEventos(@PathVariable Long id) {
+        Usuario usuario = usuarioLogado();
+        if (!acompanhaTurma(usuario, id)) return ResponseEntity.status(HttpStatus.FORBIDDEN).build();
+        return ResponseEntity.ok(Map.of("ticket", ticketEventosService.emitir(usuario.getEmail(), id)));
+    }
+
+    // [NOVO ENDPOINT] Stream SSE com as alterações de avaliação da turma (células, níveis, fechamento)
+    @GetMapping(value = "/{id}/eventos", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public ResponseEntity<SseEmitter> eventosTurma(@PathVariable Long id) {
+        if (!acompanhaTurma(usuarioLogado(), id)) return ResponseEntity.status(HttpStatus.FORBIDDEN).build();
+        return ResponseEntity.ok(eventosTurmaHub.assinar(id));
+    }
+
+    // Gestor acompanha qualquer turma; professor, só as que leciona
+    private boolean acompanhaTurma(Usuario usuario, Long turmaId) {
+        if (usuario.getTipo() == TipoUsuario.GESTOR) return turmaRepository.existsById(turmaId);
+        return turmaRepository.existsByIdAndProfessoresId(turmaId, usuario.getId());
+    }
+
+    private Usuario usuarioLogado() {
+        String emailLogado = SecurityContextHolder.getContext().getAuthentication().getName();
+        return usuarioRepository.findByEmail(emailLogado)
+                .orElseThrow(() -> new RuntimeException("Usuário não encontrado"));
+    }
+
     // --- ENDPOINTS DE SNAPSHOT (Gerar e Excluir) ---
     
     @PostMapping("/{id}/snapshot/{templateId}")
@@ -0,0 +1,21 @@
+package com.criterios.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * Resposta do feed de alterações: o estado atual das células alteradas e o cursor
+ * a ser enviado como "since" na próxima consulta. {@code recarregar} indica que o cursor enviado é anterior
+ * às alterações já removidas do feed: o cliente deve recarregar tudo e seguir a partir do cursor devolvido.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class AlteracoesAvaliacaoDTO {
+    private Long cursor;
+    private List<AvaliacaoRespostaDTO> alteracoes;
+    private boolean recarregar;
+}
@@ -0,0 +1,24 @@
+package com.criterios.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * Linha de tb_avaliacao devolvida após o registro, sem o grafo do Critério.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class AvaliacaoRespostaDTO {
+    private Long id;
+    private Long alunoId;
+    private Long criterioId;
+    private Boolean atendeu;
+    private String observacao;
+    private LocalDateTime dataAvaliacao;
+    private Boolean finalizada;
+    private Integer nivelFinal;
+}
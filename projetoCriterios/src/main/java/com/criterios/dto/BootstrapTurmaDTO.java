@@ -0,0 +1,34 @@
+package com.criterios.dto;
+
+import com.criterios.entities.Aluno;
+import com.criterios.entities.Periodicidade;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * Tudo o que as telas da turma precisam para abrir: a turma, seus alunos e as disciplinas elegíveis
+ * (pelo termo) já com o snapshot a ser usado em cada uma.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class BootstrapTurmaDTO {
+    private TurmaResponseDTO turma;
+    private List<Aluno> alunos;
+    private List<DisciplinaSnapshot> disciplinas;
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class DisciplinaSnapshot {
+        private Long id;
+        private String nome;
+        private String sigla;
+        private Periodicidade periodicidade;
+        private Integer termo;
+        private Long snapshotId; // snapshot da turma (disciplina principal) ou o mais recente do template; null se não houver
+    }
+}
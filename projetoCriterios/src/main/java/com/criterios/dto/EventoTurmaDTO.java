@@ -0,0 +1,27 @@
+package com.criterios.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Evento enviado pelo stream SSE da turma (GET /api/turmas/{id}/eventos).
+ * tipo: AVALIACAO (célula alterada), NIVEL (boletim do aluno mudou), FECHAMENTO ou REABERTURA.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class EventoTurmaDTO {
+    private String tipo;
+    private Long snapshotDisciplinaId;
+    private Long alunoId;
+    private Long criterioId;
+    private Boolean atendeu;
+    private String observacao;
+    private Boolean finalizada;
+    private ResultadoBoletimDTO boletim;
+}
@@ -0,0 +1,18 @@
+package com.criterios.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Status individual de cada item enviado ao endpoint de avaliação em lote.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ItemLoteResultadoDTO {
+    private Long alunoId;
+    private Long criterioId;
+    private boolean sucesso;
+    private String mensagem;
+}
@@ -0,0 +1,29 @@
+package com.criterios.dto;
+
+import lombok.Data;
+
+import java.time.Instant;
+import java.util.List;
+
+/**
+ * Situação de uma importação assíncrona de arquivo (lista de chamada, lote de listas, estrutura ou critérios).
+ * O resultado é o mesmo que o endpoint síncrono correspondente devolveria, preenchido ao concluir.
+ */
+@Data
+public class JobImportacaoDTO {
+
+    public enum Tipo { ALUNOS_PDF, ALUNOS_LOTE, ESTRUTURA, CRITERIOS }
+
+    public enum Status { AGUARDANDO, EXECUTANDO, CONCLUIDO, FALHOU }
+
+    private String id;
+    private Tipo tipo;
+    private Status status;
+    private String nomeArquivo;
+    private long linhasProcessadas;
+    private List<String> erros;
+    private Object resultado;
+    private Instant criadoEm;
+    private Instant iniciadoEm;
+    private Instant concluidoEm;
+}
@@ -0,0 +1,38 @@
+package com.criterios.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * Grade completa da turma (alunos x critérios) num único payload.
+ *
+ * Os critérios são listados uma única vez em criterioIds; cada conjunto de bits (Base64) é indexado pela
+ * posição nessa lista: o bit i está no byte i / 8, máscara 1 << (i % 8) (formato de java.util.BitSet#toByteArray).
+ * Observações não vêm na matriz: o bit em "comObservacao" indica quais buscar via GET /api/avaliacoes.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class MatrizTurmaDTO {
+    private Long turmaId;
+    private Long snapshotDisciplinaId;
+    private List<Long> criterioIds;
+    private String criticos; // bits dos critérios do tipo CRITICO
+    private List<Linha> alunos;
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Linha {
+        private Long alunoId;
+        private String nome;
+        private String respondidos;   // atendeu não nulo
+        private String atendidos;     // atendeu = true
+        private String comObservacao;
+        private boolean finalizada;
+        private Integer nivelAlcancado; // nível final gravado, ou o calculado se a avaliação está aberta
+    }
+}
@@ -0,0 +1,18 @@
+package com.criterios.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class MetricasCacheDTO {
+    private String nome;
+    private int tamanho;
+    private int capacidade;
+    private long acertos;
+    private long falhas;
+    private long remocoes;
+    private double taxaAcerto;
+}
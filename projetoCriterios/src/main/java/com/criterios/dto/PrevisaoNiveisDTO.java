@@ -0,0 +1,35 @@
+package com.criterios.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Régua que a estratégia geraria para o template e onde os alunos dos snapshots já existentes
+ * da disciplina ficariam nela, comparado com a régua atual de cada snapshot. Nada é gravado.
+ */
+@Data
+public class PrevisaoNiveisDTO {
+    private Long disciplinaTemplateId;
+    private String estrategia;
+    private int totalCriticos;
+    private int totalDesejaveis;
+    private List<Nivel> niveis;
+    private int snapshots;
+    private int totalAlunos;
+    private Map<Integer, Integer> alunosPorNivel;      // nível -> alunos, na régua proposta
+    private Map<Integer, Integer> alunosPorNivelAtual; // nível -> alunos, na régua atual de cada snapshot
+    private int alunosComMudanca;
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Nivel {
+        private Integer nivel;
+        private Integer minCriticos;
+        private Integer minDesejaveis;
+    }
+}
@@ -0,0 +1,46 @@
+package com.criterios.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.annotation.JsonSubTypes;
+import com.fasterxml.jackson.annotation.JsonTypeInfo;
+
+import java.time.LocalDateTime;
+
+/**
+ * Uma linha do arquivo de snapshot (NDJSON compactado com gzip). O campo "t" identifica o tipo.
+ *
+ * Ordem no arquivo: cabeçalho, capacidades, critérios, níveis e, opcionalmente, turmas, alunos e avaliações.
+ * Os ids são os do ambiente de origem; servem só para ligar os registros entre si na importação.
+ */
+@JsonInclude(JsonInclude.Include.NON_NULL)
+@JsonTypeInfo(use = JsonTypeInfo.Id.NAME, property = "t")
+@JsonSubTypes({
+    @JsonSubTypes.Type(value = RegistroArquivoSnapshot.Cabecalho.class, name = "snapshot"),
+    @JsonSubTypes.Type(value = RegistroArquivoSnapshot.Capacidade.class, name = "cap"),
+    @JsonSubTypes.Type(value = RegistroArquivoSnapshot.Criterio.class, name = "crit"),
+    @JsonSubTypes.Type(value = RegistroArquivoSnapshot.Nivel.class, name = "nivel"),
+    @JsonSubTypes.Type(value = RegistroArquivoSnapshot.Turma.class, name = "turma"),
+    @JsonSubTypes.Type(value = RegistroArquivoSnapshot.Aluno.class, name = "aluno"),
+    @JsonSubTypes.Type(value = RegistroArquivoSnapshot.Avaliacao.class, name = "aval")
+})
+public sealed interface RegistroArquivoSnapshot {
+
+    int VERSAO_ATUAL = 1;
+
+    record Cabecalho(int versao, Long id, Long disciplinaTemplateId, String nomeDisciplina, String siglaDisciplina,
+                     LocalDateTime dataCriacao) implements RegistroArquivoSnapshot {}
+
+    record Capacidade(Long id, String descricao, String tipo) implements RegistroArquivoSnapshot {}
+
+    record Criterio(Long id, Long capacidadeId, String descricao, String tipo) implements RegistroArquivoSnapshot {}
+
+    record Nivel(Integer nivel, Integer minCriticos, Integer minDesejaveis, String sigla, String descricao)
+            implements RegistroArquivoSnapshot {}
+
+    record Turma(Long id, String nome, String anoSemestre, Integer termoAtual) implements RegistroArquivoSnapshot {}
+
+    record Aluno(Long id, Long turmaId, String nome) implements RegistroArquivoSnapshot {}
+
+    record Avaliacao(Long alunoId, Long criterioId, Boolean atendeu, String observacao, LocalDateTime dataAvaliacao,
+                     Boolean finalizada, Integer nivelFinal) implements RegistroArquivoSnapshot {}
+}
@@ -0,0 +1,26 @@
+package com.criterios.dto;
+
+import lombok.Data;
+
+import java.time.LocalDateTime;
+
+/**
+ * Resultado de uma execução da compactação de snapshots órfãos: linhas removidas por tabela.
+ */
+@Data
+public class RelatorioCompactacaoDTO {
+    private LocalDateTime inicio;
+    private long duracaoMs;
+    private int lotes;
+    private int snapshots;
+    private int capacidades;
+    private int criterios;
+    private int niveis;
+    private int resumos;
+    private int alteracoes;
+    private String interrompidaPor; // null = varreu tudo; senão o motivo da parada antecipada
+
+    public int getTotalLinhas() {
+        return snapshots + capacidades + criterios + niveis + resumos + alteracoes;
+    }
+}
@@ -0,0 +1,43 @@
+package com.criterios.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * Todas as violações das regras de estrutura de um template, com os totais de cada capacidade.
+ * Fica em cache até a próxima alteração do template: não deve ser modificado por quem o recebe.
+ */
+@Data
+public class RelatorioValidacaoTemplateDTO {
+    private Long disciplinaTemplateId;
+    private boolean valido;
+    private int totalCapacidades;
+    private int totalCriticos;
+    private int totalDesejaveis;
+    private List<Capacidade> capacidades;
+    private List<Violacao> violacoes;
+
+    public enum TipoViolacao { TEMPLATE_VAZIO, CAPACIDADE_VAZIA, SEM_CRITICO }
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Capacidade {
+        private Long id;
+        private String descricao;
+        private int criticos;
+        private int desejaveis;
+    }
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Violacao {
+        private TipoViolacao tipo;
+        private Long capacidadeId; // nulo para violações do template inteiro
+        private String mensagem;
+    }
+}
@@ -0,0 +1,20 @@
+package com.criterios.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Resultado por aluno do fechamento/reabertura da turma inteira.
+ * Alunos que falharam aparecem com sucesso = false e a mensagem do motivo.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ResultadoFechamentoDTO {
+    private Long alunoId;
+    private String nomeAluno;
+    private boolean sucesso;
+    private String mensagem;
+    private ResultadoBoletimDTO boletim; // Preenchido apenas no fechamento com sucesso
+}
@@ -0,0 +1,22 @@
+package com.criterios.dto;
+
+import lombok.Data;
+
+/**
+ * Resumo da reimportação da estrutura de um template: o que o diff aplicou e se a régua de níveis foi regerada.
+ */
+@Data
+public class ResultadoImportacaoEstruturaDTO {
+    private int capacidadesInseridas;
+    private int capacidadesAtualizadas;
+    private int capacidadesRemovidas;
+    private int criteriosInseridos;
+    private int criteriosAtualizados;
+    private int criteriosRemovidos;
+    private boolean niveisRegerados;
+
+    public boolean isSemAlteracoes() {
+        return capacidadesInseridas + capacidadesAtualizadas + capacidadesRemovidas
+                + criteriosInseridos + criteriosAtualizados + criteriosRemovidos == 0 && !niveisRegerados;
+    }
+}
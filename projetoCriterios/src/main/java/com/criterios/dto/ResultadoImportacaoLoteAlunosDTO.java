@@ -0,0 +1,30 @@
+package com.criterios.dto;
+
+import lombok.Data;
+
+import java.util.List;
+
+/**
+ * Relatório da importação de várias listas de chamada num único .zip: uma entrada por arquivo,
+ * com a turma associada, quantos alunos foram lidos/incluídos ou o motivo da falha.
+ */
+@Data
+public class ResultadoImportacaoLoteAlunosDTO {
+    private int arquivos;
+    private int turmasImportadas; // turmas distintas com ao menos um arquivo importado
+    private int falhas;           // arquivos com erro
+    private int totalImportados;
+    private long tempoMs;
+    private List<Entrada> entradas;
+
+    @Data
+    public static class Entrada {
+        private String arquivo;
+        private Long turmaId;
+        private String turmaNome;
+        private int alunosLidos;
+        private int importados;
+        private int ignorados;
+        private String erro; // null quando a turma foi importada
+    }
+}
@@ -0,0 +1,18 @@
+package com.criterios.dto;
+
+import lombok.Data;
+
+/**
+ * Resumo de uma importação de arquivo de snapshot: o novo id e quantas linhas foram criadas por tabela.
+ */
+@Data
+public class ResultadoImportacaoSnapshotDTO {
+    private Long snapshotId;
+    private int capacidades;
+    private int criterios;
+    private int niveis;
+    private int turmas;
+    private int alunos;
+    private int avaliacoes;
+    private long tempoMs;
+}
@@ -0,0 +1,32 @@
+package com.criterios.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Distribuição de níveis dos alunos do snapshot na régua atual e em cada régua candidata.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ResultadoSimulacaoDTO {
+    private Long snapshotDisciplinaId;
+    private int totalAlunos;
+    private long tempoMs;
+    private Distribuicao atual;
+    private List<Distribuicao> candidatas;
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Distribuicao {
+        private String nome;
+        private Map<Integer, Integer> histograma; // nível -> quantidade de alunos
+        private double mediaNivel;
+        private int alunosComMudanca; // alunos cujo nível difere do obtido na régua atual
+    }
+}
@@ -0,0 +1,34 @@
+package com.criterios.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * Réguas candidatas para a simulação "e se" de níveis (nenhuma avaliação é gravada).
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class SimulacaoNiveisDTO {
+    private List<ReguaCandidata> candidatas;
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class ReguaCandidata {
+        private String nome;
+        private List<Regra> niveis;
+    }
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Regra {
+        private Integer nivel;
+        private Integer minCriticos;
+        private Integer minDesejaveis;
+    }
+}
@@ -0,0 +1,39 @@
+package com.criterios.entities;
+
+import jakarta.persistence.*;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.AllArgsConstructor;
+import java.time.LocalDateTime;
+
+/**
+ * Registro de alteração de avaliações (change log). O id auto-incremento é o cursor
+ * usado por GET /api/avaliacoes/changes para devolver só o que mudou desde a última consulta.
+ * criterioId nulo = todas as avaliações do aluno no snapshot mudaram (fechamento/reabertura).
+ */
+@Entity
+@Table(name = "tb_avaliacao_alteracao", indexes = {
+    @Index(name = "idx_alteracao_snapshot_cursor", columnList = "snapshot_disciplina_id, id")
+})
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class AvaliacaoAlteracao {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    // Colunas soltas (sem FK): o log não deve impedir a exclusão de alunos ou snapshots
+    @Column(name = "aluno_id", nullable = false)
+    private Long alunoId;
+
+    @Column(name = "criterio_id")
+    private Long criterioId;
+
+    @Column(name = "snapshot_disciplina_id", nullable = false)
+    private Long snapshotDisciplinaId;
+
+    @Column(nullable = false)
+    private LocalDateTime dataAlteracao;
+}
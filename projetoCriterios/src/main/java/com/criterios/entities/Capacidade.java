@@ -34,6 +34,11 @@ public class Capacidade {
     @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "snapshot_disciplina_id", nullable = true) 
     private SnapshotDisciplina snapshotDisciplina; 
+
+    // [SNAPSHOT] Id da capacidade do template da qual esta cópia foi gerada (liga os critérios na cópia em massa)
+    @JsonIgnore
+    @Column(name = "origem_id")
+    private Long origemId;
     
     @OneToMany(mappedBy = "capacidade", cascade = CascadeType.ALL, orphanRemoval = true)
     private List<Criterio> criterios;
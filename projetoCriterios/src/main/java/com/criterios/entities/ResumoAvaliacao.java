@@ -0,0 +1,59 @@
+package com.criterios.entities;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import jakarta.persistence.*;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.AllArgsConstructor;
+import org.hibernate.annotations.OnDelete;
+import org.hibernate.annotations.OnDeleteAction;
+import java.time.LocalDateTime;
+
+/**
+ * Contadores materializados das avaliações de um aluno em um Snapshot.
+ * Mantido na mesma transação de cada escrita em tb_avaliacao, para que boletim,
+ * dashboard e relatório leiam uma linha por aluno em vez de recontar as avaliações.
+ */
+@Entity
+@Table(name = "tb_resumo_avaliacao", uniqueConstraints = {
+    @UniqueConstraint(columnNames = {"aluno_id", "snapshot_disciplina_id"})
+})
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ResumoAvaliacao {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @JsonIgnore
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "aluno_id", nullable = false)
+    @OnDelete(action = OnDeleteAction.CASCADE)
+    private Aluno aluno;
+
+    @JsonIgnore
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "snapshot_disciplina_id", nullable = false)
+    private SnapshotDisciplina snapshotDisciplina;
+
+    // Atendidos = atendeu true; Respondidos = atendeu não nulo
+    @Column(nullable = false)
+    private Integer criticosAtendidos = 0;
+
+    @Column(nullable = false)
+    private Integer criticosRespondidos = 0;
+
+    @Column(nullable = false)
+    private Integer desejaveisAtendidos = 0;
+
+    @Column(nullable = false)
+    private Integer desejaveisRespondidos = 0;
+
+    // Total de linhas em tb_avaliacao (inclui as marcadas como "sem resposta")
+    @Column(nullable = false)
+    private Integer totalRegistros = 0;
+
+    private LocalDateTime dataAtualizacao;
+}
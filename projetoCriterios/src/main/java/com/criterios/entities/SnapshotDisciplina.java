@@ -10,7 +10,9 @@ import lombok.AllArgsConstructor;
  * usada para avaliações históricas em uma turma.
  */
 @Entity
-@Table(name = "tb_snapshot_disciplina")
+@Table(name = "tb_snapshot_disciplina", indexes = {
+    @Index(name = "idx_snapshot_hash_estrutura", columnList = "hash_estrutura")
+})
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
@@ -25,6 +27,11 @@ public class SnapshotDisciplina {
     private String siglaDisciplina;
     
     private java.time.LocalDateTime dataCriacao;
+
+    // [NOVO] SHA-256 da estrutura copiada (disciplina, capacidades, critérios e níveis).
+    // Turmas cujo template gera o mesmo hash reaproveitam este snapshot em vez de copiar de novo.
+    @Column(name = "hash_estrutura", length = 64)
+    private String hashEstrutura;
     
     @PrePersist
     public void prePersist() {
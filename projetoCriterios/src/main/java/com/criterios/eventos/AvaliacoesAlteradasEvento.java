@@ -0,0 +1,19 @@
+package com.criterios.eventos;
+
+import com.criterios.dto.AvaliacaoDTO;
+
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Publicado dentro da transação de cada escrita em tb_avaliacao; tratado só depois do commit
+ * (ver {@link NotificacaoTurmaListener}).
+ *
+ * @param celulas  células gravadas (vazio para fechamento/reabertura)
+ * @param alunoIds alunos afetados
+ */
+public record AvaliacoesAlteradasEvento(Tipo tipo, Long snapshotDisciplinaId,
+                                        List<AvaliacaoDTO> celulas, Collection<Long> alunoIds) {
+
+    public enum Tipo { CELULAS, FECHAMENTO, REABERTURA }
+}
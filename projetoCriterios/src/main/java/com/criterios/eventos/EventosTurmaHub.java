@@ -0,0 +1,242 @@
+package com.criterios.eventos;
+
+import com.criterios.dto.EventoTurmaDTO;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.MediaType;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Distribui eventos de avaliação para os clientes SSE conectados em cada turma.
+ *
+ * Nenhuma thread fica presa por assinante: o servlet devolve o SseEmitter (requisição assíncrona) e
+ * cada assinante tem uma fila limitada, drenada sob demanda por um pool pequeno e compartilhado.
+ * Se a fila de um cliente enche (cliente lento ou conexão travada), ele é desconectado;
+ * o EventSource do navegador reconecta e recupera o estado pelo feed /api/avaliacoes/changes.
+ *
+ * Um envio para um socket travado bloqueia a thread até o timeout de escrita do Tomcat, e interromper a thread
+ * não o libera. Um envio que passa de "envio-timeout-ms" desconecta o cliente, e o pool ganha uma thread
+ * enquanto aquela continuar presa (até "max-envios-presos"), para que as demais turmas não fiquem sem vazão.
+ * complete() disputa o mesmo lock de escrita do send(): só quem detém a drenagem encerra o emitter, nunca
+ * a thread que publica o evento.
+ */
+@Slf4j
+@Component
+public class EventosTurmaHub {
+
+    // Marcador de heartbeat (comentário SSE), mantém proxies e detecta conexões mortas
+    private static final Object HEARTBEAT = new Object();
+
+    private final Map<Long, Set<Assinante>> assinantesPorTurma = new ConcurrentHashMap<>();
+    private final AtomicInteger totalAssinantes = new AtomicInteger();
+    private final LongAdder descartados = new LongAdder();
+
+    private final AtomicInteger enviosPresos = new AtomicInteger();
+
+    private final int capacidadeFila;
+    private final long timeoutMs;
+    private final long envioTimeoutNs;
+    private final int threads;
+    private final int maxEnviosPresos;
+    private final ThreadPoolExecutor executor;
+
+    public EventosTurmaHub(@Value("${criterios.eventos.capacidade-fila:256}") int capacidadeFila,
+                           @Value("${criterios.eventos.timeout-ms:1800000}") long timeoutMs,
+                           @Value("${criterios.eventos.threads:4}") int threads,
+                           @Value("${criterios.eventos.envio-timeout-ms:5000}") long envioTimeoutMs,
+                           @Value("${criterios.eventos.max-envios-presos:16}") int maxEnviosPresos) {
+        this.capacidadeFila = capacidadeFila;
+        this.timeoutMs = timeoutMs;
+        this.envioTimeoutNs = TimeUnit.MILLISECONDS.toNanos(envioTimeoutMs);
+        this.threads = threads;
+        this.maxEnviosPresos = maxEnviosPresos;
+        AtomicInteger contador = new AtomicInteger();
+        // Fila sem limite: o pool só passa de "threads" quando o núcleo é aumentado para compensar envios presos
+        this.executor = new ThreadPoolExecutor(threads, threads + maxEnviosPresos, 60, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<>(), r -> {
+            Thread t = new Thread(r, "eventos-turma-" + contador.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
+    private final class Assinante {
+        final Long turmaId;
+        final SseEmitter emitter = new SseEmitter(timeoutMs);
+        final BlockingQueue<Object> fila = new ArrayBlockingQueue<>(capacidadeFila);
+        final AtomicBoolean drenando = new AtomicBoolean(false);
+        final AtomicBoolean preso = new AtomicBoolean(false);
+        volatile boolean encerrado;
+        // System.nanoTime() do início do envio em curso; 0 = nenhum envio
+        volatile long envioDesde;
+
+        Assinante(Long turmaId) {
+            this.turmaId = turmaId;
+        }
+    }
+
+    public SseEmitter assinar(Long turmaId) {
+        Assinante assinante = new Assinante(turmaId);
+        assinante.emitter.onCompletion(() -> remover(assinante));
+        assinante.emitter.onTimeout(() -> remover(assinante));
+        assinante.emitter.onError(e -> remover(assinante));
+
+        // compute/computeIfPresent: inclusão e remoção do conjunto da turma são atômicas por chave
+        assinantesPorTurma.compute(turmaId, (k, assinantes) -> {
+            Set<Assinante> conjunto = assinantes != null ? assinantes : ConcurrentHashMap.newKeySet();
+            conjunto.add(assinante);
+            return conjunto;
+        });
+        totalAssinantes.incrementAndGet();
+
+        // Primeiro envio imediato: confirma a conexão para o navegador/proxy
+        enfileirar(assinante, HEARTBEAT);
+        return assinante.emitter;
+    }
+
+    public boolean temAssinantes() {
+        return totalAssinantes.get() > 0;
+    }
+
+    public boolean temAssinantes(Long turmaId) {
+        Set<Assinante> assinantes = assinantesPorTurma.get(turmaId);
+        return assinantes != null && !assinantes.isEmpty();
+    }
+
+    public void publicar(Long turmaId, EventoTurmaDTO evento) {
+        Set<Assinante> assinantes = assinantesPorTurma.get(turmaId);
+        if (assinantes == null) return;
+        for (Assinante assinante : assinantes) {
+            enfileirar(assinante, evento);
+        }
+    }
+
+    /** Executa trabalho de preparação de eventos no pool do hub (fora da thread da requisição). */
+    public void executar(Runnable tarefa) {
+        executor.execute(tarefa);
+    }
+
+    public int getTotalAssinantes() {
+        return totalAssinantes.get();
+    }
+
+    public long getDescartados() {
+        return descartados.sum();
+    }
+
+    public int getEnviosPresos() {
+        return enviosPresos.get();
+    }
+
+    @Scheduled(fixedRateString = "${criterios.eventos.heartbeat-ms:25000}")
+    public void heartbeat() {
+        assinantesPorTurma.values().forEach(assinantes -> assinantes.forEach(a -> enfileirar(a, HEARTBEAT)));
+    }
+
+    /** Desconecta clientes cujo envio passou do timeout e compensa a thread que ficou presa nele. */
+    @Scheduled(fixedDelayString = "${criterios.eventos.verificacao-envios-ms:1000}")
+    public void verificarEnvios() {
+        long agora = System.nanoTime();
+        assinantesPorTurma.values().forEach(assinantes -> assinantes.forEach(a -> {
+            long desde = a.envioDesde;
+            if (desde != 0 && agora - desde > envioTimeoutNs && a.preso.compareAndSet(false, true)) {
+                descartados.increment();
+                log.warn("Cliente SSE da turma {} descartado: envio parado há mais de {} ms",
+                        a.turmaId, TimeUnit.NANOSECONDS.toMillis(envioTimeoutNs));
+                // A drenagem presa encerra o emitter quando o envio voltar (erro ou timeout de escrita)
+                remover(a);
+                enviosPresos.incrementAndGet();
+                ajustarPool();
+            }
+        }));
+    }
+
+    @PreDestroy
+    void encerrar() {
+        assinantesPorTurma.values().forEach(assinantes -> assinantes.forEach(a -> a.emitter.complete()));
+        executor.shutdownNow();
+    }
+
+    private void enfileirar(Assinante assinante, Object evento) {
+        if (assinante.encerrado) return;
+        if (!assinante.fila.offer(evento)) {
+            descartados.increment();
+            log.warn("Cliente SSE da turma {} descartado: fila cheia ({} eventos)", assinante.turmaId, capacidadeFila);
+            remover(assinante);
+            // Sem drenagem em curso ninguém está escrevendo: encerra aqui. Senão a drenagem encerra ao terminar.
+            if (assinante.drenando.compareAndSet(false, true)) assinante.emitter.complete();
+            return;
+        }
+        agendarDrenagem(assinante);
+    }
+
+    private void agendarDrenagem(Assinante assinante) {
+        if (assinante.drenando.compareAndSet(false, true)) {
+            executor.execute(() -> drenar(assinante));
+        }
+    }
+
+    private void drenar(Assinante assinante) {
+        try {
+            Object evento;
+            while (!assinante.encerrado && (evento = assinante.fila.poll()) != null) {
+                assinante.envioDesde = System.nanoTime();
+                try {
+                    if (evento == HEARTBEAT) {
+                        assinante.emitter.send(SseEmitter.event().comment("ping"));
+                    } else {
+                        EventoTurmaDTO dto = (EventoTurmaDTO) evento;
+                        assinante.emitter.send(SseEmitter.event().name(dto.getTipo()).data(dto, MediaType.APPLICATION_JSON));
+                    }
+                } finally {
+                    assinante.envioDesde = 0;
+                }
+            }
+            // Desconectado (fila cheia ou envio lento) enquanto esta drenagem detinha o emitter
+            if (assinante.encerrado) assinante.emitter.complete();
+        } catch (Exception e) {
+            // Conexão fechada pelo cliente
+            remover(assinante);
+            assinante.emitter.completeWithError(e);
+        } finally {
+            if (assinante.preso.get()) {
+                enviosPresos.decrementAndGet();
+                ajustarPool();
+            }
+            assinante.drenando.set(false);
+            // Evento que chegou entre o último poll e a liberação da flag
+            if (!assinante.encerrado && !assinante.fila.isEmpty()) agendarDrenagem(assinante);
+            // Desconexão que chegou entre o fim do laço e a liberação da flag
+            if (assinante.encerrado && assinante.drenando.compareAndSet(false, true)) assinante.emitter.complete();
+        }
+    }
+
+    private synchronized void ajustarPool() {
+        executor.setCorePoolSize(threads + Math.min(enviosPresos.get(), maxEnviosPresos));
+    }
+
+    private void remover(Assinante assinante) {
+        if (assinante.encerrado) return;
+        assinante.encerrado = true;
+        assinante.fila.clear();
+        assinantesPorTurma.computeIfPresent(assinante.turmaId, (k, assinantes) -> {
+            if (assinantes.remove(assinante)) totalAssinantes.decrementAndGet();
+            return assinantes.isEmpty() ? null : assinantes;
+        });
+    }
+}
@@ -0,0 +1,79 @@
+package com.criterios.eventos;
+
+import com.criterios.dto.AvaliacaoDTO;
+import com.criterios.dto.EventoTurmaDTO;
+import com.criterios.dto.ResultadoBoletimDTO;
+import com.criterios.repository.AlunoRepository;
+import com.criterios.services.AvaliacaoServices;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Converte as alterações de avaliação (já commitadas) em eventos SSE para as turmas com clientes conectados.
+ * O trabalho roda no pool do hub, então a requisição que gravou não espera pelas consultas de notificação.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class NotificacaoTurmaListener {
+
+    private final EventosTurmaHub hub;
+    private final AlunoRepository alunoRepository;
+    private final AvaliacaoServices avaliacaoServices;
+
+    @TransactionalEventListener
+    public void aoAlterarAvaliacoes(AvaliacoesAlteradasEvento evento) {
+        if (!hub.temAssinantes()) return;
+        hub.executar(() -> {
+            try {
+                notificar(evento);
+            } catch (Exception e) {
+                log.error("Falha ao notificar alterações de avaliação: {}", e.getMessage());
+            }
+        });
+    }
+
+    private void notificar(AvaliacoesAlteradasEvento evento) {
+        // aluno -> turma, só das turmas que têm alguém ouvindo
+        Map<Long, Long> turmaPorAluno = new HashMap<>();
+        for (Object[] linha : alunoRepository.findTurmaIdsByAlunoIds(evento.alunoIds())) {
+            Long turmaId = (Long) linha[1];
+            if (turmaId != null && hub.temAssinantes(turmaId)) turmaPorAluno.put((Long) linha[0], turmaId);
+        }
+        if (turmaPorAluno.isEmpty()) return;
+
+        Long snapshotId = evento.snapshotDisciplinaId();
+        for (AvaliacaoDTO dto : evento.celulas()) {
+            Long turmaId = turmaPorAluno.get(dto.getAlunoId());
+            if (turmaId == null) continue;
+            hub.publicar(turmaId, EventoTurmaDTO.builder()
+                    .tipo("AVALIACAO")
+                    .snapshotDisciplinaId(snapshotId)
+                    .alunoId(dto.getAlunoId())
+                    .criterioId(dto.getCriterioId())
+                    .atendeu(dto.getAtendeu())
+                    .observacao(dto.getObservacao() != null ? dto.getObservacao() : "")
+                    .finalizada(false)
+                    .build());
+        }
+
+        String tipo = switch (evento.tipo()) {
+            case CELULAS -> "NIVEL";
+            case FECHAMENTO -> "FECHAMENTO";
+            case REABERTURA -> "REABERTURA";
+        };
+        Map<Long, ResultadoBoletimDTO> boletins = avaliacaoServices.gerarBoletimAlunos(turmaPorAluno.keySet(), snapshotId);
+        boletins.forEach((alunoId, boletim) -> hub.publicar(turmaPorAluno.get(alunoId), EventoTurmaDTO.builder()
+                .tipo(tipo)
+                .snapshotDisciplinaId(snapshotId)
+                .alunoId(alunoId)
+                .finalizada(evento.tipo() == AvaliacoesAlteradasEvento.Tipo.FECHAMENTO)
+                .boletim(boletim)
+                .build()));
+    }
+}
@@ -0,0 +1,8 @@
+package com.criterios.eventos;
+
+/**
+ * Publicado dentro da transação de cada escrita na estrutura TEMPLATE de uma disciplina (capacidades e critérios);
+ * tratado só depois do commit, para descartar o que foi calculado sobre a estrutura antiga.
+ */
+public record TemplateAlteradoEvento(Long disciplinaTemplateId) {
+}
@@ -0,0 +1,29 @@
+package com.criterios.repository;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+
+/**
+ * Inclusão de alunos em lote (importação da lista de chamada): um único lote JDBC em vez de um save por aluno.
+ */
+@Repository
+@RequiredArgsConstructor
+public class AlunoJdbcRepository {
+
+    private static final int TAMANHO_LOTE = 200;
+
+    private static final String SQL_INSERIR_ALUNO = "INSERT INTO tb_aluno (nome, turma_id) VALUES (?, ?)";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public void inserirAlunos(List<String> nomes, Long turmaId) {
+        if (nomes.isEmpty()) return;
+        jdbcTemplate.batchUpdate(SQL_INSERIR_ALUNO, nomes, TAMANHO_LOTE, (ps, nome) -> {
+            ps.setString(1, nome);
+            ps.setLong(2, turmaId);
+        });
+    }
+}
@@ -1,5 +1,6 @@
 package com.criterios.repository;
 
+import java.util.Collection;
 import java.util.List;
 
 import org.springframework.data.jpa.repository.JpaRepository;
@@ -19,4 +20,16 @@ public interface AlunoRepository extends JpaRepository<Aluno, Long> {
     @QueryHints(@QueryHint(name = "org.hibernate.cacheable", value = "false"))
     @Query("SELECT a FROM Aluno a WHERE a.turma.id = :turmaId ORDER BY a.nome ASC")
     List<Aluno> findByTurmaId(@Param("turmaId") Long turmaId);
-}
\ No newline at end of file
+
+    // [LOTE] Retorna pares [alunoId, turmaId] para validar vários alunos numa única consulta
+    @Query("SELECT a.id, a.turma.id FROM Aluno a WHERE a.id IN :ids")
+    List<Object[]> findTurmaIdsByAlunoIds(@Param("ids") Collection<Long> ids);
+
+    // [SIMULAÇÃO] Alunos das turmas que avaliam com o snapshot informado
+    @Query("SELECT a.id FROM Aluno a WHERE a.turma.snapshotDisciplina.id = :snapshotId")
+    List<Long> findIdsBySnapshotDisciplinaId(@Param("snapshotId") Long snapshotId);
+
+    // [IMPORTAÇÃO] Só os nomes, para deduplicar a lista de chamada sem carregar as entidades
+    @Query("SELECT a.nome FROM Aluno a WHERE a.turma.id = :turmaId")
+    List<String> findNomesByTurmaId(@Param("turmaId") Long turmaId);
+}
@@ -0,0 +1,60 @@
+package com.criterios.repository;
+
+import com.criterios.dto.AvaliacaoRespostaDTO;
+import com.criterios.entities.AvaliacaoAlteracao;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+
+@Repository
+public interface AvaliacaoAlteracaoRepository extends JpaRepository<AvaliacaoAlteracao, Long> {
+
+    // Uma linha por aluno (criterio_id nulo): usado pelo fechamento/reabertura, que alteram todas as células do aluno
+    @Modifying
+    @Query(value = "INSERT INTO tb_avaliacao_alteracao (aluno_id, criterio_id, snapshot_disciplina_id, data_alteracao) " +
+            "SELECT al.id, NULL, :snapshotId, :agora FROM tb_aluno al WHERE al.id IN (:alunoIds)",
+            nativeQuery = true)
+    int registrarPorAlunos(@Param("alunoIds") Collection<Long> alunoIds,
+                           @Param("snapshotId") Long snapshotId,
+                           @Param("agora") LocalDateTime agora);
+
+    // Maior id já "estável" (gravado há mais tempo que a margem) depois do cursor informado
+    @Query("SELECT MAX(l.id) FROM AvaliacaoAlteracao l WHERE l.id > :cursor AND l.dataAlteracao < :limite")
+    Long findCursorEstavel(@Param("cursor") Long cursor, @Param("limite") LocalDateTime limite);
+
+    @Query("SELECT MIN(l.id) FROM AvaliacaoAlteracao l")
+    Long findPrimeiroId();
+
+    @Query("SELECT MAX(l.id) FROM AvaliacaoAlteracao l")
+    Long findUltimoId();
+
+    // [LIMPEZA] Um lote de linhas anteriores à retenção, sempre abaixo do id informado (a última linha fica)
+    @Modifying
+    @Query(value = "DELETE FROM tb_avaliacao_alteracao WHERE id < :ultimoId AND data_alteracao < :limite LIMIT :lote",
+            nativeQuery = true)
+    int excluirAntesDe(@Param("ultimoId") Long ultimoId, @Param("limite") LocalDateTime limite, @Param("lote") int lote);
+
+    /**
+     * Estado atual das avaliações da turma no snapshot que tiveram alguma alteração depois do cursor.
+     */
+    @Query("SELECT new com.criterios.dto.AvaliacaoRespostaDTO(a.id, a.aluno.id, a.criterio.id, a.atendeu, a.observacao, " +
+            "a.dataAvaliacao, a.finalizada, a.nivelFinal) " +
+            "FROM Avaliacao a " +
+            "WHERE a.aluno.turma.id = :turmaId AND a.criterio.capacidade.snapshotDisciplina.id = :snapshotId " +
+            "AND EXISTS (SELECT 1 FROM AvaliacaoAlteracao l WHERE l.snapshotDisciplinaId = :snapshotId AND l.id > :cursor " +
+            "AND l.alunoId = a.aluno.id AND (l.criterioId = a.criterio.id OR l.criterioId IS NULL))")
+    List<AvaliacaoRespostaDTO> findAlteradasDesde(@Param("turmaId") Long turmaId,
+                                                  @Param("snapshotId") Long snapshotId,
+                                                  @Param("cursor") Long cursor);
+
+    // [COMPACTAÇÃO] Log de alterações de snapshots órfãos
+    @Modifying
+    @Query(value = "DELETE FROM tb_avaliacao_alteracao WHERE snapshot_disciplina_id IN (:snapshotIds)", nativeQuery = true)
+    int excluirPorSnapshots(@Param("snapshotIds") Collection<Long> snapshotIds);
+}
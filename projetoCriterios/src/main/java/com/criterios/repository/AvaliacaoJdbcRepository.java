@@ -0,0 +1,279 @@
+package com.criterios.repository;
+
+import com.criterios.dto.AvaliacaoDTO;
+import com.criterios.dto.AvaliacaoRespostaDTO;
+import com.criterios.entities.TipoCriterio;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.support.GeneratedKeyHolder;
+import org.springframework.jdbc.support.KeyHolder;
+import org.springframework.stereotype.Repository;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Operações de escrita em tb_avaliacao feitas direto via JDBC.
+ * O JPA (IDENTITY) não agrupa INSERTs em lote, por isso os caminhos de alto volume passam por aqui.
+ */
+@Repository
+@RequiredArgsConstructor
+public class AvaliacaoJdbcRepository {
+
+    private static final int TAMANHO_LOTE = 200;
+
+    // Gravação em duas vias pela chave única (aluno_id, criterio_id), lendo o valor anterior de cada célula para que
+    // os contadores (tb_resumo_avaliacao) recebam só a diferença. Células novas: INSERT IGNORE (se outra transação
+    // inseriu a mesma célula antes, a linha é ignorada e tratada como existente). Células existentes: SELECT ... FOR
+    // UPDATE só de linhas que existem (locks de registro, sem gap/next-key na faixa do aluno) e UPDATE pela chave.
+    // Toda alteração de nota reabre a avaliação.
+    private static final String SQL_INSERIR_IGNORANDO =
+            "INSERT IGNORE INTO tb_avaliacao (aluno_id, criterio_id, atendeu, observacao, data_avaliacao, finalizada, nivel_final) " +
+            "VALUES (?, ?, ?, ?, ?, false, NULL)";
+    private static final String SQL_INSERIR_IGNORANDO_VALORES = ", (?, ?, ?, ?, ?, false, NULL)";
+
+    private static final String SQL_ATUALIZAR =
+            "UPDATE tb_avaliacao SET atendeu = ?, observacao = ?, data_avaliacao = ?, finalizada = false, nivel_final = NULL " +
+            "WHERE aluno_id = ? AND criterio_id = ?";
+
+    private static final String SQL_EXISTENTES =
+            "SELECT aluno_id, criterio_id FROM tb_avaliacao WHERE (aluno_id, criterio_id) IN (";
+    private static final String SQL_TRAVAR_EXISTENTES =
+            "SELECT aluno_id, criterio_id, atendeu FROM tb_avaliacao WHERE (aluno_id, criterio_id) IN (";
+
+    // Upsert de uma célula só. "id = LAST_INSERT_ID(id)" faz o driver devolver o id da linha existente como chave
+    // gerada quando o registro já existia. Linhas afetadas: 1 = inserida, 2 = atualizada (data_avaliacao sempre muda).
+    private static final String SQL_UPSERT_UNITARIO =
+            "INSERT INTO tb_avaliacao (aluno_id, criterio_id, atendeu, observacao, data_avaliacao, finalizada, nivel_final) " +
+            "VALUES (?, ?, ?, ?, ?, false, NULL) " +
+            "ON DUPLICATE KEY UPDATE id = LAST_INSERT_ID(id), atendeu = VALUES(atendeu), observacao = VALUES(observacao), " +
+            "data_avaliacao = VALUES(data_avaliacao), finalizada = false, nivel_final = NULL";
+
+    // Valor atual de uma linha que existe (lock de registro pelo PK, sem gap lock)
+    private static final String SQL_TRAVAR_CELULA =
+            "SELECT atendeu FROM tb_avaliacao WHERE id = ? FOR UPDATE";
+
+    private static final String SQL_ID_POR_CELULA =
+            "SELECT id FROM tb_avaliacao WHERE aluno_id = ? AND criterio_id = ?";
+
+    // Existência do aluno, sua turma, existência do critério, o snapshot e o tipo dele e o id da célula, se já existir,
+    // numa consulta só (todas por PK ou chave única)
+    private static final String SQL_VALIDAR_CELULA =
+            "SELECT (SELECT COUNT(*) FROM tb_aluno WHERE id = ?), " +
+            "(SELECT turma_id FROM tb_aluno WHERE id = ?), " +
+            "(SELECT COUNT(*) FROM tb_criterio WHERE id = ?), " +
+            "(SELECT cap.snapshot_disciplina_id FROM tb_criterio c " +
+            " JOIN tb_capacidade cap ON cap.id = c.capacidade_id WHERE c.id = ?), " +
+            "(SELECT tipo FROM tb_criterio WHERE id = ?), " +
+            "(SELECT id FROM tb_avaliacao WHERE aluno_id = ? AND criterio_id = ?)";
+
+    private static final String SQL_REGISTRAR_ALTERACAO =
+            "INSERT INTO tb_avaliacao_alteracao (aluno_id, criterio_id, snapshot_disciplina_id, data_alteracao) VALUES (?, ?, ?, ?)";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    /**
+     * Dados necessários para validar o registro de uma célula (aluno x critério).
+     */
+    public record ValidacaoCelula(boolean alunoExiste, Long turmaId, boolean criterioExiste, Long snapshotId,
+                                  TipoCriterio tipo, Long avaliacaoId) {}
+
+    public record Celula(long alunoId, long criterioId) {}
+
+    /** Valor da célula antes da gravação; {@code existia = false} quando a linha foi criada agora. */
+    public record ValorAnterior(boolean existia, Boolean atendeu) {
+        public static final ValorAnterior AUSENTE = new ValorAnterior(false, null);
+    }
+
+    /** {@code anterior} nulo: outra transação criou ou removeu a célula ao mesmo tempo e o valor anterior é desconhecido. */
+    public record GravacaoCelula(AvaliacaoRespostaDTO resposta, ValorAnterior anterior) {}
+
+    /**
+     * Resultado de uma gravação em lote: o valor anterior de cada célula e as células cujo valor anterior
+     * não pôde ser determinado (inserção concorrente da mesma célula por outra transação, caso raro).
+     */
+    public record GravacaoLote(Map<Celula, ValorAnterior> anteriores, Set<Celula> semAnterior) {}
+
+    public ValidacaoCelula validarCelula(Long alunoId, Long criterioId) {
+        return jdbcTemplate.queryForObject(SQL_VALIDAR_CELULA, (rs, i) -> {
+            String tipo = rs.getString(5);
+            return new ValidacaoCelula(
+                    rs.getLong(1) > 0,
+                    rs.getObject(2, Long.class),
+                    rs.getLong(3) > 0,
+                    rs.getObject(4, Long.class),
+                    tipo != null ? TipoCriterio.valueOf(tipo) : null,
+                    rs.getObject(6, Long.class));
+        }, alunoId, alunoId, criterioId, criterioId, criterioId, alunoId, criterioId);
+    }
+
+    /**
+     * Insere ou atualiza uma única avaliação (um upsert) e devolve a linha resultante com o valor anterior da célula.
+     * {@code avaliacaoId} é o id lido em validarCelula: se a célula já existia, o valor anterior vem de uma leitura
+     * FOR UPDATE pelo PK; se não, das linhas afetadas pelo upsert. Nunca falha por chave duplicada quando dois
+     * professores gravam a mesma célula ao mesmo tempo.
+     */
+    public GravacaoCelula gravar(AvaliacaoDTO dto, Long avaliacaoId) {
+        LocalDateTime agora = LocalDateTime.now();
+        String observacao = dto.getObservacao() != null ? dto.getObservacao() : "";
+
+        ValorAnterior anterior = null;
+        if (avaliacaoId != null) {
+            List<Boolean> atual = jdbcTemplate.query(SQL_TRAVAR_CELULA, (rs, i) -> rs.getObject(1, Boolean.class), avaliacaoId);
+            if (!atual.isEmpty()) anterior = new ValorAnterior(true, atual.get(0));
+        }
+
+        KeyHolder keyHolder = new GeneratedKeyHolder();
+        int afetadas = jdbcTemplate.update(con -> {
+            PreparedStatement ps = con.prepareStatement(SQL_UPSERT_UNITARIO, Statement.RETURN_GENERATED_KEYS);
+            preencherInsercao(ps, 0, dto, observacao, Timestamp.valueOf(agora));
+            return ps;
+        }, keyHolder);
+        // Célula ausente na validação: 1 = inserida agora; senão outra transação a criou antes (valor desconhecido)
+        if (avaliacaoId == null && afetadas == 1) anterior = ValorAnterior.AUSENTE;
+
+        Number chave = keyHolder.getKey();
+        // Drivers que não propagam LAST_INSERT_ID(expr) não devolvem chave no ramo UPDATE
+        Long id = chave != null ? chave.longValue()
+                : jdbcTemplate.queryForObject(SQL_ID_POR_CELULA, Long.class, dto.getAlunoId(), dto.getCriterioId());
+        return new GravacaoCelula(resposta(id, dto, observacao, agora), anterior);
+    }
+
+    /**
+     * Grava (insere ou atualiza) as avaliações em lotes JDBC e devolve o valor anterior de cada célula.
+     * Espera itens já validados contra o snapshot e sem células repetidas. As células são tratadas em ordem
+     * (aluno, critério), a mesma em todas as transações, para que os locks de registro não formem ciclos.
+     */
+    public GravacaoLote gravarEmLote(Collection<AvaliacaoDTO> avaliacoes) {
+        if (avaliacoes.isEmpty()) return new GravacaoLote(Map.of(), Set.of());
+
+        List<AvaliacaoDTO> ordenadas = new ArrayList<>(avaliacoes);
+        ordenadas.sort(ORDEM_CELULA);
+        Timestamp agora = Timestamp.valueOf(LocalDateTime.now());
+
+        // Leitura simples (sem lock) só para separar células novas das existentes
+        Set<Celula> existentes = new HashSet<>();
+        for (List<AvaliacaoDTO> bloco : blocos(ordenadas)) {
+            jdbcTemplate.query(SQL_EXISTENTES + marcadores(bloco.size()) + ")",
+                    rs -> { existentes.add(new Celula(rs.getLong(1), rs.getLong(2))); },
+                    parametrosChave(bloco));
+        }
+
+        Map<Celula, ValorAnterior> anteriores = new HashMap<>();
+        Set<Celula> semAnterior = new HashSet<>();
+        List<AvaliacaoDTO> atualizar = new ArrayList<>();
+        List<AvaliacaoDTO> novas = new ArrayList<>();
+        for (AvaliacaoDTO dto : ordenadas) {
+            if (existentes.contains(celula(dto))) atualizar.add(dto);
+            else novas.add(dto);
+        }
+
+        // Um INSERT IGNORE de várias linhas por bloco: o total de linhas inseridas diz se houve concorrência
+        for (List<AvaliacaoDTO> bloco : blocos(novas)) {
+            int inseridas = jdbcTemplate.update(con -> {
+                PreparedStatement ps = con.prepareStatement(SQL_INSERIR_IGNORANDO + SQL_INSERIR_IGNORANDO_VALORES.repeat(bloco.size() - 1));
+                for (int i = 0; i < bloco.size(); i++) {
+                    AvaliacaoDTO dto = bloco.get(i);
+                    preencherInsercao(ps, i * 5, dto, dto.getObservacao() != null ? dto.getObservacao() : "", agora);
+                }
+                return ps;
+            });
+            for (AvaliacaoDTO dto : bloco) {
+                if (inseridas == bloco.size()) anteriores.put(celula(dto), ValorAnterior.AUSENTE);
+                else semAnterior.add(celula(dto));
+            }
+            // Bloco com células criadas por outra transação: quais foram não dá para saber; todas são regravadas
+            if (inseridas != bloco.size()) atualizar.addAll(bloco);
+        }
+        atualizar.sort(ORDEM_CELULA);
+
+        // Todas as linhas existem: o FOR UPDATE trava só os registros (nada de gap locks em células ausentes)
+        for (List<AvaliacaoDTO> bloco : blocos(atualizar)) {
+            jdbcTemplate.query(SQL_TRAVAR_EXISTENTES + marcadores(bloco.size()) + ") FOR UPDATE", rs -> {
+                Celula celula = new Celula(rs.getLong(1), rs.getLong(2));
+                if (!semAnterior.contains(celula)) anteriores.put(celula, new ValorAnterior(true, rs.getObject(3, Boolean.class)));
+            }, parametrosChave(bloco));
+        }
+        jdbcTemplate.batchUpdate(SQL_ATUALIZAR, atualizar, TAMANHO_LOTE, (ps, dto) -> {
+            if (dto.getAtendeu() == null) ps.setNull(1, Types.BOOLEAN);
+            else ps.setBoolean(1, dto.getAtendeu());
+            ps.setString(2, dto.getObservacao() != null ? dto.getObservacao() : "");
+            ps.setTimestamp(3, agora);
+            ps.setLong(4, dto.getAlunoId());
+            ps.setLong(5, dto.getCriterioId());
+        });
+        return new GravacaoLote(anteriores, semAnterior);
+    }
+
+    /**
+     * Anexa ao change log (tb_avaliacao_alteracao) uma linha por célula gravada.
+     * Deve ser a última escrita da transação, para que o id (cursor) fique perto do commit.
+     */
+    public void registrarAlteracoes(Collection<AvaliacaoDTO> avaliacoes) {
+        if (avaliacoes.isEmpty()) return;
+
+        Timestamp agora = Timestamp.valueOf(LocalDateTime.now());
+        jdbcTemplate.batchUpdate(SQL_REGISTRAR_ALTERACAO, avaliacoes, TAMANHO_LOTE, (ps, dto) -> {
+            ps.setLong(1, dto.getAlunoId());
+            ps.setLong(2, dto.getCriterioId());
+            ps.setLong(3, dto.getEstruturaDisciplinaId());
+            ps.setTimestamp(4, agora);
+        });
+    }
+
+    public static Celula celula(AvaliacaoDTO dto) {
+        return new Celula(dto.getAlunoId(), dto.getCriterioId());
+    }
+
+    private static final Comparator<AvaliacaoDTO> ORDEM_CELULA =
+            Comparator.comparing(AvaliacaoDTO::getAlunoId).thenComparing(AvaliacaoDTO::getCriterioId);
+
+    private static void preencherInsercao(PreparedStatement ps, int deslocamento, AvaliacaoDTO dto,
+                                          String observacao, Timestamp agora) throws SQLException {
+        ps.setLong(deslocamento + 1, dto.getAlunoId());
+        ps.setLong(deslocamento + 2, dto.getCriterioId());
+        if (dto.getAtendeu() == null) ps.setNull(deslocamento + 3, Types.BOOLEAN);
+        else ps.setBoolean(deslocamento + 3, dto.getAtendeu());
+        ps.setString(deslocamento + 4, observacao);
+        ps.setTimestamp(deslocamento + 5, agora);
+    }
+
+    private static AvaliacaoRespostaDTO resposta(Long id, AvaliacaoDTO dto, String observacao, LocalDateTime agora) {
+        return new AvaliacaoRespostaDTO(id, dto.getAlunoId(), dto.getCriterioId(), dto.getAtendeu(), observacao, agora, false, null);
+    }
+
+    private static List<List<AvaliacaoDTO>> blocos(List<AvaliacaoDTO> itens) {
+        List<List<AvaliacaoDTO>> blocos = new ArrayList<>();
+        for (int i = 0; i < itens.size(); i += TAMANHO_LOTE) {
+            blocos.add(itens.subList(i, Math.min(i + TAMANHO_LOTE, itens.size())));
+        }
+        return blocos;
+    }
+
+    // "(?, ?), (?, ?), ..." para o IN por chave composta
+    private static String marcadores(int quantidade) {
+        return String.join(", ", Collections.nCopies(quantidade, "(?, ?)"));
+    }
+
+    private static Object[] parametrosChave(List<AvaliacaoDTO> bloco) {
+        Object[] parametros = new Object[bloco.size() * 2];
+        for (int i = 0; i < bloco.size(); i++) {
+            parametros[2 * i] = bloco.get(i).getAlunoId();
+            parametros[2 * i + 1] = bloco.get(i).getCriterioId();
+        }
+        return parametros;
+    }
+}
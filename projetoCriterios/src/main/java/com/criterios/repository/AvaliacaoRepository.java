@@ -3,9 +3,12 @@ package com.criterios.repository;
 
 import com.criterios.entities.Avaliacao;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -17,4 +20,32 @@ public interface AvaliacaoRepository extends JpaRepository<Avaliacao, Long> {
     // [CORREÇÃO CRÍTICA] Usa cap.snapshotDisciplina.id para buscar avaliações (o novo link imutável)
     @Query("SELECT a FROM Avaliacao a JOIN a.criterio c JOIN c.capacidade cap WHERE a.aluno.id = :alunoId AND cap.snapshotDisciplina.id = :estruturaDisciplinaId")
     List<Avaliacao> findByAlunoAndEstruturaDisciplina(@Param("alunoId") Long alunoId, @Param("estruturaDisciplinaId") Long estruturaDisciplinaId);
+
+    // [MATRIZ] Estado compacto de todas as células da turma no snapshot:
+    // [alunoId, criterioId, atendeu, finalizada, nivelFinal, temObservacao] (sem carregar entidades)
+    @Query("SELECT a.aluno.id, a.criterio.id, a.atendeu, a.finalizada, a.nivelFinal, " +
+           "CASE WHEN a.observacao IS NOT NULL AND LENGTH(a.observacao) > 0 THEN true ELSE false END " +
+           "FROM Avaliacao a WHERE a.aluno.turma.id = :turmaId AND a.criterio.capacidade.snapshotDisciplina.id = :snapshotId")
+    List<Object[]> findCelulasDaTurma(@Param("turmaId") Long turmaId, @Param("snapshotId") Long snapshotId);
+
+    // [SIMULAÇÃO] Pares [alunoId, criterioId] das células atendidas no snapshot
+    @Query("SELECT a.aluno.id, a.criterio.id FROM Avaliacao a " +
+           "WHERE a.criterio.capacidade.snapshotDisciplina.id = :snapshotId AND a.atendeu = true")
+    List<Object[]> findAtendidasDoSnapshot(@Param("snapshotId") Long snapshotId);
+
+    // [FECHAMENTO] Finaliza de uma vez todas as avaliações dos alunos informados que atingiram o mesmo nível
+    @Modifying
+    @Query("UPDATE Avaliacao a SET a.finalizada = true, a.nivelFinal = :nivel, a.dataAvaliacao = :agora " +
+           "WHERE a.aluno.id IN :alunoIds AND a.criterio.id IN " +
+           "(SELECT c.id FROM Criterio c WHERE c.capacidade.snapshotDisciplina.id = :snapshotId)")
+    int finalizarPorAlunos(@Param("alunoIds") Collection<Long> alunoIds, @Param("snapshotId") Long snapshotId,
+                           @Param("nivel") Integer nivel, @Param("agora") LocalDateTime agora);
+
+    // [REABERTURA] Reabre de uma vez todas as avaliações dos alunos informados no snapshot
+    @Modifying
+    @Query("UPDATE Avaliacao a SET a.finalizada = false, a.nivelFinal = null, a.dataAvaliacao = :agora " +
+           "WHERE a.aluno.id IN :alunoIds AND a.criterio.id IN " +
+           "(SELECT c.id FROM Criterio c WHERE c.capacidade.snapshotDisciplina.id = :snapshotId)")
+    int reabrirPorAlunos(@Param("alunoIds") Collection<Long> alunoIds, @Param("snapshotId") Long snapshotId,
+                         @Param("agora") LocalDateTime agora);
 }
\ No newline at end of file
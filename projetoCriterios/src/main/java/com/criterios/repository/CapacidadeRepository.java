@@ -2,9 +2,11 @@ package com.criterios.repository;
 
 import com.criterios.entities.Capacidade;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import java.util.Collection;
 import java.util.List;
 
 @Repository
@@ -15,6 +17,27 @@ public interface CapacidadeRepository extends JpaRepository<Capacidade, Long> {
     @Query("SELECT c FROM Capacidade c JOIN c.estruturaTemplate et WHERE et.disciplinaTemplateId = :id AND c.snapshotDisciplina IS NULL")
     List<Capacidade> findByDisciplinaTemplateId(@Param("id") Long id);
 
+    // [SNAPSHOT] Estrutura do template "achatada" (capacidade x critério), numa única consulta, para o hash estrutural.
+    // Colunas: capacidade.id, capacidade.descricao, capacidade.tipo, criterio.descricao, criterio.tipo
+    @Query("SELECT c.id, c.descricao, c.tipo, cr.descricao, cr.tipo FROM Capacidade c JOIN c.estruturaTemplate et " +
+           "LEFT JOIN c.criterios cr WHERE et.disciplinaTemplateId = :id AND c.snapshotDisciplina IS NULL ORDER BY c.id, cr.id")
+    List<Object[]> findEstruturaPlanaByDisciplinaTemplateId(@Param("id") Long id);
+
+    // [IMPORTAÇÃO] Estrutura atual do template com os ids, para a reimportação por diferença.
+    // Colunas: capacidade.id, capacidade.descricao, capacidade.tipo, criterio.id, criterio.descricao, criterio.tipo
+    @Query("SELECT c.id, c.descricao, c.tipo, cr.id, cr.descricao, cr.tipo FROM Capacidade c " +
+           "LEFT JOIN c.criterios cr WHERE c.estruturaTemplate.id = :templateId AND c.snapshotDisciplina IS NULL ORDER BY c.id, cr.id")
+    List<Object[]> findEstruturaComIdsByTemplateId(@Param("templateId") Long templateId);
+
+    // [VALIDAÇÃO] Críticos e desejáveis por capacidade do template numa única consulta (sem critérios = zeros).
+    // Colunas: capacidade.id, capacidade.descricao, críticos, desejáveis
+    @Query("SELECT c.id, c.descricao, " +
+           "SUM(CASE WHEN cr.tipo = com.criterios.entities.TipoCriterio.CRITICO THEN 1 ELSE 0 END), " +
+           "SUM(CASE WHEN cr.tipo = com.criterios.entities.TipoCriterio.DESEJAVEL THEN 1 ELSE 0 END) " +
+           "FROM Capacidade c JOIN c.estruturaTemplate et LEFT JOIN c.criterios cr " +
+           "WHERE et.disciplinaTemplateId = :id AND c.snapshotDisciplina IS NULL GROUP BY c.id, c.descricao ORDER BY c.id")
+    List<Object[]> countCriteriosPorCapacidadeByDisciplinaTemplateId(@Param("id") Long id);
+
     // [SNAPSHOT] Busca capacidades vinculadas a um snapshot específico (sem os critérios)
     List<Capacidade> findBySnapshotDisciplinaId(Long snapshotId);
 
@@ -22,4 +45,21 @@ public interface CapacidadeRepository extends JpaRepository<Capacidade, Long> {
     // Usado na tela de Avaliação e Relatórios
     @Query("SELECT c FROM Capacidade c LEFT JOIN FETCH c.criterios WHERE c.snapshotDisciplina.id = :id")
     List<Capacidade> findBySnapshotDisciplinaIdFetchCriterios(@Param("id") Long id);
-}
\ No newline at end of file
+
+    // [SNAPSHOT] Copia as capacidades do template para o snapshot num único INSERT ... SELECT.
+    // origem_id guarda a capacidade de origem para que os critérios possam ser copiados em seguida.
+    @Modifying
+    @Query(value = "INSERT INTO tb_capacidade (descricao, tipo, snapshot_disciplina_id, origem_id) " +
+            "SELECT c.descricao, c.tipo, :snapshotId, c.id FROM tb_capacidade c " +
+            "JOIN tb_estrutura_template et ON et.id = c.estrutura_template_id " +
+            "WHERE et.disciplina_template_id = :disciplinaTemplateId AND c.snapshot_disciplina_id IS NULL " +
+            "ORDER BY c.id",
+            nativeQuery = true)
+    int copiarDoTemplateParaSnapshot(@Param("disciplinaTemplateId") Long disciplinaTemplateId,
+                                     @Param("snapshotId") Long snapshotId);
+
+    // [COMPACTAÇÃO] Exclusão em massa das capacidades de snapshots órfãos (critérios devem sair antes)
+    @Modifying
+    @Query(value = "DELETE FROM tb_capacidade WHERE snapshot_disciplina_id IN (:snapshotIds)", nativeQuery = true)
+    int excluirPorSnapshots(@Param("snapshotIds") Collection<Long> snapshotIds);
+}
@@ -7,6 +7,7 @@ import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import java.util.Collection;
 import java.util.List;
 
 @Repository
@@ -26,9 +27,26 @@ public interface CriterioRepository extends JpaRepository<Criterio, Long> {
     @Query("SELECT c FROM Criterio c WHERE c.capacidade.snapshotDisciplina.id = :snapshotId")
     List<Criterio> findBySnapshotDisciplinaId(@Param("snapshotId") Long snapshotId);
 
+    // [LOTE] Retorna pares [criterioId, snapshotId] (snapshotId nulo = critério de Template)
+    @Query("SELECT c.id, cap.snapshotDisciplina.id FROM Criterio c JOIN c.capacidade cap WHERE c.id IN :ids")
+    List<Object[]> findSnapshotIdsByCriterioIds(@Param("ids") Collection<Long> ids);
+
+    // Pares [criterioId, tipo] para os deltas dos contadores materializados
+    @Query("SELECT c.id, c.tipo FROM Criterio c WHERE c.id IN :ids")
+    List<Object[]> findTiposByIds(@Param("ids") Collection<Long> ids);
+
     @Query("SELECT COUNT(c) FROM Criterio c WHERE c.capacidade.snapshotDisciplina.id = :snapshotId AND c.tipo = :tipo")
     Long countBySnapshotDisciplinaAndTipo(@Param("snapshotId") Long snapshotId, @Param("tipo") TipoCriterio tipo);
 
+    // [MATRIZ] Pares [criterioId, tipo] do snapshot na ordem da estrutura (capacidade, critério)
+    @Query("SELECT c.id, c.tipo FROM Criterio c WHERE c.capacidade.snapshotDisciplina.id = :snapshotId " +
+           "ORDER BY c.capacidade.id, c.id")
+    List<Object[]> findIdsETiposBySnapshotDisciplinaId(@Param("snapshotId") Long snapshotId);
+
+    // Totais do snapshot por tipo numa única consulta: pares [TipoCriterio, quantidade]
+    @Query("SELECT c.tipo, COUNT(c) FROM Criterio c WHERE c.capacidade.snapshotDisciplina.id = :snapshotId GROUP BY c.tipo")
+    List<Object[]> countBySnapshotDisciplinaGroupByTipo(@Param("snapshotId") Long snapshotId);
+
     // --- TEMPLATE (GESTÃO / EDIÇÃO) ---
     // Estes métodos buscam dados do modelo original e DEVEM ter "snapshotDisciplina IS NULL"
 
@@ -55,6 +73,11 @@ public interface CriterioRepository extends JpaRepository<Criterio, Long> {
            "WHERE et.id = :templateId AND cap.snapshotDisciplina IS NULL AND c.tipo = :tipo")
     Long countByTemplateIdAndTipo(@Param("templateId") Long templateId, @Param("tipo") TipoCriterio tipo);
 
+    // [NÍVEIS] Totais do template por tipo numa única consulta. Colunas: tipo, quantidade
+    @Query("SELECT c.tipo, COUNT(c) FROM Criterio c JOIN c.capacidade cap " +
+           "WHERE cap.estruturaTemplate.id = :templateId AND cap.snapshotDisciplina IS NULL GROUP BY c.tipo")
+    List<Object[]> countPorTipoByTemplateId(@Param("templateId") Long templateId);
+
     // --- LIMPEZA (ESSENCIAL PARA IMPORTAÇÃO) ---
 
     /**
@@ -67,4 +90,21 @@ public interface CriterioRepository extends JpaRepository<Criterio, Long> {
            "(SELECT cap.id FROM Capacidade cap JOIN cap.estruturaTemplate et " +
            "WHERE et.disciplinaTemplateId = :disciplinaId AND cap.snapshotDisciplina IS NULL)")
     void deleteByDisciplinaTemplateId(@Param("disciplinaId") Long disciplinaId);
-}
\ No newline at end of file
+
+    // [SNAPSHOT] Copia os critérios das capacidades de origem para as capacidades do snapshot (via origem_id)
+    @Modifying
+    @Query(value = "INSERT INTO tb_criterio (descricao, tipo, capacidade_id) " +
+            "SELECT cr.descricao, cr.tipo, cs.id FROM tb_criterio cr " +
+            "JOIN tb_capacidade cs ON cs.origem_id = cr.capacidade_id " +
+            "WHERE cs.snapshot_disciplina_id = :snapshotId " +
+            "ORDER BY cs.id, cr.id",
+            nativeQuery = true)
+    int copiarParaSnapshot(@Param("snapshotId") Long snapshotId);
+
+    // [COMPACTAÇÃO] Exclusão em massa dos critérios de snapshots órfãos
+    @Modifying
+    @Query(value = "DELETE FROM tb_criterio WHERE capacidade_id IN " +
+            "(SELECT c.id FROM tb_capacidade c WHERE c.snapshot_disciplina_id IN (:snapshotIds))",
+            nativeQuery = true)
+    int excluirPorSnapshots(@Param("snapshotIds") Collection<Long> snapshotIds);
+}
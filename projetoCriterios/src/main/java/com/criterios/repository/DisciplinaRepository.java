@@ -2,6 +2,7 @@ package com.criterios.repository;
 
 
 import java.util.List;
+import java.util.Optional;
 
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
@@ -16,4 +17,7 @@ public interface DisciplinaRepository extends JpaRepository<Disciplina, Long> {
     // [ATUALIZADO] Adicionado "ORDER BY d.nome ASC" para ordenar alfabeticamente
     @Query("SELECT d FROM Disciplina d WHERE d.periodicidade = 'ANUAL' OR d.termo = :termo ORDER BY d.nome ASC")
     List<Disciplina> findByTermoOrAnual(@Param("termo") Integer termo);
-}
\ No newline at end of file
+
+    // [NOVO] Template correspondente num outro ambiente (importação de arquivo de snapshot)
+    Optional<Disciplina> findFirstBySiglaOrderByIdAsc(String sigla);
+}
@@ -0,0 +1,109 @@
+package com.criterios.repository;
+
+import com.criterios.entities.NivelAvaliacao;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Escrita em lote na estrutura TEMPLATE: capacidades e critérios (reimportação por diferença, que só envia
+ * as linhas que mudaram) e a régua de níveis. Cada tipo de alteração vira um único lote JDBC.
+ */
+@Repository
+@RequiredArgsConstructor
+public class EstruturaTemplateJdbcRepository {
+
+    private static final int TAMANHO_LOTE = 200;
+
+    private static final String SQL_INSERIR_CAPACIDADE =
+            "INSERT INTO tb_capacidade (descricao, tipo, estrutura_template_id) VALUES (?, ?, ?)";
+    private static final String SQL_INSERIR_CRITERIO =
+            "INSERT INTO tb_criterio (descricao, tipo, capacidade_id) VALUES (?, ?, ?)";
+    private static final String SQL_ATUALIZAR_CAPACIDADE =
+            "UPDATE tb_capacidade SET descricao = ?, tipo = ? WHERE id = ?";
+    private static final String SQL_ATUALIZAR_CRITERIO =
+            "UPDATE tb_criterio SET descricao = ?, tipo = ? WHERE id = ?";
+    private static final String SQL_EXCLUIR_CRITERIOS_DA_CAPACIDADE =
+            "DELETE FROM tb_criterio WHERE capacidade_id = ?";
+    private static final String SQL_EXCLUIR_CRITERIO =
+            "DELETE FROM tb_criterio WHERE id = ?";
+    private static final String SQL_EXCLUIR_CAPACIDADE =
+            "DELETE FROM tb_capacidade WHERE id = ?";
+
+    private static final String SQL_EXCLUIR_NIVEIS =
+            "DELETE FROM tb_nivel_avaliacao WHERE estrutura_template_id = ? AND snapshot_disciplina_id IS NULL";
+    private static final String SQL_INSERIR_NIVEL =
+            "INSERT INTO tb_nivel_avaliacao (nivel, min_criticos, min_desejaveis, sigla, descricao, estrutura_template_id) " +
+            "VALUES (?, ?, ?, ?, ?, ?)";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    /** Linha de capacidade ou critério (id nulo = nova; capacidadeId só vale para critérios). */
+    public record Linha(Long id, Long capacidadeId, String descricao, String tipo) {}
+
+    public List<Long> inserirCapacidades(List<Linha> capacidades, Long estruturaTemplateId) {
+        return LoteJdbc.inserirComChaves(jdbcTemplate, SQL_INSERIR_CAPACIDADE, capacidades, (ps, c) -> {
+            ps.setString(1, c.descricao());
+            ps.setString(2, c.tipo());
+            ps.setLong(3, estruturaTemplateId);
+        });
+    }
+
+    public void inserirCriterios(List<Linha> criterios) {
+        if (criterios.isEmpty()) return;
+        jdbcTemplate.batchUpdate(SQL_INSERIR_CRITERIO, criterios, TAMANHO_LOTE, (ps, c) -> {
+            ps.setString(1, c.descricao());
+            ps.setString(2, c.tipo());
+            ps.setLong(3, c.capacidadeId());
+        });
+    }
+
+    public void atualizarCapacidades(List<Linha> capacidades) {
+        atualizar(SQL_ATUALIZAR_CAPACIDADE, capacidades);
+    }
+
+    public void atualizarCriterios(List<Linha> criterios) {
+        atualizar(SQL_ATUALIZAR_CRITERIO, criterios);
+    }
+
+    public void excluirCriterios(Collection<Long> criterioIds) {
+        excluir(SQL_EXCLUIR_CRITERIO, criterioIds);
+    }
+
+    // Critérios da capacidade primeiro (FK), depois a própria capacidade
+    public void excluirCapacidades(Collection<Long> capacidadeIds) {
+        excluir(SQL_EXCLUIR_CRITERIOS_DA_CAPACIDADE, capacidadeIds);
+        excluir(SQL_EXCLUIR_CAPACIDADE, capacidadeIds);
+    }
+
+    // Troca a régua do template: um DELETE e um único lote de INSERTs
+    public void substituirNiveis(Long estruturaTemplateId, List<NivelAvaliacao> niveis) {
+        jdbcTemplate.update(SQL_EXCLUIR_NIVEIS, estruturaTemplateId);
+        if (niveis.isEmpty()) return;
+        jdbcTemplate.batchUpdate(SQL_INSERIR_NIVEL, niveis, niveis.size(), (ps, n) -> {
+            ps.setInt(1, n.getNivel());
+            ps.setInt(2, n.getMinCriticos());
+            ps.setInt(3, n.getMinDesejaveis());
+            ps.setString(4, n.getSigla());
+            ps.setString(5, n.getDescricao());
+            ps.setLong(6, estruturaTemplateId);
+        });
+    }
+
+    private void atualizar(String sql, List<Linha> linhas) {
+        if (linhas.isEmpty()) return;
+        jdbcTemplate.batchUpdate(sql, linhas, TAMANHO_LOTE, (ps, l) -> {
+            ps.setString(1, l.descricao());
+            ps.setString(2, l.tipo());
+            ps.setLong(3, l.id());
+        });
+    }
+
+    private void excluir(String sql, Collection<Long> ids) {
+        if (ids.isEmpty()) return;
+        jdbcTemplate.batchUpdate(sql, ids, TAMANHO_LOTE, (ps, id) -> ps.setLong(1, id));
+    }
+}
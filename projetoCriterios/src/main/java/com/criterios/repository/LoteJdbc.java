@@ -0,0 +1,50 @@
+package com.criterios.repository;
+
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.ParameterizedPreparedStatementSetter;
+import org.springframework.jdbc.support.GeneratedKeyHolder;
+import org.springframework.jdbc.support.KeyHolder;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * INSERT em lote JDBC devolvendo as chaves geradas na ordem das linhas (tabelas com id IDENTITY).
+ */
+final class LoteJdbc {
+
+    private LoteJdbc() {
+    }
+
+    static <T> List<Long> inserirComChaves(JdbcTemplate jdbcTemplate, String sql, List<T> linhas,
+                                           ParameterizedPreparedStatementSetter<T> setter) {
+        if (linhas.isEmpty()) return List.of();
+        KeyHolder keyHolder = new GeneratedKeyHolder();
+        jdbcTemplate.batchUpdate(con -> con.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS),
+                new BatchPreparedStatementSetter() {
+                    @Override
+                    public void setValues(PreparedStatement ps, int i) throws SQLException {
+                        setter.setValues(ps, linhas.get(i));
+                    }
+
+                    @Override
+                    public int getBatchSize() {
+                        return linhas.size();
+                    }
+                }, keyHolder);
+
+        List<Long> ids = new ArrayList<>(linhas.size());
+        for (Map<String, Object> chave : keyHolder.getKeyList()) {
+            ids.add(((Number) chave.values().iterator().next()).longValue());
+        }
+        if (ids.size() != linhas.size()) {
+            throw new IllegalStateException("O driver devolveu " + ids.size() + " chaves para " + linhas.size() + " linhas.");
+        }
+        return ids;
+    }
+}
@@ -7,6 +7,7 @@ import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
 import java.util.List;
 
 @Repository
@@ -40,4 +41,24 @@ public interface NivelAvaliacaoRepository extends JpaRepository<NivelAvaliacao,
     @Modifying
     @Query("DELETE FROM NivelAvaliacao n WHERE n.estruturaTemplate.id = :templateId AND n.snapshotDisciplina IS NULL")
     void deleteByTemplateId(@Param("templateId") Long templateId);
-}
\ No newline at end of file
+
+    // [IMPORTAÇÃO] Quantos níveis o template já tem (a reimportação só regera a régua quando precisa)
+    @Query("SELECT COUNT(n) FROM NivelAvaliacao n WHERE n.estruturaTemplate.id = :templateId AND n.snapshotDisciplina IS NULL")
+    long countByTemplateId(@Param("templateId") Long templateId);
+
+    // [SNAPSHOT] Copia os níveis do template para o snapshot num único INSERT ... SELECT
+    @Modifying
+    @Query(value = "INSERT INTO tb_nivel_avaliacao (nivel, min_criticos, min_desejaveis, sigla, descricao, snapshot_disciplina_id) " +
+            "SELECT n.nivel, n.min_criticos, n.min_desejaveis, n.sigla, n.descricao, :snapshotId FROM tb_nivel_avaliacao n " +
+            "JOIN tb_estrutura_template et ON et.id = n.estrutura_template_id " +
+            "WHERE et.disciplina_template_id = :disciplinaTemplateId AND n.snapshot_disciplina_id IS NULL " +
+            "ORDER BY n.nivel",
+            nativeQuery = true)
+    int copiarDoTemplateParaSnapshot(@Param("disciplinaTemplateId") Long disciplinaTemplateId,
+                                     @Param("snapshotId") Long snapshotId);
+
+    // [COMPACTAÇÃO] Exclusão em massa dos níveis de snapshots órfãos
+    @Modifying
+    @Query(value = "DELETE FROM tb_nivel_avaliacao WHERE snapshot_disciplina_id IN (:snapshotIds)", nativeQuery = true)
+    int excluirPorSnapshots(@Param("snapshotIds") Collection<Long> snapshotIds);
+}
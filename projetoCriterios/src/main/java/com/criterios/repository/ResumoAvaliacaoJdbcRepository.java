@@ -0,0 +1,53 @@
+package com.criterios.repository;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Atualização incremental de tb_resumo_avaliacao: soma a cada linha (aluno, snapshot) a diferença causada por uma
+ * escrita em tb_avaliacao, sem reagregar as avaliações do aluno. Só a própria linha de resumo é travada.
+ * O recálculo completo (reconstrução e importação de arquivo) continua em ResumoAvaliacaoRepository.
+ */
+@Repository
+@RequiredArgsConstructor
+public class ResumoAvaliacaoJdbcRepository {
+
+    private static final int TAMANHO_LOTE = 200;
+
+    // Linha nova recebe o próprio delta (primeira avaliação do aluno no snapshot)
+    private static final String SQL_SOMAR_DELTA =
+            "INSERT INTO tb_resumo_avaliacao (aluno_id, snapshot_disciplina_id, criticos_atendidos, criticos_respondidos, " +
+            "desejaveis_atendidos, desejaveis_respondidos, total_registros, data_atualizacao) " +
+            "VALUES (?, ?, ?, ?, ?, ?, ?, ?) " +
+            "ON DUPLICATE KEY UPDATE criticos_atendidos = criticos_atendidos + VALUES(criticos_atendidos), " +
+            "criticos_respondidos = criticos_respondidos + VALUES(criticos_respondidos), " +
+            "desejaveis_atendidos = desejaveis_atendidos + VALUES(desejaveis_atendidos), " +
+            "desejaveis_respondidos = desejaveis_respondidos + VALUES(desejaveis_respondidos), " +
+            "total_registros = total_registros + VALUES(total_registros), data_atualizacao = VALUES(data_atualizacao)";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public record Delta(long alunoId, long snapshotId, int criticosAtendidos, int criticosRespondidos,
+                        int desejaveisAtendidos, int desejaveisRespondidos, int totalRegistros) {}
+
+    /** Aplica os deltas na ordem recebida (quem chama ordena por aluno e snapshot). */
+    public void somarDeltas(List<Delta> deltas) {
+        if (deltas.isEmpty()) return;
+        Timestamp agora = Timestamp.valueOf(LocalDateTime.now());
+        jdbcTemplate.batchUpdate(SQL_SOMAR_DELTA, deltas, TAMANHO_LOTE, (ps, d) -> {
+            ps.setLong(1, d.alunoId());
+            ps.setLong(2, d.snapshotId());
+            ps.setInt(3, d.criticosAtendidos());
+            ps.setInt(4, d.criticosRespondidos());
+            ps.setInt(5, d.desejaveisAtendidos());
+            ps.setInt(6, d.desejaveisRespondidos());
+            ps.setInt(7, d.totalRegistros());
+            ps.setTimestamp(8, agora);
+        });
+    }
+}
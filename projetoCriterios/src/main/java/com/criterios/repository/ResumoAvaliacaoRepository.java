@@ -0,0 +1,93 @@
+package com.criterios.repository;
+
+import com.criterios.entities.ResumoAvaliacao;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+
+@Repository
+public interface ResumoAvaliacaoRepository extends JpaRepository<ResumoAvaliacao, Long> {
+
+    @Query("SELECT r FROM ResumoAvaliacao r WHERE r.aluno.id = :alunoId AND r.snapshotDisciplina.id = :snapshotId")
+    Optional<ResumoAvaliacao> findByAlunoAndSnapshot(@Param("alunoId") Long alunoId, @Param("snapshotId") Long snapshotId);
+
+    @Query("SELECT r FROM ResumoAvaliacao r WHERE r.aluno.turma.id = :turmaId AND r.snapshotDisciplina.id = :snapshotId")
+    List<ResumoAvaliacao> findByTurmaAndSnapshot(@Param("turmaId") Long turmaId, @Param("snapshotId") Long snapshotId);
+
+    @Query("SELECT r FROM ResumoAvaliacao r WHERE r.aluno.id IN :alunoIds AND r.snapshotDisciplina.id = :snapshotId")
+    List<ResumoAvaliacao> findByAlunosAndSnapshot(@Param("alunoIds") Collection<Long> alunoIds, @Param("snapshotId") Long snapshotId);
+
+    /**
+     * Recalcula (INSERT ... ON DUPLICATE KEY UPDATE) os contadores dos alunos informados num snapshot.
+     * Reagrega todas as avaliações dos alunos (leitura com locks compartilhados na faixa de cada aluno): usado na
+     * importação de arquivo e quando o valor anterior de uma célula não é conhecido. As gravações de nota usam os
+     * deltas de ResumoAvaliacaoJdbcRepository.
+     */
+    @Modifying
+    @Query(value = "INSERT INTO tb_resumo_avaliacao (aluno_id, snapshot_disciplina_id, criticos_atendidos, criticos_respondidos, " +
+            "desejaveis_atendidos, desejaveis_respondidos, total_registros, data_atualizacao) " +
+            "SELECT a.aluno_id, cap.snapshot_disciplina_id, " +
+            "SUM(CASE WHEN c.tipo = 'CRITICO' AND a.atendeu = true THEN 1 ELSE 0 END), " +
+            "SUM(CASE WHEN c.tipo = 'CRITICO' AND a.atendeu IS NOT NULL THEN 1 ELSE 0 END), " +
+            "SUM(CASE WHEN c.tipo = 'DESEJAVEL' AND a.atendeu = true THEN 1 ELSE 0 END), " +
+            "SUM(CASE WHEN c.tipo = 'DESEJAVEL' AND a.atendeu IS NOT NULL THEN 1 ELSE 0 END), " +
+            "COUNT(*), NOW() " +
+            "FROM tb_avaliacao a JOIN tb_criterio c ON c.id = a.criterio_id JOIN tb_capacidade cap ON cap.id = c.capacidade_id " +
+            "WHERE a.aluno_id IN (:alunoIds) AND cap.snapshot_disciplina_id = :snapshotId " +
+            "GROUP BY a.aluno_id, cap.snapshot_disciplina_id " +
+            "ON DUPLICATE KEY UPDATE criticos_atendidos = VALUES(criticos_atendidos), criticos_respondidos = VALUES(criticos_respondidos), " +
+            "desejaveis_atendidos = VALUES(desejaveis_atendidos), desejaveis_respondidos = VALUES(desejaveis_respondidos), " +
+            "total_registros = VALUES(total_registros), data_atualizacao = VALUES(data_atualizacao)",
+            nativeQuery = true)
+    int atualizarContadores(@Param("alunoIds") Collection<Long> alunoIds, @Param("snapshotId") Long snapshotId);
+
+    /**
+     * [NÍVEIS] Alunos das turmas de cada snapshot da disciplina, agrupados por (snapshot, críticos atendidos,
+     * desejáveis atendidos). Aluno ainda sem resumo entra como (0, 0).
+     * Colunas: snapshot_disciplina_id, criticos_atendidos, desejaveis_atendidos, alunos
+     */
+    @Query(value = "SELECT t.snapshot_disciplina_id, COALESCE(r.criticos_atendidos, 0), COALESCE(r.desejaveis_atendidos, 0), COUNT(*) " +
+            "FROM tb_aluno al JOIN turma t ON t.id = al.turma_id " +
+            "JOIN tb_snapshot_disciplina s ON s.id = t.snapshot_disciplina_id " +
+            "LEFT JOIN tb_resumo_avaliacao r ON r.aluno_id = al.id AND r.snapshot_disciplina_id = s.id " +
+            "WHERE s.disciplina_template_id = :disciplinaTemplateId " +
+            "GROUP BY t.snapshot_disciplina_id, COALESCE(r.criticos_atendidos, 0), COALESCE(r.desejaveis_atendidos, 0)",
+            nativeQuery = true)
+    List<Object[]> findDistribuicaoParesByDisciplinaTemplateId(@Param("disciplinaTemplateId") Long disciplinaTemplateId);
+
+    // --- RECONSTRUÇÃO (dados anteriores à tabela de resumo) ---
+
+    @Query(value = "SELECT DISTINCT aluno_id FROM tb_avaliacao WHERE aluno_id > :aPartirDe ORDER BY aluno_id LIMIT :limite",
+            nativeQuery = true)
+    List<Long> findProximosAlunosComAvaliacao(@Param("aPartirDe") Long aPartirDe, @Param("limite") int limite);
+
+    @Modifying
+    @Query(value = "DELETE FROM tb_resumo_avaliacao WHERE aluno_id BETWEEN :inicio AND :fim", nativeQuery = true)
+    int deleteByAlunoIdEntre(@Param("inicio") Long inicio, @Param("fim") Long fim);
+
+    @Modifying
+    @Query(value = "INSERT INTO tb_resumo_avaliacao (aluno_id, snapshot_disciplina_id, criticos_atendidos, criticos_respondidos, " +
+            "desejaveis_atendidos, desejaveis_respondidos, total_registros, data_atualizacao) " +
+            "SELECT a.aluno_id, cap.snapshot_disciplina_id, " +
+            "SUM(CASE WHEN c.tipo = 'CRITICO' AND a.atendeu = true THEN 1 ELSE 0 END), " +
+            "SUM(CASE WHEN c.tipo = 'CRITICO' AND a.atendeu IS NOT NULL THEN 1 ELSE 0 END), " +
+            "SUM(CASE WHEN c.tipo = 'DESEJAVEL' AND a.atendeu = true THEN 1 ELSE 0 END), " +
+            "SUM(CASE WHEN c.tipo = 'DESEJAVEL' AND a.atendeu IS NOT NULL THEN 1 ELSE 0 END), " +
+            "COUNT(*), NOW() " +
+            "FROM tb_avaliacao a JOIN tb_criterio c ON c.id = a.criterio_id JOIN tb_capacidade cap ON cap.id = c.capacidade_id " +
+            "WHERE a.aluno_id BETWEEN :inicio AND :fim AND cap.snapshot_disciplina_id IS NOT NULL " +
+            "GROUP BY a.aluno_id, cap.snapshot_disciplina_id",
+            nativeQuery = true)
+    int inserirContadoresEntre(@Param("inicio") Long inicio, @Param("fim") Long fim);
+
+    // [COMPACTAÇÃO] Resumos que ainda apontem para snapshots órfãos
+    @Modifying
+    @Query(value = "DELETE FROM tb_resumo_avaliacao WHERE snapshot_disciplina_id IN (:snapshotIds)", nativeQuery = true)
+    int excluirPorSnapshots(@Param("snapshotIds") Collection<Long> snapshotIds);
+}
@@ -0,0 +1,218 @@
+package com.criterios.repository;
+
+import com.criterios.dto.RegistroArquivoSnapshot;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.support.GeneratedKeyHolder;
+import org.springframework.jdbc.support.KeyHolder;
+import org.springframework.stereotype.Repository;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * Leitura e gravação em massa para o arquivo de snapshot (exportação/importação).
+ *
+ * A exportação entrega linha a linha para quem escreve o arquivo; as avaliações são lidas em páginas pelo id,
+ * então nenhum resultado grande fica inteiro em memória. A importação grava em lotes JDBC e devolve as chaves
+ * geradas na ordem das linhas, para remapear os ids do arquivo.
+ */
+@Repository
+@RequiredArgsConstructor
+public class SnapshotArquivoJdbcRepository {
+
+    private static final int PAGINA_AVALIACOES = 1000;
+
+    private static final String SQL_CABECALHO =
+            "SELECT id, disciplina_template_id, nome_disciplina, sigla_disciplina, data_criacao " +
+            "FROM tb_snapshot_disciplina WHERE id = ?";
+    private static final String SQL_CAPACIDADES =
+            "SELECT id, descricao, tipo FROM tb_capacidade WHERE snapshot_disciplina_id = ? ORDER BY id";
+    private static final String SQL_CRITERIOS =
+            "SELECT cr.id, cr.capacidade_id, cr.descricao, cr.tipo FROM tb_criterio cr " +
+            "JOIN tb_capacidade c ON c.id = cr.capacidade_id WHERE c.snapshot_disciplina_id = ? ORDER BY cr.id";
+    private static final String SQL_NIVEIS =
+            "SELECT nivel, min_criticos, min_desejaveis, sigla, descricao FROM tb_nivel_avaliacao " +
+            "WHERE snapshot_disciplina_id = ? ORDER BY nivel";
+    private static final String SQL_TURMAS =
+            "SELECT id, nome, ano_semestre, termo_atual FROM turma WHERE snapshot_disciplina_id = ? ORDER BY id";
+    private static final String SQL_ALUNOS =
+            "SELECT al.id, al.turma_id, al.nome FROM tb_aluno al JOIN turma t ON t.id = al.turma_id " +
+            "WHERE t.snapshot_disciplina_id = ? ORDER BY al.id";
+    // Só avaliações de alunos das turmas exportadas, em páginas pelo id
+    private static final String SQL_AVALIACOES =
+            "SELECT a.id, a.aluno_id, a.criterio_id, a.atendeu, a.observacao, a.data_avaliacao, a.finalizada, a.nivel_final " +
+            "FROM tb_avaliacao a JOIN tb_criterio cr ON cr.id = a.criterio_id " +
+            "JOIN tb_capacidade c ON c.id = cr.capacidade_id " +
+            "JOIN tb_aluno al ON al.id = a.aluno_id JOIN turma t ON t.id = al.turma_id " +
+            "WHERE c.snapshot_disciplina_id = ? AND t.snapshot_disciplina_id = c.snapshot_disciplina_id AND a.id > ? " +
+            "ORDER BY a.id LIMIT ?";
+
+    private static final String SQL_INSERIR_SNAPSHOT =
+            "INSERT INTO tb_snapshot_disciplina (disciplina_template_id, nome_disciplina, sigla_disciplina, data_criacao) " +
+            "VALUES (?, ?, ?, ?)";
+    private static final String SQL_INSERIR_CAPACIDADE =
+            "INSERT INTO tb_capacidade (descricao, tipo, snapshot_disciplina_id) VALUES (?, ?, ?)";
+    private static final String SQL_INSERIR_CRITERIO =
+            "INSERT INTO tb_criterio (descricao, tipo, capacidade_id) VALUES (?, ?, ?)";
+    private static final String SQL_INSERIR_NIVEL =
+            "INSERT INTO tb_nivel_avaliacao (nivel, min_criticos, min_desejaveis, sigla, descricao, snapshot_disciplina_id) " +
+            "VALUES (?, ?, ?, ?, ?, ?)";
+    private static final String SQL_INSERIR_TURMA =
+            "INSERT INTO turma (nome, ano_semestre, termo_atual, disciplina_id, snapshot_disciplina_id) VALUES (?, ?, ?, ?, ?)";
+    private static final String SQL_INSERIR_PROFESSOR_TURMA =
+            "INSERT INTO turma_professores (turma_id, usuario_id) VALUES (?, ?)";
+    private static final String SQL_INSERIR_ALUNO =
+            "INSERT INTO tb_aluno (nome, turma_id) VALUES (?, ?)";
+    private static final String SQL_INSERIR_AVALIACAO =
+            "INSERT INTO tb_avaliacao (aluno_id, criterio_id, atendeu, observacao, data_avaliacao, finalizada, nivel_final) " +
+            "VALUES (?, ?, ?, ?, ?, ?, ?)";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    // --- EXPORTAÇÃO ---
+
+    public RegistroArquivoSnapshot.Cabecalho buscarCabecalho(Long snapshotId) {
+        List<RegistroArquivoSnapshot.Cabecalho> linhas = jdbcTemplate.query(SQL_CABECALHO, (rs, i) ->
+                new RegistroArquivoSnapshot.Cabecalho(RegistroArquivoSnapshot.VERSAO_ATUAL,
+                        rs.getLong(1), rs.getObject(2, Long.class), rs.getString(3), rs.getString(4),
+                        paraData(rs.getTimestamp(5))), snapshotId);
+        return linhas.isEmpty() ? null : linhas.get(0);
+    }
+
+    public void exportarEstrutura(Long snapshotId, Consumer<RegistroArquivoSnapshot> destino) {
+        jdbcTemplate.query(SQL_CAPACIDADES, rs -> {
+            destino.accept(new RegistroArquivoSnapshot.Capacidade(rs.getLong(1), rs.getString(2), rs.getString(3)));
+        }, snapshotId);
+        jdbcTemplate.query(SQL_CRITERIOS, rs -> {
+            destino.accept(new RegistroArquivoSnapshot.Criterio(rs.getLong(1), rs.getLong(2), rs.getString(3), rs.getString(4)));
+        }, snapshotId);
+        jdbcTemplate.query(SQL_NIVEIS, rs -> {
+            destino.accept(new RegistroArquivoSnapshot.Nivel(rs.getInt(1), rs.getInt(2), rs.getInt(3),
+                    rs.getString(4), rs.getString(5)));
+        }, snapshotId);
+    }
+
+    public void exportarTurmasEAvaliacoes(Long snapshotId, Consumer<RegistroArquivoSnapshot> destino) {
+        jdbcTemplate.query(SQL_TURMAS, rs -> {
+            destino.accept(new RegistroArquivoSnapshot.Turma(rs.getLong(1), rs.getString(2), rs.getString(3),
+                    rs.getObject(4, Integer.class)));
+        }, snapshotId);
+        jdbcTemplate.query(SQL_ALUNOS, rs -> {
+            destino.accept(new RegistroArquivoSnapshot.Aluno(rs.getLong(1), rs.getLong(2), rs.getString(3)));
+        }, snapshotId);
+
+        long ultimoId = 0;
+        while (true) {
+            long[] maiorId = {ultimoId};
+            int[] lidas = {0};
+            jdbcTemplate.query(SQL_AVALIACOES, rs -> {
+                maiorId[0] = rs.getLong(1);
+                lidas[0]++;
+                destino.accept(new RegistroArquivoSnapshot.Avaliacao(rs.getLong(2), rs.getLong(3),
+                        rs.getObject(4, Boolean.class), rs.getString(5), paraData(rs.getTimestamp(6)),
+                        rs.getObject(7, Boolean.class), rs.getObject(8, Integer.class)));
+            }, snapshotId, ultimoId, PAGINA_AVALIACOES);
+            if (lidas[0] < PAGINA_AVALIACOES) break;
+            ultimoId = maiorId[0];
+        }
+    }
+
+    // --- IMPORTAÇÃO ---
+
+    public Long inserirSnapshot(RegistroArquivoSnapshot.Cabecalho cabecalho, Long disciplinaTemplateId) {
+        KeyHolder keyHolder = new GeneratedKeyHolder();
+        jdbcTemplate.update(con -> {
+            PreparedStatement ps = con.prepareStatement(SQL_INSERIR_SNAPSHOT, Statement.RETURN_GENERATED_KEYS);
+            setLong(ps, 1, disciplinaTemplateId);
+            ps.setString(2, cabecalho.nomeDisciplina());
+            ps.setString(3, cabecalho.siglaDisciplina());
+            ps.setTimestamp(4, Timestamp.valueOf(LocalDateTime.now()));
+            return ps;
+        }, keyHolder);
+        return keyHolder.getKey().longValue();
+    }
+
+    public List<Long> inserirCapacidades(List<RegistroArquivoSnapshot.Capacidade> capacidades, Long snapshotId) {
+        return LoteJdbc.inserirComChaves(jdbcTemplate, SQL_INSERIR_CAPACIDADE, capacidades, (ps, c) -> {
+            ps.setString(1, c.descricao());
+            ps.setString(2, c.tipo());
+            ps.setLong(3, snapshotId);
+        });
+    }
+
+    // Critérios, alunos e avaliações chegam com os ids de referência já remapeados para este banco
+
+    public List<Long> inserirCriterios(List<RegistroArquivoSnapshot.Criterio> criterios) {
+        return LoteJdbc.inserirComChaves(jdbcTemplate, SQL_INSERIR_CRITERIO, criterios, (ps, c) -> {
+            ps.setString(1, c.descricao());
+            ps.setString(2, c.tipo());
+            ps.setLong(3, c.capacidadeId());
+        });
+    }
+
+    public void inserirNiveis(List<RegistroArquivoSnapshot.Nivel> niveis, Long snapshotId) {
+        jdbcTemplate.batchUpdate(SQL_INSERIR_NIVEL, niveis, niveis.size(), (ps, n) -> {
+            ps.setInt(1, n.nivel());
+            ps.setInt(2, n.minCriticos());
+            ps.setInt(3, n.minDesejaveis());
+            ps.setString(4, n.sigla());
+            ps.setString(5, n.descricao());
+            ps.setLong(6, snapshotId);
+        });
+    }
+
+    public List<Long> inserirTurmas(List<RegistroArquivoSnapshot.Turma> turmas, Long snapshotId,
+                                    Long disciplinaTemplateId, Long professorId) {
+        List<Long> ids = LoteJdbc.inserirComChaves(jdbcTemplate, SQL_INSERIR_TURMA, turmas, (ps, t) -> {
+            ps.setString(1, t.nome());
+            ps.setString(2, t.anoSemestre());
+            if (t.termoAtual() == null) ps.setNull(3, Types.INTEGER);
+            else ps.setInt(3, t.termoAtual());
+            setLong(ps, 4, disciplinaTemplateId);
+            ps.setLong(5, snapshotId);
+        });
+        jdbcTemplate.batchUpdate(SQL_INSERIR_PROFESSOR_TURMA, ids, ids.size(), (ps, turmaId) -> {
+            ps.setLong(1, turmaId);
+            ps.setLong(2, professorId);
+        });
+        return ids;
+    }
+
+    public List<Long> inserirAlunos(List<RegistroArquivoSnapshot.Aluno> alunos) {
+        return LoteJdbc.inserirComChaves(jdbcTemplate, SQL_INSERIR_ALUNO, alunos, (ps, a) -> {
+            ps.setString(1, a.nome());
+            ps.setLong(2, a.turmaId());
+        });
+    }
+
+    public void inserirAvaliacoes(List<RegistroArquivoSnapshot.Avaliacao> avaliacoes) {
+        jdbcTemplate.batchUpdate(SQL_INSERIR_AVALIACAO, avaliacoes, avaliacoes.size(), (ps, a) -> {
+            ps.setLong(1, a.alunoId());
+            ps.setLong(2, a.criterioId());
+            if (a.atendeu() == null) ps.setNull(3, Types.BOOLEAN);
+            else ps.setBoolean(3, a.atendeu());
+            ps.setString(4, a.observacao());
+            if (a.dataAvaliacao() == null) ps.setNull(5, Types.TIMESTAMP);
+            else ps.setTimestamp(5, Timestamp.valueOf(a.dataAvaliacao()));
+            ps.setBoolean(6, Boolean.TRUE.equals(a.finalizada()));
+            if (a.nivelFinal() == null) ps.setNull(7, Types.INTEGER);
+            else ps.setInt(7, a.nivelFinal());
+        });
+    }
+
+    private static void setLong(PreparedStatement ps, int indice, Long valor) throws SQLException {
+        if (valor == null) ps.setNull(indice, Types.BIGINT);
+        else ps.setLong(indice, valor);
+    }
+
+    private static LocalDateTime paraData(Timestamp timestamp) {
+        return timestamp != null ? timestamp.toLocalDateTime() : null;
+    }
+}
@@ -2,12 +2,54 @@ package com.criterios.repository;
 
 import com.criterios.entities.SnapshotDisciplina;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+
 @Repository
 public interface SnapshotDisciplinaRepository extends JpaRepository<SnapshotDisciplina, Long> {
     
     // Busca o Snapshot mais recente para um dado Template ID (ordenado pelo ID decrescente)
     // Retorna o objeto direto (pode ser null se não existir)
     SnapshotDisciplina findTopByDisciplinaTemplateIdOrderByIdDesc(Long disciplinaTemplateId);
-}
\ No newline at end of file
+
+    // [NOVO] Snapshot mais recente de vários templates numa única consulta. Colunas: disciplinaTemplateId, MAX(id)
+    @Query("SELECT s.disciplinaTemplateId, MAX(s.id) FROM SnapshotDisciplina s " +
+           "WHERE s.disciplinaTemplateId IN :templateIds GROUP BY s.disciplinaTemplateId")
+    List<Object[]> findUltimoIdPorDisciplinaTemplateIds(@Param("templateIds") Collection<Long> templateIds);
+
+    // [NOVO] Snapshot já existente com a mesma estrutura (ver SnapshotService.criarSnapshot)
+    SnapshotDisciplina findTopByHashEstruturaOrderByIdDesc(String hashEstrutura);
+
+    // --- COMPACTAÇÃO (snapshots órfãos: sem turma e sem avaliação) ---
+
+    @Query(value = "SELECT s.id FROM tb_snapshot_disciplina s " +
+            "WHERE s.id > :aPartirDe AND (s.data_criacao IS NULL OR s.data_criacao < :criadoAntesDe) " +
+            "AND NOT EXISTS (SELECT 1 FROM turma t WHERE t.snapshot_disciplina_id = s.id) " +
+            "AND NOT EXISTS (SELECT 1 FROM tb_avaliacao a JOIN tb_criterio cr ON cr.id = a.criterio_id " +
+            "JOIN tb_capacidade c ON c.id = cr.capacidade_id WHERE c.snapshot_disciplina_id = s.id) " +
+            "ORDER BY s.id LIMIT :limite",
+            nativeQuery = true)
+    List<Long> findOrfaos(@Param("aPartirDe") Long aPartirDe,
+                          @Param("criadoAntesDe") LocalDateTime criadoAntesDe,
+                          @Param("limite") int limite);
+
+    // Revalida e trava as linhas dentro da transação de exclusão: uma turma que vincular o snapshot
+    // nesse meio tempo fica esperando (e falha na FK) em vez de apontar para um snapshot pela metade
+    @Query(value = "SELECT s.id FROM tb_snapshot_disciplina s WHERE s.id IN (:ids) " +
+            "AND NOT EXISTS (SELECT 1 FROM turma t WHERE t.snapshot_disciplina_id = s.id) " +
+            "AND NOT EXISTS (SELECT 1 FROM tb_avaliacao a JOIN tb_criterio cr ON cr.id = a.criterio_id " +
+            "JOIN tb_capacidade c ON c.id = cr.capacidade_id WHERE c.snapshot_disciplina_id = s.id) " +
+            "FOR UPDATE",
+            nativeQuery = true)
+    List<Long> travarOrfaos(@Param("ids") Collection<Long> ids);
+
+    @Modifying
+    @Query(value = "DELETE FROM tb_snapshot_disciplina WHERE id IN (:ids)", nativeQuery = true)
+    int excluirPorIds(@Param("ids") Collection<Long> ids);
+}
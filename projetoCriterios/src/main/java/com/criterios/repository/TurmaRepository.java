@@ -2,6 +2,8 @@ package com.criterios.repository;
 
 import com.criterios.entities.Turma;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.util.List;
@@ -11,4 +13,15 @@ public interface TurmaRepository extends JpaRepository<Turma, Long> {
     
     // Busca turmas onde a lista de 'professores' contém o ID do usuário
     List<Turma> findAllByProfessoresId(Long professorId);
+
+    // O professor leciona na turma? (acesso ao stream de eventos)
+    boolean existsByIdAndProfessoresId(Long id, Long professorId);
+
+    // [IMPORTAÇÃO] Pares [id, nome] para associar os arquivos de um lote às turmas, sem carregar professores/snapshot
+    @Query("SELECT t.id, t.nome FROM Turma t")
+    List<Object[]> findIdsENomes();
+
+    // [IMPORTAÇÃO] Mesmos pares, só das turmas do professor
+    @Query("SELECT t.id, t.nome FROM Turma t JOIN t.professores p WHERE p.id = :professorId")
+    List<Object[]> findIdsENomesByProfessorId(@Param("professorId") Long professorId);
 }
\ No newline at end of file
@@ -12,6 +12,8 @@ import org.springframework.stereotype.Component;
 import org.springframework.web.filter.OncePerRequestFilter;
 
 import java.io.IOException;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
 
 @Component
 @RequiredArgsConstructor
@@ -19,6 +21,10 @@ public class SecurityFilter extends OncePerRequestFilter {
 
     private final TokenService tokenService;
     private final UsuarioRepository usuarioRepository;
+    private final TicketEventosService ticketEventosService;
+
+    // Stream SSE da turma: EventSource não envia cabeçalhos, a autenticação vem de um ticket na URL
+    private static final Pattern URI_EVENTOS = Pattern.compile(".*/api/turmas/(\\d+)/eventos");
 
     @Override
     protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
@@ -27,11 +33,12 @@ public class SecurityFilter extends OncePerRequestFilter {
         // 1. Recupera o token do cabeçalho
         var token = recuperarToken(request);
         
-        // 2. Se o token existir, tenta autenticar o usuário
-        if (token != null) {
+        // 2. Se o token (ou o ticket do stream SSE) existir, tenta autenticar o usuário
+        var matcherEventos = token == null ? URI_EVENTOS.matcher(request.getRequestURI()) : null;
+        if (token != null || matcherEventos.matches()) {
             try {
-                var email = tokenService.getSubject(token);
-                var usuario = usuarioRepository.findByEmail(email).orElse(null);
+                var email = token != null ? tokenService.getSubject(token) : consumirTicket(request, matcherEventos);
+                var usuario = email == null ? null : usuarioRepository.findByEmail(email).orElse(null);
 
                 if (usuario != null) {
                     // Cria o objeto de autenticação com as authorities (roles) do usuário
@@ -53,9 +60,14 @@ public class SecurityFilter extends OncePerRequestFilter {
 
     private String recuperarToken(HttpServletRequest request) {
         var authHeader = request.getHeader("Authorization");
-        if (authHeader == null || !authHeader.startsWith("Bearer ")) {
-            return null;
-        }
+        if (authHeader == null || !authHeader.startsWith("Bearer ")) return null;
         return authHeader.replace("Bearer ", "");
     }
+
+    // Ticket de uso único emitido por POST /api/turmas/{id}/eventos/ticket; só vale no stream da mesma turma
+    private String consumirTicket(HttpServletRequest request, Matcher uriEventos) {
+        var ticket = request.getParameter("ticket");
+        if (ticket == null) return null;
+        return ticketEventosService.consumir(ticket, Long.valueOf(uriEventos.group(1)));
+    }
 }
\ No newline at end of file
@@ -0,0 +1,49 @@
+package com.criterios.security;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.security.SecureRandom;
+import java.util.Base64;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Tickets de curta duração para abrir o stream SSE de uma turma.
+ *
+ * EventSource não envia cabeçalhos, então a credencial do stream vai na URL (e acaba em logs de acesso e no
+ * histórico do navegador). Em vez do JWT de 1 dia, a URL leva um ticket aleatório emitido por um POST
+ * autenticado normalmente: vale só para a turma pedida, por "validade-segundos", e uma única vez.
+ */
+@Service
+public class TicketEventosService {
+
+    private record Ticket(String email, Long turmaId, long expiraEm) {}
+
+    private final SecureRandom aleatorio = new SecureRandom();
+    private final Map<String, Ticket> tickets = new ConcurrentHashMap<>();
+    private final long validadeMs;
+
+    public TicketEventosService(@Value("${criterios.eventos.ticket.validade-segundos:30}") long validadeSegundos) {
+        this.validadeMs = validadeSegundos * 1000;
+    }
+
+    public String emitir(String email, Long turmaId) {
+        long agora = System.currentTimeMillis();
+        // Tickets nunca usados expiram aqui mesmo: o mapa só guarda os emitidos nos últimos segundos
+        tickets.values().removeIf(t -> t.expiraEm() < agora);
+
+        byte[] bytes = new byte[32];
+        aleatorio.nextBytes(bytes);
+        String ticket = Base64.getUrlEncoder().withoutPadding().encodeToString(bytes);
+        tickets.put(ticket, new Ticket(email, turmaId, agora + validadeMs));
+        return ticket;
+    }
+
+    /** Consome o ticket e devolve o e-mail do usuário, ou null se não existir, expirou ou é de outra turma. */
+    public String consumir(String ticket, Long turmaId) {
+        Ticket t = tickets.remove(ticket);
+        if (t == null || t.expiraEm() < System.currentTimeMillis() || !t.turmaId().equals(turmaId)) return null;
+        return t.email();
+    }
+}
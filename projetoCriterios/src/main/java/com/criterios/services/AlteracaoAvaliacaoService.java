@@ -0,0 +1,159 @@
+package com.criterios.services;
+
+import com.criterios.dto.AlteracoesAvaliacaoDTO;
+import com.criterios.dto.AvaliacaoDTO;
+import com.criterios.dto.AvaliacaoRespostaDTO;
+import com.criterios.eventos.AvaliacoesAlteradasEvento;
+import com.criterios.repository.AvaliacaoAlteracaoRepository;
+import com.criterios.repository.AvaliacaoJdbcRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Feed incremental de alterações das avaliações (cursor = id do change log).
+ *
+ * Ids auto-incremento são reservados no INSERT mas ficam visíveis só no commit, e transações concorrentes
+ * podem commitar fora de ordem. Por isso o cursor devolvido só avança até as alterações gravadas há mais de
+ * "margem-segundos": as mais recentes voltam de novo na consulta seguinte (sem efeito colateral, pois cada
+ * linha traz o estado atual da célula), mas nenhuma é pulada.
+ *
+ * A margem só vale se a linha do feed for commitada logo depois de carimbada. Por isso ela não é inserida no
+ * meio da transação da escrita (que pode durar dezenas de segundos), e sim no beforeCommit dela: o id e a data
+ * são reservados imediatamente antes do commit, e a linha entra ou sai junto com a escrita. Se o INSERT do feed
+ * falhar, a escrita inteira é desfeita; nenhuma célula gravada fica fora do feed.
+ *
+ * Linhas mais antigas que "retencao-horas" são removidas periodicamente. Um cursor anterior ao ponto de remoção
+ * recebe {@code recarregar = true}: o cliente deve recarregar as avaliações inteiras e seguir do cursor novo.
+ *
+ * Também publica {@link AvaliacoesAlteradasEvento}, que alimenta o stream SSE das turmas após o commit.
+ */
+@Slf4j
+@Service
+public class AlteracaoAvaliacaoService {
+
+    private static final int LOTE_LIMPEZA = 5000;
+
+    private final AvaliacaoAlteracaoRepository alteracaoRepository;
+    private final AvaliacaoJdbcRepository avaliacaoJdbcRepository;
+    private final ApplicationEventPublisher eventPublisher;
+    private final TransactionTemplate transacaoLimpeza;
+    private final long margemSegundos;
+    private final long retencaoHoras;
+
+    public AlteracaoAvaliacaoService(AvaliacaoAlteracaoRepository alteracaoRepository,
+                                     AvaliacaoJdbcRepository avaliacaoJdbcRepository,
+                                     ApplicationEventPublisher eventPublisher,
+                                     PlatformTransactionManager transactionManager,
+                                     @Value("${criterios.avaliacao.changes.margem-segundos:10}") long margemSegundos,
+                                     @Value("${criterios.avaliacao.changes.retencao-horas:72}") long retencaoHoras) {
+        this.alteracaoRepository = alteracaoRepository;
+        this.avaliacaoJdbcRepository = avaliacaoJdbcRepository;
+        this.eventPublisher = eventPublisher;
+        this.margemSegundos = margemSegundos;
+        this.retencaoHoras = retencaoHoras;
+
+        this.transacaoLimpeza = new TransactionTemplate(transactionManager);
+    }
+
+    /** Registra as células gravadas (no feed, logo antes do commit). Chamar dentro da transação da escrita. */
+    @Transactional
+    public void registrar(Collection<AvaliacaoDTO> avaliacoes) {
+        List<AvaliacaoDTO> celulasFeed = List.copyOf(avaliacoes);
+        antesDoCommit(() -> avaliacaoJdbcRepository.registrarAlteracoes(celulasFeed));
+
+        Map<Long, List<AvaliacaoDTO>> porSnapshot = new LinkedHashMap<>();
+        for (AvaliacaoDTO dto : avaliacoes) {
+            porSnapshot.computeIfAbsent(dto.getEstruturaDisciplinaId(), k -> new ArrayList<>()).add(dto);
+        }
+        porSnapshot.forEach((snapshotId, celulas) -> {
+            Collection<Long> alunos = new LinkedHashSet<>();
+            celulas.forEach(dto -> alunos.add(dto.getAlunoId()));
+            eventPublisher.publishEvent(new AvaliacoesAlteradasEvento(
+                    AvaliacoesAlteradasEvento.Tipo.CELULAS, snapshotId, celulas, alunos));
+        });
+    }
+
+    /** Registra que todas as células dos alunos no snapshot mudaram (fechamento ou reabertura). */
+    @Transactional
+    public void registrarPorAlunos(Collection<Long> alunoIds, Long snapshotDisciplinaId, boolean finalizada) {
+        if (alunoIds.isEmpty()) return;
+        List<Long> alunosFeed = List.copyOf(alunoIds);
+        antesDoCommit(() -> alteracaoRepository.registrarPorAlunos(alunosFeed, snapshotDisciplinaId, LocalDateTime.now()));
+
+        AvaliacoesAlteradasEvento.Tipo tipo = finalizada
+                ? AvaliacoesAlteradasEvento.Tipo.FECHAMENTO : AvaliacoesAlteradasEvento.Tipo.REABERTURA;
+        eventPublisher.publishEvent(new AvaliacoesAlteradasEvento(tipo, snapshotDisciplinaId, List.of(), List.copyOf(alunoIds)));
+    }
+
+    /**
+     * Alterações da turma no snapshot desde o cursor. Sem cursor, devolve apenas o cursor atual
+     * (o cliente acabou de carregar a lista completa e passa a consultar a partir dele).
+     * Cursor anterior às linhas já removidas: devolve o cursor atual com {@code recarregar = true}.
+     */
+    @Transactional(readOnly = true)
+    public AlteracoesAvaliacaoDTO buscarDesde(Long turmaId, Long snapshotDisciplinaId, Long cursor) {
+        LocalDateTime limite = LocalDateTime.now().minusSeconds(margemSegundos);
+        Long primeiro = cursor != null ? alteracaoRepository.findPrimeiroId() : null;
+        if (cursor == null || (primeiro != null && cursor < primeiro - 1)) {
+            Long estavel = alteracaoRepository.findCursorEstavel(0L, limite);
+            return new AlteracoesAvaliacaoDTO(estavel != null ? estavel : 0L, List.of(), cursor != null);
+        }
+
+        List<AvaliacaoRespostaDTO> alteradas = alteracaoRepository.findAlteradasDesde(turmaId, snapshotDisciplinaId, cursor);
+        Long estavel = alteracaoRepository.findCursorEstavel(cursor, limite);
+        return new AlteracoesAvaliacaoDTO(estavel != null ? estavel : cursor, alteradas, false);
+    }
+
+    /**
+     * Remove as linhas do feed mais antigas que a retenção, em lotes (cada um na sua transação).
+     * A linha mais recente nunca é removida: o menor id restante marca o ponto de remoção para buscarDesde.
+     */
+    @Scheduled(initialDelayString = "${criterios.avaliacao.changes.limpeza-atraso-inicial-ms:600000}",
+               fixedDelayString = "${criterios.avaliacao.changes.limpeza-ms:3600000}")
+    public void removerAntigas() {
+        Long ultimo = alteracaoRepository.findUltimoId();
+        if (ultimo == null) return;
+        LocalDateTime limite = LocalDateTime.now().minusHours(retencaoHoras);
+        try {
+            long removidas = 0;
+            Integer lote;
+            do {
+                lote = transacaoLimpeza.execute(status -> alteracaoRepository.excluirAntesDe(ultimo, limite, LOTE_LIMPEZA));
+                removidas += lote != null ? lote : 0;
+            } while (lote != null && lote == LOTE_LIMPEZA);
+            if (removidas > 0) log.info("Feed de alterações: {} linhas anteriores a {} removidas", removidas, limite);
+        } catch (RuntimeException e) {
+            log.error("Falha na limpeza do feed de alterações: {}", e.getMessage());
+        }
+    }
+
+    // Na mesma transação da escrita, mas só no fim: uma falha aqui desfaz a escrita em vez de perder a linha do feed
+    private void antesDoCommit(Runnable gravacao) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            gravacao.run();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void beforeCommit(boolean readOnly) {
+                gravacao.run();
+            }
+        });
+    }
+}
@@ -0,0 +1,91 @@
+package com.criterios.services;
+
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+
+/**
+ * Upload já copiado para um arquivo temporário, exposto como MultipartFile para que as importações assíncronas
+ * reutilizem os mesmos métodos de ArquivoService depois que a requisição original terminou.
+ */
+final class ArquivoEmDisco implements MultipartFile {
+
+    private final Path caminho;
+    private final String nomeOriginal;
+    private final String tipoConteudo;
+
+    private ArquivoEmDisco(Path caminho, String nomeOriginal, String tipoConteudo) {
+        this.caminho = caminho;
+        this.nomeOriginal = nomeOriginal;
+        this.tipoConteudo = tipoConteudo;
+    }
+
+    /** Copia o upload para um temporário; quem recebe é responsável por chamar {@link #excluir()}. */
+    static ArquivoEmDisco copiar(MultipartFile upload) throws IOException {
+        Path temporario = Files.createTempFile("importacao-", ".upload");
+        try (InputStream in = upload.getInputStream()) {
+            Files.copy(in, temporario, StandardCopyOption.REPLACE_EXISTING);
+        } catch (IOException e) {
+            Files.deleteIfExists(temporario);
+            throw e;
+        }
+        return new ArquivoEmDisco(temporario, upload.getOriginalFilename(), upload.getContentType());
+    }
+
+    void excluir() {
+        try {
+            Files.deleteIfExists(caminho);
+        } catch (IOException ignorado) {
+            caminho.toFile().deleteOnExit();
+        }
+    }
+
+    @Override
+    public String getName() {
+        return "file";
+    }
+
+    @Override
+    public String getOriginalFilename() {
+        return nomeOriginal;
+    }
+
+    @Override
+    public String getContentType() {
+        return tipoConteudo;
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return getSize() == 0;
+    }
+
+    @Override
+    public long getSize() {
+        try {
+            return Files.size(caminho);
+        } catch (IOException e) {
+            return 0;
+        }
+    }
+
+    @Override
+    public byte[] getBytes() throws IOException {
+        return Files.readAllBytes(caminho);
+    }
+
+    @Override
+    public InputStream getInputStream() throws IOException {
+        return Files.newInputStream(caminho);
+    }
+
+    @Override
+    public void transferTo(File destino) throws IOException {
+        Files.copy(caminho, destino.toPath(), StandardCopyOption.REPLACE_EXISTING);
+    }
+}
@@ -5,24 +5,30 @@ import com.criterios.dto.CritItemDTO;
 import com.criterios.dto.EstruturaImportacaoDTO;
 import com.criterios.dto.CapItemDTO;
 import com.criterios.entities.*;
+import com.criterios.eventos.TemplateAlteradoEvento;
 import com.criterios.repository.*;
 import lombok.RequiredArgsConstructor;
-import org.apache.pdfbox.pdmodel.PDDocument;
-import org.apache.pdfbox.text.PDFTextStripper;
 import org.apache.poi.ss.usermodel.*;
 import org.apache.poi.xssf.usermodel.XSSFWorkbook;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 import org.springframework.web.multipart.MultipartFile;
 
-import java.io.BufferedReader;
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
-import java.io.InputStreamReader;
-import java.nio.charset.StandardCharsets;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
 import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.List;
-import java.util.regex.Matcher;
+import java.util.Locale;
+import java.util.Set;
+import java.util.function.IntConsumer;
 import java.util.regex.Pattern;
 
 @Service
@@ -36,6 +42,13 @@ public class ArquivoService {
     private final CapacidadeRepository capacidadeRepository;
     private final CriterioRepository criterioRepository;
     private final SnapshotDisciplinaRepository snapshotDisciplinaRepository; // [CORRIGIDO] Novo repositório para Snapshot
+    private final AlunoJdbcRepository alunoJdbcRepository;
+    private final ExtratorAlunosPdf extratorAlunosPdf;
+    private final ApplicationEventPublisher eventPublisher;
+    private final PlatformTransactionManager transactionManager;
+
+    private static final Pattern ESPACOS = Pattern.compile("\\s+");
+    private static final IntConsumer SEM_PROGRESSO = linhas -> {};
 
     // --- 1. GERAÇÃO DE EXCEL (Boletim) ---
     public byte[] gerarBoletimExcel(Long alunoId, Long snapshotDisciplinaId) throws IOException { // [CORRIGIDO] Recebe snapshotDisciplinaId
@@ -104,95 +117,108 @@ public class ArquivoService {
         }
     }
 
-    // ... (Métodos de importação de Alunos e Critérios permanecem inalterados, pois usam repositórios genéricos)
-    @Transactional
+    // [IMPORTAÇÃO] Lista de chamada em PDF: extração paralela por blocos de páginas (ExtratorAlunosPdf),
+    // deduplicação em memória contra os nomes já existentes na turma e inclusão num único lote JDBC.
+    // A extração roda fora de transação; só a busca da turma e a inclusão ocupam uma conexão.
     public String importarAlunosViaPdf(MultipartFile file, Long turmaId) throws IOException {
-        Turma turma = turmaRepository.findById(turmaId)
-                .orElseThrow(() -> new RuntimeException("Turma não encontrada"));
-        // ... (restante da lógica de importação de alunos)
-        try (PDDocument document = PDDocument.load(file.getInputStream())) {
-            PDFTextStripper stripper = new PDFTextStripper();
-            stripper.setSortByPosition(true); 
-            String text = stripper.getText(document);
-
-            int count = 0;
-            Pattern pattern = Pattern.compile("(?m)^[\\s\"]*(\\d{8})[\\s\"]*[,|]?[\\s\"]*([^\"|\\n]+)");
-            Matcher matcher = pattern.matcher(text);
-
-            while (matcher.find()) {
-                String nomeBruto = matcher.group(2);
-                if (nomeBruto == null || nomeBruto.trim().isEmpty()) continue;
-
-                String nomeLimpo = nomeBruto.trim().toUpperCase();
-                if (eCabecalho(nomeLimpo)) continue;
-
-                salvarAlunoSeNaoExistir(nomeLimpo, turma);
-                count++;
-            }
-            
-            if (count == 0) return "Nenhum aluno identificado.";
-            return "Processamento concluído. " + count + " alunos importados para a turma " + turma.getNome();
-        }
+        return importarAlunosViaPdf(file, turmaId, SEM_PROGRESSO);
     }
 
-    private boolean eCabecalho(String texto) {
-        String t = texto.toUpperCase();
-        return t.contains("SENAI") || t.contains("CURSO") || t.contains("DOCENTE") || 
-               t.contains("TURMA") || t.contains("MATRÍCULA") || t.contains("NOME DO ALUNO");
+    // progresso: recebe a quantidade de linhas (alunos) extraídas de cada bloco de páginas
+    public String importarAlunosViaPdf(MultipartFile file, Long turmaId, IntConsumer progresso) throws IOException {
+        List<String> nomes = extratorAlunosPdf.extrairNomes(file.getBytes(), progresso);
+
+        // Chamada interna não passa pelo proxy de incluirAlunosNaTurma: a transação é aberta aqui
+        TransactionTemplate inclusao = new TransactionTemplate(transactionManager);
+        return inclusao.execute(status -> {
+            Turma turma = turmaRepository.findById(turmaId)
+                    .orElseThrow(() -> new RuntimeException("Turma não encontrada"));
+            if (nomes.isEmpty()) return "Nenhum aluno identificado.";
+
+            int importados = incluirAlunosNaTurma(turmaId, nomes);
+            int ignorados = nomes.size() - importados;
+            return "Processamento concluído. " + importados + " alunos importados para a turma " + turma.getNome()
+                    + (ignorados > 0 ? " (" + ignorados + " já existentes ou repetidos ignorados)." : ".");
+        });
     }
 
-    private void salvarAlunoSeNaoExistir(String nomeAluno, Turma turma) {
-        String nomeFinal = nomeAluno.replace("\"", "").trim();
-        boolean existe = false;
-        if(turma.getAlunos() != null) {
-            existe = turma.getAlunos().stream()
-                .anyMatch(a -> a.getNome().equalsIgnoreCase(nomeFinal));
+    /**
+     * Inclui na turma, num único lote, os nomes que ainda não existem nela (nem repetidos na própria lista).
+     * Devolve quantos foram incluídos. Também usado pela importação de várias turmas, uma transação por turma.
+     */
+    @Transactional
+    public int incluirAlunosNaTurma(Long turmaId, List<String> nomes) {
+        Set<String> conhecidos = new HashSet<>();
+        for (String existente : alunoRepository.findNomesByTurmaId(turmaId)) {
+            conhecidos.add(normalizarNomeAluno(existente));
         }
-        
-        if (!existe && !nomeFinal.isEmpty()) {
-            Aluno novoAluno = new Aluno();
-            novoAluno.setNome(nomeFinal);
-            novoAluno.setTurma(turma);
-            alunoRepository.save(novoAluno);
+        List<String> novos = new ArrayList<>();
+        for (String nome : nomes) {
+            if (conhecidos.add(normalizarNomeAluno(nome))) novos.add(nome);
         }
+        alunoJdbcRepository.inserirAlunos(novos, turmaId);
+        return novos.size();
+    }
+
+    // Mesma comparação do antigo equalsIgnoreCase, sem diferenciar espaços repetidos
+    private static String normalizarNomeAluno(String nome) {
+        return ESPACOS.matcher(nome.trim()).replaceAll(" ").toUpperCase(Locale.ROOT);
     }
 
     @Transactional
     public String importarCriteriosViaArquivo(MultipartFile file, Long capacidadeId) throws IOException {
+        return importarCriteriosViaArquivo(file, capacidadeId, SEM_PROGRESSO);
+    }
+
+    @Transactional
+    public String importarCriteriosViaArquivo(MultipartFile file, Long capacidadeId, IntConsumer progresso) throws IOException {
         Capacidade capacidade = capacidadeRepository.findById(capacidadeId)
                 .orElseThrow(() -> new RuntimeException("Capacidade não encontrada"));
 
-        try (BufferedReader reader = new BufferedReader(
-                new InputStreamReader(file.getInputStream(), StandardCharsets.UTF_8))) {
+        // Snapshots são imutáveis (a estrutura serializada e a régua ficam em cache)
+        if (capacidade.getSnapshotDisciplina() != null) {
+            throw new RuntimeException("Esta capacidade pertence a um Snapshot e não pode ser alterada.");
+        }
+
+        // [CSV] Uma linha por critério: "descrição" ou "descrição;tipo" (delimitador ';' ou ',' detectado)
+        try (LeitorCsv csv = LeitorCsv.abrir(file.getInputStream())) {
             
-            String line;
+            List<String> campos;
             int count = 0;
 
-            while ((line = reader.readLine()) != null) {
-                line = line.trim();
-                if (line.isEmpty() || line.startsWith("#")) continue;
+            while ((campos = csv.proximo()) != null) {
+                progresso.accept(1);
+                if (campos.get(0).trim().startsWith("#")) continue;
 
-                String descricao = line;
+                // A última coluna só é o tipo quando está vazia ou parece um; senão o delimitador fazia parte do texto
+                int fim = campos.size();
                 TipoCriterio tipo = TipoCriterio.CRITICO;
-
-                if (line.contains(";")) {
-                    String[] parts = line.split(";");
-                    descricao = parts[0].trim();
-                    if (parts.length > 1 && parts[1].toUpperCase().contains("DESEJ")) {
-                        tipo = TipoCriterio.DESEJAVEL;
-                    }
+                if (fim > 1) {
+                    String ultima = campos.get(fim - 1).trim().toUpperCase();
+                    if (ultima.contains("DESEJ")) tipo = TipoCriterio.DESEJAVEL;
+                    if (ultima.isEmpty() || ultima.contains("DESEJ") || ultima.contains("CRIT")) fim--;
                 }
+                String descricao = (fim == 1 ? campos.get(0) : String.join(String.valueOf(csv.getDelimitador()), campos.subList(0, fim))).trim();
+                if (descricao.isEmpty()) continue;
 
                 if (salvarCriterioSeNaoExistir(descricao, tipo, capacidade)) {
                     count++;
                 }
             }
+            if (count > 0) {
+                eventPublisher.publishEvent(new TemplateAlteradoEvento(capacidade.getEstruturaTemplate().getDisciplinaTemplateId()));
+            }
             return "Importação concluída! " + count + " critérios adicionados.";
         }
     }
 
     // --- 4. PRÉ-PROCESSAMENTO DE ESTRUTURA COMPLETA (CSV/XLSX) ---
     public EstruturaImportacaoDTO preProcessarEstrutura(MultipartFile file, Long disciplinaId) throws IOException {
+        return preProcessarEstrutura(file, disciplinaId, SEM_PROGRESSO);
+    }
+
+    // progresso: recebe 1 a cada linha lida da planilha/CSV
+    public EstruturaImportacaoDTO preProcessarEstrutura(MultipartFile file, Long disciplinaId, IntConsumer progresso) throws IOException {
         Disciplina disciplina = disciplinaRepository.findById(disciplinaId)
                 .orElseThrow(() -> new RuntimeException("Disciplina não encontrada"));
         // ... (restante da lógica de pré-processamento)
@@ -200,9 +226,9 @@ public class ArquivoService {
         
         if (file.getOriginalFilename() != null && 
             (file.getOriginalFilename().toLowerCase().endsWith(".xlsx") || file.getOriginalFilename().toLowerCase().endsWith(".xls"))) {
-            capacidades = parseExcelEstruturaToDTO(file);
+            capacidades = parseExcelEstruturaToDTO(file, progresso);
         } else {
-            capacidades = parseCsvEstruturaToDTO(file);
+            capacidades = parseCsvEstruturaToDTO(file, progresso);
         }
         
         EstruturaImportacaoDTO dto = new EstruturaImportacaoDTO();
@@ -214,20 +240,19 @@ public class ArquivoService {
     }
     
     // ... (Métodos auxiliares de parsing)
-    private List<CapItemDTO> parseCsvEstruturaToDTO(MultipartFile file) throws IOException {
+    // [CSV] Passada única (RFC 4180): aspas escapadas, quebras de linha dentro de aspas e ';' ou ',' como delimitador
+    private List<CapItemDTO> parseCsvEstruturaToDTO(MultipartFile file, IntConsumer progresso) throws IOException {
         List<CapItemDTO> capacidades = new ArrayList<>();
-        try (BufferedReader reader = new BufferedReader(
-                new InputStreamReader(file.getInputStream(), StandardCharsets.UTF_8))) {
+        try (LeitorCsv csv = LeitorCsv.abrir(file.getInputStream())) {
             
-            String line;
-            while ((line = reader.readLine()) != null) {
-                if (line.trim().isEmpty()) continue;
-
-                // Regex para splitar CSV ignorando vírgulas dentro de aspas
-                String[] columns = line.split(",(?=(?:[^\"]*\"[^\"]*\")*[^\"]*$)", -1);
+            List<String> campos;
+            while ((campos = csv.proximo()) != null) {
+                progresso.accept(1);
+                campos = desembrulharLinhaEntreAspas(campos, csv.getDelimitador());
 
-                String colCapacidade = (columns.length > 0) ? columns[0].replace("\"", "").trim() : "";
-                String colCriterio = (columns.length > 1) ? columns[1].replace("\"", "").trim() : "";
+                String colCapacidade = (campos.size() > 0) ? campos.get(0).trim() : "";
+                String colCriterio = (campos.size() > 1) ? campos.get(1).trim() : "";
+                if (colCapacidade.isEmpty() && colCriterio.isEmpty()) continue;
 
                 processarCapacidadeCritItem(colCapacidade, colCriterio, capacidades);
             }
@@ -235,7 +260,42 @@ public class ArquivoService {
         }
     }
 
-    private List<CapItemDTO> parseExcelEstruturaToDTO(MultipartFile file) throws IOException {
+    // Linha inteira entre aspas (o Excel regravando um CSV que já tinha aspas, como em Pasta4.csv):
+    // "cap, texto ,""crit""" chega como um único campo 'cap, texto ,"crit"'. Só é reinterpretada quando termina num
+    // campo entre aspas bem formado; o que vem antes dele é a capacidade, mesmo contendo o delimitador.
+    private static List<String> desembrulharLinhaEntreAspas(List<String> campos, char delimitador) {
+        if (campos.size() != 1) return campos;
+        String unico = campos.get(0).trim();
+        if (!unico.endsWith("\"")) return campos;
+        for (int i = unico.indexOf(delimitador); i >= 0; i = unico.indexOf(delimitador, i + 1)) {
+            String criterio = campoFinalEntreAspas(unico, i + 1);
+            if (criterio != null) return List.of(unico.substring(0, i), criterio);
+        }
+        return campos;
+    }
+
+    // Conteúdo do campo entre aspas que vai de "inicio" até o fim do texto (aspas internas dobradas), ou null
+    private static String campoFinalEntreAspas(String texto, int inicio) {
+        int fim = texto.length() - 1;
+        if (inicio >= fim || texto.charAt(inicio) != '"') return null;
+        StringBuilder conteudo = new StringBuilder(fim - inicio);
+        for (int i = inicio + 1; i < fim; i++) {
+            char c = texto.charAt(i);
+            if (c == '"') {
+                if (i + 1 >= fim || texto.charAt(i + 1) != '"') return null;
+                i++;
+            }
+            conteudo.append(c);
+        }
+        return conteudo.toString();
+    }
+
+    private List<CapItemDTO> parseExcelEstruturaToDTO(MultipartFile file, IntConsumer progresso) throws IOException {
+        if (file.getOriginalFilename().toLowerCase().endsWith(".xlsx")) {
+            return parseXlsxEstruturaToDTO(file, progresso);
+        }
+
+        // .xls (formato binário antigo, no máximo 65.536 linhas): carrega a pasta de trabalho inteira
         List<CapItemDTO> capacidades = new ArrayList<>();
         
         try (Workbook workbook = WorkbookFactory.create(file.getInputStream())) {
@@ -243,6 +303,7 @@ public class ArquivoService {
             DataFormatter dataFormatter = new DataFormatter();
 
             for (Row row : sheet) {
+                progresso.accept(1);
                 // Pega o valor da primeira coluna (Capacidade)
                 Cell cellCapacidade = row.getCell(0);
                 String colCapacidade = (cellCapacidade != null) ? dataFormatter.formatCellValue(cellCapacidade).trim() : "";
@@ -262,6 +323,26 @@ public class ArquivoService {
         }
     }
     
+    // [STREAMING] .xlsx lido no modelo de eventos (SAX): memória constante, as linhas vão direto para o processamento.
+    // O upload é copiado para um arquivo temporário porque o pacote aberto por arquivo não é descompactado em memória.
+    private List<CapItemDTO> parseXlsxEstruturaToDTO(MultipartFile file, IntConsumer progresso) throws IOException {
+        List<CapItemDTO> capacidades = new ArrayList<>();
+        Path temporario = Files.createTempFile("estrutura-", ".xlsx");
+        try {
+            try (InputStream in = file.getInputStream()) {
+                Files.copy(in, temporario, StandardCopyOption.REPLACE_EXISTING);
+            }
+            LeitorXlsxStreaming.lerPrimeiraAba(temporario.toFile(), 2,
+                    colunas -> {
+                        progresso.accept(1);
+                        processarCapacidadeCritItem(colunas[0], colunas[1], capacidades);
+                    });
+            return capacidades;
+        } finally {
+            Files.deleteIfExists(temporario);
+        }
+    }
+
     private void processarCapacidadeCritItem(String colCapacidade, String colCriterio, List<CapItemDTO> capacidades) {
         
         CapItemDTO ultimaCapacidade = capacidades.isEmpty() ? null : capacidades.get(capacidades.size() - 1);
@@ -274,8 +355,17 @@ public class ArquivoService {
             tipoSugerido = TipoCapacidade.SOCIOEMOCIONAL;
         }
 
+        // Caso 0: mesma capacidade repetida em linhas seguidas (uma linha por critério): só acrescenta o critério
+        if (!colCapacidade.isEmpty() && ultimaCapacidade != null && colCapacidade.equals(ultimaCapacidade.getDescricao())) {
+            if (!colCriterio.isEmpty()) {
+                CritItemDTO crit = new CritItemDTO();
+                crit.setDescricao(colCriterio);
+                crit.setTipo(TipoCriterio.DESEJAVEL);
+                ultimaCapacidade.getCriterios().add(crit);
+            }
+        }
         // Caso 1: Nova Capacidade e/ou Critério
-        if (!colCapacidade.isEmpty()) {
+        else if (!colCapacidade.isEmpty()) {
             CapItemDTO nova = new CapItemDTO();
             nova.setDescricao(colCapacidade);
             nova.setTipo(tipoSugerido);
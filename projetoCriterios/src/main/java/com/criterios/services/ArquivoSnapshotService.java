@@ -0,0 +1,224 @@
+package com.criterios.services;
+
+import com.criterios.dto.RegistroArquivoSnapshot;
+import com.criterios.dto.ResultadoImportacaoSnapshotDTO;
+import com.criterios.entities.Disciplina;
+import com.criterios.entities.Usuario;
+import com.criterios.repository.DisciplinaRepository;
+import com.criterios.repository.SnapshotArquivoJdbcRepository;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+import tools.jackson.core.JacksonException;
+import tools.jackson.databind.MappingIterator;
+import tools.jackson.databind.ObjectMapper;
+import tools.jackson.databind.SequenceWriter;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Exportação/importação de um Snapshot (estrutura + níveis e, opcionalmente, turmas, alunos e avaliações)
+ * num arquivo portátil: NDJSON (um registro por linha) compactado com gzip.
+ *
+ * Os dois lados trabalham em fluxo: a exportação escreve cada linha assim que ela sai do banco e a importação
+ * lê registro a registro, gravando em lotes JDBC. Em memória fica só o mapa "id do arquivo -> id novo".
+ */
+@Service
+@RequiredArgsConstructor
+public class ArquivoSnapshotService {
+
+    private static final int TAMANHO_LOTE = 500;
+
+    private final SnapshotArquivoJdbcRepository arquivoRepository;
+    private final DisciplinaRepository disciplinaRepository;
+    private final ResumoAvaliacaoService resumoAvaliacaoService;
+    private final ObjectMapper objectMapper;
+    private final PlatformTransactionManager transactionManager;
+
+    public boolean existe(Long snapshotId) {
+        return arquivoRepository.buscarCabecalho(snapshotId) != null;
+    }
+
+    /**
+     * Escreve o arquivo do snapshot em "saida". Todas as leituras rodam numa mesma transação somente leitura,
+     * para o arquivo refletir um único instante do banco.
+     */
+    public void exportar(Long snapshotId, boolean incluirAvaliacoes, OutputStream saida) throws IOException {
+        TransactionTemplate leitura = new TransactionTemplate(transactionManager);
+        leitura.setReadOnly(true);
+        leitura.setIsolationLevel(TransactionDefinition.ISOLATION_REPEATABLE_READ);
+
+        GZIPOutputStream gzip = new GZIPOutputStream(saida, 64 * 1024);
+        try (SequenceWriter escritor = objectMapper.writerFor(RegistroArquivoSnapshot.class)
+                .withRootValueSeparator("\n")
+                .writeValues(gzip)) {
+            leitura.executeWithoutResult(status -> {
+                RegistroArquivoSnapshot.Cabecalho cabecalho = arquivoRepository.buscarCabecalho(snapshotId);
+                if (cabecalho == null) {
+                    throw new RuntimeException("Snapshot não encontrado.");
+                }
+                escritor.write(cabecalho);
+                arquivoRepository.exportarEstrutura(snapshotId, escritor::write);
+                if (incluirAvaliacoes) {
+                    arquivoRepository.exportarTurmasEAvaliacoes(snapshotId, escritor::write);
+                }
+            });
+        }
+    }
+
+    /**
+     * Cria um novo snapshot a partir do arquivo (e as turmas/alunos/avaliações, se vierem nele).
+     * As turmas importadas ficam com o usuário que importou como professor responsável.
+     */
+    @Transactional
+    public ResultadoImportacaoSnapshotDTO importar(InputStream arquivo, Usuario importador) throws IOException {
+        long inicio = System.nanoTime();
+        Importacao importacao = new Importacao(importador.getId());
+
+        try (MappingIterator<RegistroArquivoSnapshot> registros = objectMapper.readerFor(RegistroArquivoSnapshot.class)
+                .readValues(new GZIPInputStream(arquivo, 64 * 1024))) {
+            while (registros.hasNextValue()) {
+                importacao.receber(registros.nextValue());
+            }
+        } catch (JacksonException e) {
+            throw new RuntimeException("Arquivo inválido: " + e.getOriginalMessage());
+        }
+        importacao.descarregar();
+
+        ResultadoImportacaoSnapshotDTO resultado = importacao.resultado;
+        if (resultado.getSnapshotId() == null) {
+            throw new RuntimeException("Arquivo vazio ou sem cabeçalho de snapshot.");
+        }
+
+        // Contadores materializados dos alunos importados
+        List<Long> alunos = new ArrayList<>(importacao.alunos.values());
+        for (int i = 0; i < alunos.size(); i += TAMANHO_LOTE) {
+            resumoAvaliacaoService.recalcular(alunos.subList(i, Math.min(i + TAMANHO_LOTE, alunos.size())), resultado.getSnapshotId());
+        }
+
+        resultado.setTempoMs((System.nanoTime() - inicio) / 1_000_000);
+        return resultado;
+    }
+
+    /**
+     * Estado de uma importação: registros pendentes do tipo atual e os mapas de ids (arquivo -> banco).
+     * Um lote é gravado quando enche ou quando o tipo muda; como o arquivo traz os pais antes dos filhos,
+     * o id novo de um pai sempre existe quando o filho é gravado.
+     */
+    private class Importacao {
+        private final Long professorId;
+        private final ResultadoImportacaoSnapshotDTO resultado = new ResultadoImportacaoSnapshotDTO();
+        private final Map<Long, Long> capacidades = new HashMap<>();
+        private final Map<Long, Long> criterios = new HashMap<>();
+        private final Map<Long, Long> turmas = new HashMap<>();
+        private final Map<Long, Long> alunos = new HashMap<>();
+        private final List<RegistroArquivoSnapshot> pendentes = new ArrayList<>(TAMANHO_LOTE);
+        private Long disciplinaTemplateId;
+
+        Importacao(Long professorId) {
+            this.professorId = professorId;
+        }
+
+        void receber(RegistroArquivoSnapshot registro) {
+            if (registro instanceof RegistroArquivoSnapshot.Cabecalho cabecalho) {
+                iniciar(cabecalho);
+                return;
+            }
+            if (resultado.getSnapshotId() == null) {
+                throw new RuntimeException("Arquivo inválido: o cabeçalho do snapshot deve ser a primeira linha.");
+            }
+            if (!pendentes.isEmpty() && (pendentes.get(0).getClass() != registro.getClass() || pendentes.size() >= TAMANHO_LOTE)) {
+                descarregar();
+            }
+            pendentes.add(registro);
+        }
+
+        private void iniciar(RegistroArquivoSnapshot.Cabecalho cabecalho) {
+            if (resultado.getSnapshotId() != null) {
+                throw new RuntimeException("Arquivo inválido: mais de um cabeçalho de snapshot.");
+            }
+            if (cabecalho.versao() > RegistroArquivoSnapshot.VERSAO_ATUAL) {
+                throw new RuntimeException("Versão de arquivo não suportada: " + cabecalho.versao());
+            }
+            // Os ids de template não valem entre ambientes: procura a disciplina pela sigla
+            disciplinaTemplateId = cabecalho.siglaDisciplina() == null ? null
+                    : disciplinaRepository.findFirstBySiglaOrderByIdAsc(cabecalho.siglaDisciplina()).map(Disciplina::getId).orElse(null);
+            resultado.setSnapshotId(arquivoRepository.inserirSnapshot(cabecalho, disciplinaTemplateId));
+        }
+
+        void descarregar() {
+            if (pendentes.isEmpty()) return;
+            RegistroArquivoSnapshot primeiro = pendentes.get(0);
+            Long snapshotId = resultado.getSnapshotId();
+
+            if (primeiro instanceof RegistroArquivoSnapshot.Capacidade) {
+                List<RegistroArquivoSnapshot.Capacidade> lote = lote(RegistroArquivoSnapshot.Capacidade.class);
+                mapear(capacidades, lote.stream().map(RegistroArquivoSnapshot.Capacidade::id).toList(),
+                        arquivoRepository.inserirCapacidades(lote, snapshotId));
+                resultado.setCapacidades(resultado.getCapacidades() + lote.size());
+            } else if (primeiro instanceof RegistroArquivoSnapshot.Criterio) {
+                List<RegistroArquivoSnapshot.Criterio> lote = lote(RegistroArquivoSnapshot.Criterio.class).stream()
+                        .map(c -> new RegistroArquivoSnapshot.Criterio(c.id(), novoId(capacidades, c.capacidadeId(), "capacidade"),
+                                c.descricao(), c.tipo()))
+                        .toList();
+                mapear(criterios, lote.stream().map(RegistroArquivoSnapshot.Criterio::id).toList(),
+                        arquivoRepository.inserirCriterios(lote));
+                resultado.setCriterios(resultado.getCriterios() + lote.size());
+            } else if (primeiro instanceof RegistroArquivoSnapshot.Nivel) {
+                List<RegistroArquivoSnapshot.Nivel> lote = lote(RegistroArquivoSnapshot.Nivel.class);
+                arquivoRepository.inserirNiveis(lote, snapshotId);
+                resultado.setNiveis(resultado.getNiveis() + lote.size());
+            } else if (primeiro instanceof RegistroArquivoSnapshot.Turma) {
+                List<RegistroArquivoSnapshot.Turma> lote = lote(RegistroArquivoSnapshot.Turma.class);
+                mapear(turmas, lote.stream().map(RegistroArquivoSnapshot.Turma::id).toList(),
+                        arquivoRepository.inserirTurmas(lote, snapshotId, disciplinaTemplateId, professorId));
+                resultado.setTurmas(resultado.getTurmas() + lote.size());
+            } else if (primeiro instanceof RegistroArquivoSnapshot.Aluno) {
+                List<RegistroArquivoSnapshot.Aluno> lote = lote(RegistroArquivoSnapshot.Aluno.class).stream()
+                        .map(a -> new RegistroArquivoSnapshot.Aluno(a.id(), novoId(turmas, a.turmaId(), "turma"), a.nome()))
+                        .toList();
+                mapear(alunos, lote.stream().map(RegistroArquivoSnapshot.Aluno::id).toList(),
+                        arquivoRepository.inserirAlunos(lote));
+                resultado.setAlunos(resultado.getAlunos() + lote.size());
+            } else if (primeiro instanceof RegistroArquivoSnapshot.Avaliacao) {
+                List<RegistroArquivoSnapshot.Avaliacao> lote = lote(RegistroArquivoSnapshot.Avaliacao.class).stream()
+                        .map(a -> new RegistroArquivoSnapshot.Avaliacao(novoId(alunos, a.alunoId(), "aluno"),
+                                novoId(criterios, a.criterioId(), "critério"), a.atendeu(), a.observacao(),
+                                a.dataAvaliacao(), a.finalizada(), a.nivelFinal()))
+                        .toList();
+                arquivoRepository.inserirAvaliacoes(lote);
+                resultado.setAvaliacoes(resultado.getAvaliacoes() + lote.size());
+            }
+            pendentes.clear();
+        }
+
+        private <T extends RegistroArquivoSnapshot> List<T> lote(Class<T> tipo) {
+            List<T> lote = new ArrayList<>(pendentes.size());
+            for (RegistroArquivoSnapshot registro : pendentes) lote.add(tipo.cast(registro));
+            return lote;
+        }
+
+        private static void mapear(Map<Long, Long> mapa, List<Long> idsArquivo, List<Long> idsNovos) {
+            for (int i = 0; i < idsArquivo.size(); i++) mapa.put(idsArquivo.get(i), idsNovos.get(i));
+        }
+
+        private static Long novoId(Map<Long, Long> mapa, Long idArquivo, String entidade) {
+            Long id = mapa.get(idArquivo);
+            if (id == null) {
+                throw new RuntimeException("Arquivo inválido: " + entidade + " " + idArquivo + " não encontrado(a) no arquivo.");
+            }
+            return id;
+        }
+    }
+}
@@ -1,15 +1,25 @@
 package com.criterios.services;
 
 import com.criterios.dto.AvaliacaoDTO;
+import com.criterios.dto.AvaliacaoRespostaDTO;
+import com.criterios.dto.ItemLoteResultadoDTO;
 import com.criterios.dto.ResultadoBoletimDTO;
+import com.criterios.dto.ResultadoFechamentoDTO;
 import com.criterios.entities.*;
 import com.criterios.repository.*;
 import lombok.RequiredArgsConstructor;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
-import java.util.stream.Collectors;
+import java.util.Map;
+import java.util.Set;
 
 @Service
 @RequiredArgsConstructor
@@ -18,49 +28,125 @@ public class AvaliacaoServices {
     private final AvaliacaoRepository avaliacaoRepository;
     private final AlunoRepository alunoRepository;
     private final CriterioRepository criterioRepository;
-    private final NivelAvaliacaoRepository nivelRepository;
     private final SnapshotDisciplinaRepository snapshotDisciplinaRepository;
+    private final AvaliacaoJdbcRepository avaliacaoJdbcRepository;
+    private final ReguaNiveisService reguaNiveisService;
+    private final ResumoAvaliacaoService resumoAvaliacaoService;
+    private final BufferAvaliacaoService bufferAvaliacaoService;
+    private final AlteracaoAvaliacaoService alteracaoAvaliacaoService;
 
     /**
      * Registra ou atualiza uma avaliação de um critério específico para um aluno.
-     * Valida se o critério pertence ao snapshot correto da turma.
+     * Valida se o critério pertence ao snapshot correto da turma com uma única consulta
+     * e grava via JDBC, devolvendo a linha sem o grafo do Critério. Os contadores recebem só a diferença da célula.
      */
     @Transactional(timeout = 30)
-    public Avaliacao registrarAvaliacao(AvaliacaoDTO dto) {
-        Aluno aluno = alunoRepository.findById(dto.getAlunoId())
-                .orElseThrow(() -> new RuntimeException("Aluno não encontrado"));
-        
-        if (aluno.getTurma() == null) {
+    public AvaliacaoRespostaDTO registrarAvaliacao(AvaliacaoDTO dto) {
+        AvaliacaoJdbcRepository.ValidacaoCelula validacao =
+                avaliacaoJdbcRepository.validarCelula(dto.getAlunoId(), dto.getCriterioId());
+
+        if (!validacao.alunoExiste()) {
+            throw new RuntimeException("Aluno não encontrado");
+        }
+        if (validacao.turmaId() == null) {
             throw new RuntimeException("Aluno não pertence a nenhuma turma");
         }
-        
-        Criterio criterio = criterioRepository.findById(dto.getCriterioId())
-                .orElseThrow(() -> new RuntimeException("Critério não encontrado"));
+        if (!validacao.criterioExiste()) {
+            throw new RuntimeException("Critério não encontrado");
+        }
 
         // Validação: Garante que o critério pertence a um Snapshot e não ao Template original
-        if (criterio.getCapacidade() == null || criterio.getCapacidade().getSnapshotDisciplina() == null) {
+        if (validacao.snapshotId() == null) {
             throw new RuntimeException("Erro: Este critério pertence ao Template e não pode ser usado para avaliações.");
         }
 
         // Validação: Verifica se o Snapshot do critério é o mesmo informado na requisição
-        if (!criterio.getCapacidade().getSnapshotDisciplina().getId().equals(dto.getEstruturaDisciplinaId())) {
+        if (!validacao.snapshotId().equals(dto.getEstruturaDisciplinaId())) {
             throw new RuntimeException("Critério não pertence à estrutura de avaliação desta turma.");
         }
 
-        Avaliacao avaliacao = avaliacaoRepository
-                .findByAlunoIdAndCriterioId(dto.getAlunoId(), dto.getCriterioId())
-                .orElse(new Avaliacao());
+        // Write-behind: a gravação (e o resumo) acontece na próxima descarga do buffer; o id ainda não existe
+        if (bufferAvaliacaoService.isHabilitado()) {
+            bufferAvaliacaoService.enfileirar(dto);
+            return new AvaliacaoRespostaDTO(null, dto.getAlunoId(), dto.getCriterioId(), dto.getAtendeu(),
+                    dto.getObservacao() != null ? dto.getObservacao() : "", LocalDateTime.now(), false, null);
+        }
 
-        avaliacao.setAluno(aluno);
-        avaliacao.setCriterio(criterio);
-        avaliacao.setAtendeu(dto.getAtendeu());
-        avaliacao.setObservacao(dto.getObservacao() != null ? dto.getObservacao() : "");
-        
-        // Sempre que uma nota é alterada, o status de finalização é resetado
-        avaliacao.setFinalizada(false);
-        avaliacao.setNivelFinal(null);
+        // Sempre que uma nota é alterada, o status de finalização é resetado (feito na própria gravação)
+        AvaliacaoJdbcRepository.GravacaoCelula gravacao = avaliacaoJdbcRepository.gravar(dto, validacao.avaliacaoId());
+        resumoAvaliacaoService.aplicarAlteracao(dto, gravacao.anterior(), validacao.tipo());
+        alteracaoAvaliacaoService.registrar(List.of(dto));
+        return gravacao.resposta();
+    }
 
-        return avaliacaoRepository.save(avaliacao);
+    /**
+     * Registra várias avaliações (de um ou de vários alunos) numa única transação.
+     * Alunos e critérios são validados com uma consulta cada; os itens válidos são gravados
+     * em lote via JDBC e cada item recebe seu próprio status na resposta.
+     */
+    @Transactional(timeout = 60)
+    public List<ItemLoteResultadoDTO> registrarAvaliacoesEmLote(List<AvaliacaoDTO> dtos) {
+        if (dtos == null || dtos.isEmpty()) {
+            throw new RuntimeException("Nenhuma avaliação informada.");
+        }
+
+        Set<Long> alunoIds = new HashSet<>();
+        Set<Long> criterioIds = new HashSet<>();
+        for (AvaliacaoDTO dto : dtos) {
+            if (dto.getAlunoId() != null) alunoIds.add(dto.getAlunoId());
+            if (dto.getCriterioId() != null) criterioIds.add(dto.getCriterioId());
+        }
+
+        // aluno -> turma e critério -> snapshot, carregados uma única vez para todo o lote
+        Map<Long, Long> turmaPorAluno = new HashMap<>();
+        if (!alunoIds.isEmpty()) {
+            for (Object[] linha : alunoRepository.findTurmaIdsByAlunoIds(alunoIds)) {
+                turmaPorAluno.put((Long) linha[0], (Long) linha[1]);
+            }
+        }
+        Map<Long, Long> snapshotPorCriterio = new HashMap<>();
+        if (!criterioIds.isEmpty()) {
+            for (Object[] linha : criterioRepository.findSnapshotIdsByCriterioIds(criterioIds)) {
+                snapshotPorCriterio.put((Long) linha[0], (Long) linha[1]);
+            }
+        }
+
+        List<ItemLoteResultadoDTO> resultados = new ArrayList<>(dtos.size());
+        // Se a mesma célula vier repetida no lote, prevalece a última ocorrência
+        Map<String, AvaliacaoDTO> validos = new LinkedHashMap<>();
+
+        for (AvaliacaoDTO dto : dtos) {
+            String erro = validarItemLote(dto, turmaPorAluno, snapshotPorCriterio);
+            resultados.add(new ItemLoteResultadoDTO(dto.getAlunoId(), dto.getCriterioId(), erro == null, erro != null ? erro : "OK"));
+            if (erro == null) {
+                validos.put(dto.getAlunoId() + ":" + dto.getCriterioId(), dto);
+            }
+        }
+
+        // Contadores materializados: delta de cada célula a partir do valor anterior lido na gravação
+        AvaliacaoJdbcRepository.GravacaoLote gravacao = avaliacaoJdbcRepository.gravarEmLote(validos.values());
+        resumoAvaliacaoService.aplicarAlteracoes(validos.values(), gravacao);
+        alteracaoAvaliacaoService.registrar(validos.values());
+
+        return resultados;
+    }
+
+    private String validarItemLote(AvaliacaoDTO dto, Map<Long, Long> turmaPorAluno, Map<Long, Long> snapshotPorCriterio) {
+        if (dto.getAlunoId() == null || dto.getCriterioId() == null || dto.getEstruturaDisciplinaId() == null) {
+            return "Campos obrigatórios ausentes (alunoId, criterioId, estruturaDisciplinaId).";
+        }
+        if (!turmaPorAluno.containsKey(dto.getAlunoId())) return "Aluno não encontrado";
+        if (turmaPorAluno.get(dto.getAlunoId()) == null) return "Aluno não pertence a nenhuma turma";
+        if (!snapshotPorCriterio.containsKey(dto.getCriterioId())) return "Critério não encontrado";
+
+        Long snapshotId = snapshotPorCriterio.get(dto.getCriterioId());
+        if (snapshotId == null) {
+            return "Erro: Este critério pertence ao Template e não pode ser usado para avaliações.";
+        }
+        if (!snapshotId.equals(dto.getEstruturaDisciplinaId())) {
+            return "Critério não pertence à estrutura de avaliação desta turma.";
+        }
+        return null;
     }
 
     /**
@@ -69,46 +155,30 @@ public class AvaliacaoServices {
      */
     @Transactional(readOnly = true)
     public ResultadoBoletimDTO calcularNivelAluno(Long alunoId, Long snapshotDisciplinaId) {
-        // Busca apenas avaliações vinculadas ao snapshot específico
-        List<Avaliacao> avaliacoes = avaliacaoRepository.findByAlunoAndEstruturaDisciplina(alunoId, snapshotDisciplinaId);
-
-        int criticosAtendidos = 0;
-        int desejaveisAtendidos = 0;
-
-        for (Avaliacao a : avaliacoes) {
-            if (Boolean.TRUE.equals(a.getAtendeu())) {
-                if (a.getCriterio().getTipo() == TipoCriterio.CRITICO) {
-                    criticosAtendidos++;
-                } else if (a.getCriterio().getTipo() == TipoCriterio.DESEJAVEL) {
-                    desejaveisAtendidos++;
-                }
-            }
-        }
+        // Contadores materializados do aluno no snapshot (sem linha = nenhuma avaliação)
+        ResumoAvaliacao resumo = resumoAvaliacaoService.buscar(alunoId, snapshotDisciplinaId).orElse(null);
+        int criticosAtendidos = resumo != null ? resumo.getCriticosAtendidos() : 0;
+        int desejaveisAtendidos = resumo != null ? resumo.getDesejaveisAtendidos() : 0;
 
-        // Busca a régua de níveis definida para este Snapshot específico (em ordem decrescente)
-        List<NivelAvaliacao> niveis = nivelRepository.findBySnapshotDisciplinaIdOrderByNivelDesc(snapshotDisciplinaId);
-        
-        // Busca todos os critérios do snapshot para calcular totais e percentual
-        List<Criterio> todosCriterios = criterioRepository.findBySnapshotDisciplinaId(snapshotDisciplinaId);
-        int totalCriticos = (int) todosCriterios.stream().filter(c -> c.getTipo() == TipoCriterio.CRITICO).count();
-        int totalDesejaveis = (int) todosCriterios.stream().filter(c -> c.getTipo() == TipoCriterio.DESEJAVEL).count();
-        
-        Integer nivelFinal = 0;
-        for (NivelAvaliacao n : niveis) {
-            // Regra de Negócio: O aluno deve ter atendido PELO MENOS o mínimo de cada tipo
-            if (criticosAtendidos >= n.getMinCriticos() && desejaveisAtendidos >= n.getMinDesejaveis()) {
-                nivelFinal = n.getNivel();
-                break; // Encontrou o maior nível possível
-            }
-        }
+        // Régua compilada (níveis + totais do snapshot) vinda do cache
+        ReguaCompilada regua = reguaNiveisService.obterRegua(snapshotDisciplinaId);
         
         String nomeDisciplina = snapshotDisciplinaRepository.findById(snapshotDisciplinaId)
                 .map(SnapshotDisciplina::getNomeDisciplina).orElse("N/A");
         String nomeAluno = alunoRepository.findById(alunoId).map(Aluno::getNome).orElse("N/A");
 
+        return montarResultado(nomeAluno, nomeDisciplina, criticosAtendidos, desejaveisAtendidos, regua);
+    }
+
+    private ResultadoBoletimDTO montarResultado(String nomeAluno, String nomeDisciplina,
+                                                int criticosAtendidos, int desejaveisAtendidos,
+                                                ReguaCompilada regua) {
+        int totalCriticos = regua.getTotalCriticos();
+        int totalDesejaveis = regua.getTotalDesejaveis();
         double totalItens = totalCriticos + totalDesejaveis;
         double percentual = (totalItens > 0) ? ((double)(criticosAtendidos + desejaveisAtendidos) / totalItens) * 100 : 0.0;
 
+        // Regra de Negócio: o aluno deve ter atendido PELO MENOS o mínimo de cada tipo
         return ResultadoBoletimDTO.builder()
                 .nomeAluno(nomeAluno)
                 .nomeDisciplina(nomeDisciplina)
@@ -116,7 +186,7 @@ public class AvaliacaoServices {
                 .qtdDesejaveisAtendidos(desejaveisAtendidos)
                 .totalCriticosDisciplina(totalCriticos)
                 .totalDesejaveisDisciplina(totalDesejaveis)
-                .nivelAlcancado(nivelFinal)
+                .nivelAlcancado(regua.nivelPara(criticosAtendidos, desejaveisAtendidos))
                 .percentualConclusao(percentual)
                 .build();
     }
@@ -124,54 +194,141 @@ public class AvaliacaoServices {
     @Transactional
     public ResultadoBoletimDTO finalizarAvaliacao(Long alunoId, Long snapshotDisciplinaId) {
         ResultadoBoletimDTO resultado = calcularNivelAluno(alunoId, snapshotDisciplinaId);
-        List<Avaliacao> avaliacoes = avaliacaoRepository.findByAlunoAndEstruturaDisciplina(alunoId, snapshotDisciplinaId);
 
-        if (avaliacoes.isEmpty()) {
+        int atualizadas = avaliacaoRepository.finalizarPorAlunos(
+                List.of(alunoId), snapshotDisciplinaId, resultado.getNivelAlcancado(), LocalDateTime.now());
+        if (atualizadas == 0) {
             throw new RuntimeException("Nenhuma avaliação encontrada para este aluno neste snapshot.");
         }
-
-        for (Avaliacao av : avaliacoes) {
-            av.setFinalizada(true);
-            av.setNivelFinal(resultado.getNivelAlcancado());
-            avaliacaoRepository.save(av);
-        }
+        alteracaoAvaliacaoService.registrarPorAlunos(List.of(alunoId), snapshotDisciplinaId, true);
         return resultado;
     }
 
     @Transactional
     public void reabrirAvaliacao(Long alunoId, Long snapshotDisciplinaId) {
-        List<Avaliacao> avaliacoes = avaliacaoRepository.findByAlunoAndEstruturaDisciplina(alunoId, snapshotDisciplinaId);
-        if (avaliacoes.isEmpty()) throw new RuntimeException("Nenhuma avaliação encontrada para reabrir.");
+        int atualizadas = avaliacaoRepository.reabrirPorAlunos(List.of(alunoId), snapshotDisciplinaId, LocalDateTime.now());
+        if (atualizadas == 0) throw new RuntimeException("Nenhuma avaliação encontrada para reabrir.");
+        alteracaoAvaliacaoService.registrarPorAlunos(List.of(alunoId), snapshotDisciplinaId, false);
+    }
 
-        for (Avaliacao av : avaliacoes) {
-            av.setFinalizada(false);
-            av.setNivelFinal(null);
-            avaliacaoRepository.save(av);
+    /**
+     * Boletim da turma inteira de forma agregada: os contadores de todos os alunos vêm da tabela de
+     * resumo numa única consulta; a régua (com os totais) vem do cache e o nome da disciplina é lido uma só vez.
+     * O resultado é o mesmo de chamar calcularNivelAluno para cada aluno (na ordem alfabética).
+     */
+    @Transactional(readOnly = true)
+    public List<ResultadoBoletimDTO> gerarBoletimTurma(Long turmaId, Long snapshotDisciplinaId) {
+        List<Aluno> alunos = alunoRepository.findByTurmaId(turmaId);
+        if (alunos.isEmpty()) return new ArrayList<>();
+
+        Map<Long, ResumoAvaliacao> resumos = resumoAvaliacaoService.buscarPorTurma(turmaId, snapshotDisciplinaId);
+        ReguaCompilada regua = reguaNiveisService.obterRegua(snapshotDisciplinaId);
+
+        String nomeDisciplina = snapshotDisciplinaRepository.findById(snapshotDisciplinaId)
+                .map(SnapshotDisciplina::getNomeDisciplina).orElse("N/A");
+
+        List<ResultadoBoletimDTO> boletins = new ArrayList<>(alunos.size());
+        for (Aluno aluno : alunos) {
+            ResumoAvaliacao r = resumos.get(aluno.getId());
+            int criticos = r != null ? r.getCriticosAtendidos() : 0;
+            int desejaveis = r != null ? r.getDesejaveisAtendidos() : 0;
+            boletins.add(montarResultado(aluno.getNome(), nomeDisciplina, criticos, desejaveis, regua));
         }
+        return boletins;
     }
 
+    /**
+     * Boletim de um conjunto de alunos (mesmo cálculo do boletim da turma), indexado pelo id do aluno.
+     * Usado para notificar mudanças de nível sem recalcular a turma inteira.
+     */
     @Transactional(readOnly = true)
-    public List<ResultadoBoletimDTO> gerarBoletimTurma(Long turmaId, Long snapshotDisciplinaId) {
+    public Map<Long, ResultadoBoletimDTO> gerarBoletimAlunos(Collection<Long> alunoIds, Long snapshotDisciplinaId) {
+        Map<Long, ResultadoBoletimDTO> boletins = new HashMap<>();
+        if (alunoIds.isEmpty()) return boletins;
+
+        Map<Long, ResumoAvaliacao> resumos = resumoAvaliacaoService.buscarPorAlunos(alunoIds, snapshotDisciplinaId);
+        ReguaCompilada regua = reguaNiveisService.obterRegua(snapshotDisciplinaId);
+        String nomeDisciplina = snapshotDisciplinaRepository.findById(snapshotDisciplinaId)
+                .map(SnapshotDisciplina::getNomeDisciplina).orElse("N/A");
+
+        for (Aluno aluno : alunoRepository.findAllById(alunoIds)) {
+            ResumoAvaliacao r = resumos.get(aluno.getId());
+            int criticos = r != null ? r.getCriticosAtendidos() : 0;
+            int desejaveis = r != null ? r.getDesejaveisAtendidos() : 0;
+            boletins.put(aluno.getId(), montarResultado(aluno.getNome(), nomeDisciplina, criticos, desejaveis, regua));
+        }
+        return boletins;
+    }
+
+    /**
+     * Fecha a avaliação da turma inteira numa única transação: os níveis de todos os alunos são
+     * calculados numa passada (mesmos contadores do boletim) e gravados com um UPDATE
+     * por nível distinto. Alunos sem avaliações voltam no resultado como falha.
+     */
+    @Transactional
+    public List<ResultadoFechamentoDTO> finalizarAvaliacaoTurma(Long turmaId, Long snapshotDisciplinaId) {
         List<Aluno> alunos = alunoRepository.findByTurmaId(turmaId);
-        return alunos.stream()
-                .map(aluno -> calcularNivelAluno(aluno.getId(), snapshotDisciplinaId))
-                .collect(Collectors.toList());
+        if (alunos.isEmpty()) throw new RuntimeException("Turma sem alunos.");
+
+        Map<Long, ResumoAvaliacao> resumos = resumoAvaliacaoService.buscarPorTurma(turmaId, snapshotDisciplinaId);
+        ReguaCompilada regua = reguaNiveisService.obterRegua(snapshotDisciplinaId);
+        String nomeDisciplina = snapshotDisciplinaRepository.findById(snapshotDisciplinaId)
+                .map(SnapshotDisciplina::getNomeDisciplina).orElse("N/A");
+
+        List<ResultadoFechamentoDTO> resultados = new ArrayList<>(alunos.size());
+        Map<Integer, List<Long>> alunosPorNivel = new HashMap<>();
+
+        for (Aluno aluno : alunos) {
+            ResumoAvaliacao r = resumos.get(aluno.getId());
+            if (r == null || r.getTotalRegistros() == 0) {
+                resultados.add(new ResultadoFechamentoDTO(aluno.getId(), aluno.getNome(), false,
+                        "Nenhuma avaliação encontrada para este aluno neste snapshot.", null));
+                continue;
+            }
+            ResultadoBoletimDTO boletim = montarResultado(aluno.getNome(), nomeDisciplina,
+                    r.getCriticosAtendidos(), r.getDesejaveisAtendidos(), regua);
+            alunosPorNivel.computeIfAbsent(boletim.getNivelAlcancado(), k -> new ArrayList<>()).add(aluno.getId());
+            resultados.add(new ResultadoFechamentoDTO(aluno.getId(), aluno.getNome(), true, "Avaliação finalizada.", boletim));
+        }
+
+        LocalDateTime agora = LocalDateTime.now();
+        List<Long> finalizados = new ArrayList<>();
+        alunosPorNivel.forEach((nivel, ids) -> {
+            avaliacaoRepository.finalizarPorAlunos(ids, snapshotDisciplinaId, nivel, agora);
+            finalizados.addAll(ids);
+        });
+        alteracaoAvaliacaoService.registrarPorAlunos(finalizados, snapshotDisciplinaId, true);
+
+        return resultados;
     }
 
+    /**
+     * Reabre a avaliação da turma inteira com um único UPDATE.
+     */
     @Transactional
-    public List<ResultadoBoletimDTO> finalizarAvaliacaoTurma(Long turmaId, Long snapshotDisciplinaId) {
+    public List<ResultadoFechamentoDTO> reabrirAvaliacaoTurma(Long turmaId, Long snapshotDisciplinaId) {
         List<Aluno> alunos = alunoRepository.findByTurmaId(turmaId);
         if (alunos.isEmpty()) throw new RuntimeException("Turma sem alunos.");
 
-        return alunos.stream()
-                .map(aluno -> {
-                    try {
-                        return finalizarAvaliacao(aluno.getId(), snapshotDisciplinaId);
-                    } catch (Exception e) {
-                        return null;
-                    }
-                })
-                .filter(res -> res != null)
-                .collect(Collectors.toList());
+        Map<Long, ResumoAvaliacao> resumos = resumoAvaliacaoService.buscarPorTurma(turmaId, snapshotDisciplinaId);
+
+        List<ResultadoFechamentoDTO> resultados = new ArrayList<>(alunos.size());
+        List<Long> reabrir = new ArrayList<>();
+        for (Aluno aluno : alunos) {
+            ResumoAvaliacao r = resumos.get(aluno.getId());
+            if (r != null && r.getTotalRegistros() > 0) {
+                reabrir.add(aluno.getId());
+                resultados.add(new ResultadoFechamentoDTO(aluno.getId(), aluno.getNome(), true, "Avaliação reaberta.", null));
+            } else {
+                resultados.add(new ResultadoFechamentoDTO(aluno.getId(), aluno.getNome(), false,
+                        "Nenhuma avaliação encontrada para reabrir.", null));
+            }
+        }
+
+        if (!reabrir.isEmpty()) {
+            avaliacaoRepository.reabrirPorAlunos(reabrir, snapshotDisciplinaId, LocalDateTime.now());
+            alteracaoAvaliacaoService.registrarPorAlunos(reabrir, snapshotDisciplinaId, false);
+        }
+        return resultados;
     }
-}
\ No newline at end of file
+}
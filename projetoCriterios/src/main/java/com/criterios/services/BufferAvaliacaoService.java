@@ -0,0 +1,327 @@
+package com.criterios.services;
+
+import com.criterios.dto.AvaliacaoDTO;
+import com.criterios.repository.AvaliacaoJdbcRepository;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Base64;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Modo opcional de escrita diferida (write-behind) das avaliações.
+ *
+ * Cada clique vai para um buffer em memória indexado por (aluno, critério): cliques repetidos na mesma
+ * célula se fundem e só o último valor chega ao banco. Antes de entrar no buffer, a entrada é anexada a um
+ * journal local, que é reaplicado na inicialização caso a aplicação caia com itens pendentes.
+ * O buffer é descarregado em lote JDBC a cada "intervalo-ms" ou ao atingir "max-pendentes" itens.
+ *
+ * Leituras (boletim, fechamento, listagem) devem chamar {@link #descarregar(Long)} ANTES de abrir a própria
+ * transação: a descarga usa uma transação/conexão própria.
+ *
+ * Se o lote falhar por integridade (ex.: aluno excluído depois do clique), ele é regravado item a item e os itens
+ * que não podem ser gravados são descartados com log, para não travar o buffer. Outras falhas (banco fora do ar)
+ * devolvem o lote inteiro ao buffer.
+ */
+@Slf4j
+@Service
+public class BufferAvaliacaoService {
+
+    private record Celula(Long alunoId, Long criterioId) {}
+
+    private final AvaliacaoJdbcRepository avaliacaoJdbcRepository;
+    private final ResumoAvaliacaoService resumoAvaliacaoService;
+    private final AlteracaoAvaliacaoService alteracaoAvaliacaoService;
+    private final TransactionTemplate transacaoDescarga;
+
+    private final boolean habilitado;
+    private final int maxPendentes;
+    private final Path journal;
+    private final Path journalEmDescarga;
+
+    // Protege o buffer e o journal
+    private final Object lock = new Object();
+    // Serializa as descargas: uma descarga mais nova nunca grava antes de uma mais antiga
+    private final Object lockDescarga = new Object();
+
+    private Map<Celula, AvaliacaoDTO> pendentes = new LinkedHashMap<>();
+    // Snapshots do lote que está sendo gravado agora (fora do buffer, ainda não commitado)
+    private Set<Long> snapshotsEmDescarga = Set.of();
+    private BufferedWriter escritor;
+
+    private final ExecutorService executorDescarga = Executors.newSingleThreadExecutor(r -> {
+        Thread t = new Thread(r, "avaliacao-write-behind");
+        t.setDaemon(true);
+        return t;
+    });
+    private final AtomicBoolean descargaAgendada = new AtomicBoolean(false);
+
+    public BufferAvaliacaoService(AvaliacaoJdbcRepository avaliacaoJdbcRepository,
+                                  ResumoAvaliacaoService resumoAvaliacaoService,
+                                  AlteracaoAvaliacaoService alteracaoAvaliacaoService,
+                                  PlatformTransactionManager transactionManager,
+                                  @Value("${criterios.avaliacao.write-behind.habilitado:false}") boolean habilitado,
+                                  @Value("${criterios.avaliacao.write-behind.max-pendentes:200}") int maxPendentes,
+                                  @Value("${criterios.avaliacao.write-behind.journal:data/avaliacoes-pendentes.journal}") String journal) {
+        this.avaliacaoJdbcRepository = avaliacaoJdbcRepository;
+        this.resumoAvaliacaoService = resumoAvaliacaoService;
+        this.alteracaoAvaliacaoService = alteracaoAvaliacaoService;
+        this.transacaoDescarga = new TransactionTemplate(transactionManager);
+        this.transacaoDescarga.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.habilitado = habilitado;
+        this.maxPendentes = maxPendentes;
+        this.journal = Paths.get(journal).toAbsolutePath();
+        this.journalEmDescarga = Paths.get(journal + ".descarga").toAbsolutePath();
+    }
+
+    public boolean isHabilitado() {
+        return habilitado;
+    }
+
+    @PostConstruct
+    void iniciar() throws IOException {
+        if (!habilitado) return;
+
+        Files.createDirectories(journal.getParent());
+        // Reaplica o que ficou de uma execução anterior: primeiro a descarga interrompida, depois o journal
+        int recuperadas = 0;
+        for (Path arquivo : List.of(journalEmDescarga, journal)) {
+            recuperadas += recuperar(arquivo);
+        }
+        escritor = abrirJournal();
+        log.info("Write-behind de avaliações habilitado (journal: {}, {} itens recuperados)", journal, recuperadas);
+    }
+
+    /**
+     * Coloca a avaliação (já validada) no buffer. Cliques na mesma célula sobrescrevem o valor pendente.
+     */
+    public void enfileirar(AvaliacaoDTO dto) {
+        boolean cheio;
+        synchronized (lock) {
+            try {
+                escritor.write(serializar(dto));
+                escritor.newLine();
+                escritor.flush();
+            } catch (IOException e) {
+                throw new RuntimeException("Falha ao gravar o journal de avaliações pendentes.", e);
+            }
+            pendentes.put(new Celula(dto.getAlunoId(), dto.getCriterioId()), dto);
+            cheio = pendentes.size() >= maxPendentes;
+        }
+
+        // Buffer cheio: descarrega em segundo plano, sem prender a requisição (nem a conexão dela)
+        if (cheio && descargaAgendada.compareAndSet(false, true)) {
+            executorDescarga.execute(() -> {
+                descargaAgendada.set(false);
+                descarregarSemPropagar();
+            });
+        }
+    }
+
+    /**
+     * Força a descarga se houver itens pendentes do snapshot informado, ou espera a descarga em andamento
+     * que os contém. Deve ser chamado fora de transação, antes de ler tb_avaliacao ou tb_resumo_avaliacao.
+     */
+    public void descarregar(Long snapshotDisciplinaId) {
+        if (!habilitado) return;
+        synchronized (lock) {
+            boolean temPendente = snapshotsEmDescarga.contains(snapshotDisciplinaId) || pendentes.values().stream()
+                    .anyMatch(dto -> snapshotDisciplinaId.equals(dto.getEstruturaDisciplinaId()));
+            if (!temPendente) return;
+        }
+        // lockDescarga: aguarda a descarga em andamento terminar antes de gravar o que restou
+        descarregar();
+    }
+
+    /**
+     * Grava todos os itens pendentes numa transação própria e retorna quantos foram gravados.
+     * Falha de integridade: regrava item a item e descarta os que falharem. Outras falhas: os itens voltam ao
+     * buffer (sem sobrescrever cliques mais novos) e o erro é propagado.
+     */
+    public int descarregar() {
+        if (!habilitado) return 0;
+
+        synchronized (lockDescarga) {
+            Map<Celula, AvaliacaoDTO> lote;
+            synchronized (lock) {
+                if (pendentes.isEmpty()) return 0;
+                try {
+                    rotacionarJournal();
+                } catch (IOException e) {
+                    throw new UncheckedIOException("Falha ao rotacionar o journal de avaliações pendentes.", e);
+                }
+                lote = pendentes;
+                pendentes = new LinkedHashMap<>();
+                Set<Long> snapshots = new HashSet<>();
+                lote.values().forEach(dto -> snapshots.add(dto.getEstruturaDisciplinaId()));
+                snapshotsEmDescarga = snapshots;
+            }
+
+            int gravadas = lote.size();
+            try {
+                try {
+                    gravar(lote.values());
+                } catch (DataIntegrityViolationException e) {
+                    log.warn("Lote de {} avaliações pendentes rejeitado ({}); gravando item a item",
+                            lote.size(), e.getMostSpecificCause().getMessage());
+                    gravadas = gravarItemAItem(lote);
+                }
+            } catch (RuntimeException e) {
+                // O arquivo em descarga é mantido: a próxima rotação acrescenta o journal atual ao final dele
+                synchronized (lock) {
+                    lote.forEach(pendentes::putIfAbsent);
+                }
+                throw e;
+            } finally {
+                synchronized (lock) {
+                    snapshotsEmDescarga = Set.of();
+                }
+            }
+
+            try {
+                Files.deleteIfExists(journalEmDescarga);
+            } catch (IOException e) {
+                log.warn("Não foi possível remover {}: {}", journalEmDescarga, e.getMessage());
+            }
+            return gravadas;
+        }
+    }
+
+    private void gravar(Collection<AvaliacaoDTO> avaliacoes) {
+        transacaoDescarga.executeWithoutResult(status -> {
+            AvaliacaoJdbcRepository.GravacaoLote gravacao = avaliacaoJdbcRepository.gravarEmLote(avaliacoes);
+            resumoAvaliacaoService.aplicarAlteracoes(avaliacoes, gravacao);
+            alteracaoAvaliacaoService.registrar(avaliacoes);
+        });
+    }
+
+    // Cada item na sua transação; os gravados saem do lote, os que violam integridade são descartados.
+    // Outra falha no meio interrompe e propaga: o que sobrou no lote volta ao buffer.
+    private int gravarItemAItem(Map<Celula, AvaliacaoDTO> lote) {
+        int gravadas = 0;
+        Iterator<Map.Entry<Celula, AvaliacaoDTO>> itens = lote.entrySet().iterator();
+        while (itens.hasNext()) {
+            AvaliacaoDTO dto = itens.next().getValue();
+            try {
+                gravar(List.of(dto));
+                gravadas++;
+            } catch (DataIntegrityViolationException e) {
+                log.error("Avaliação pendente descartada (aluno {}, critério {}, snapshot {}): {}", dto.getAlunoId(),
+                        dto.getCriterioId(), dto.getEstruturaDisciplinaId(), e.getMostSpecificCause().getMessage());
+            }
+            itens.remove();
+        }
+        return gravadas;
+    }
+
+    @Scheduled(fixedDelayString = "${criterios.avaliacao.write-behind.intervalo-ms:500}")
+    public void descarregarPeriodicamente() {
+        if (habilitado) descarregarSemPropagar();
+    }
+
+    @PreDestroy
+    void encerrar() {
+        executorDescarga.shutdown();
+        if (!habilitado) return;
+        descarregarSemPropagar();
+        synchronized (lock) {
+            try {
+                escritor.close();
+            } catch (IOException e) {
+                log.warn("Falha ao fechar o journal de avaliações: {}", e.getMessage());
+            }
+        }
+    }
+
+    private void descarregarSemPropagar() {
+        try {
+            int gravadas = descarregar();
+            if (gravadas > 0) log.debug("Write-behind: {} avaliações gravadas", gravadas);
+        } catch (RuntimeException e) {
+            log.error("Falha ao descarregar avaliações pendentes (serão reenviadas): {}", e.getMessage());
+        }
+    }
+
+    // Move o journal atual para o arquivo "em descarga" e abre um journal vazio. Chamado com o lock do buffer.
+    private void rotacionarJournal() throws IOException {
+        escritor.close();
+        try {
+            if (Files.exists(journalEmDescarga)) {
+                // Descarga anterior falhou: os itens dela continuam no buffer, então o arquivo cresce na mesma ordem
+                Files.write(journalEmDescarga, Files.readAllBytes(journal), StandardOpenOption.APPEND);
+                Files.delete(journal);
+            } else {
+                Files.move(journal, journalEmDescarga, StandardCopyOption.REPLACE_EXISTING);
+            }
+        } finally {
+            escritor = abrirJournal();
+        }
+    }
+
+    private BufferedWriter abrirJournal() throws IOException {
+        return Files.newBufferedWriter(journal, StandardCharsets.UTF_8,
+                StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+    }
+
+    private int recuperar(Path arquivo) throws IOException {
+        if (!Files.exists(arquivo)) return 0;
+        int recuperadas = 0;
+        for (String linha : Files.readAllLines(arquivo, StandardCharsets.UTF_8)) {
+            AvaliacaoDTO dto = desserializar(linha);
+            if (dto == null) continue; // linha truncada por queda no meio da escrita
+            pendentes.put(new Celula(dto.getAlunoId(), dto.getCriterioId()), dto);
+            recuperadas++;
+        }
+        return recuperadas;
+    }
+
+    // Formato da linha: alunoId;criterioId;snapshotId;atendeu(1/0/vazio);observacao em Base64
+    private static String serializar(AvaliacaoDTO dto) {
+        String atendeu = dto.getAtendeu() == null ? "" : (dto.getAtendeu() ? "1" : "0");
+        String observacao = dto.getObservacao() != null ? dto.getObservacao() : "";
+        return dto.getAlunoId() + ";" + dto.getCriterioId() + ";" + dto.getEstruturaDisciplinaId() + ";" + atendeu + ";"
+                + Base64.getEncoder().encodeToString(observacao.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static AvaliacaoDTO desserializar(String linha) {
+        String[] partes = linha.split(";", -1);
+        if (partes.length != 5) return null;
+        try {
+            AvaliacaoDTO dto = new AvaliacaoDTO();
+            dto.setAlunoId(Long.parseLong(partes[0]));
+            dto.setCriterioId(Long.parseLong(partes[1]));
+            dto.setEstruturaDisciplinaId(Long.parseLong(partes[2]));
+            dto.setAtendeu(partes[3].isEmpty() ? null : "1".equals(partes[3]));
+            dto.setObservacao(new String(Base64.getDecoder().decode(partes[4]), StandardCharsets.UTF_8));
+            return dto;
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+}
@@ -0,0 +1,210 @@
+package com.criterios.services;
+
+import com.criterios.dto.RelatorioCompactacaoDTO;
+import com.criterios.repository.AvaliacaoAlteracaoRepository;
+import com.criterios.repository.CapacidadeRepository;
+import com.criterios.repository.CriterioRepository;
+import com.criterios.repository.NivelAvaliacaoRepository;
+import com.criterios.repository.ResumoAvaliacaoRepository;
+import com.criterios.repository.SnapshotDisciplinaRepository;
+import com.zaxxer.hikari.HikariDataSource;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Coleta de lixo dos snapshots órfãos: sem nenhuma Turma apontando para eles e sem nenhuma Avaliação
+ * nos seus critérios (ex.: sobras de excluirSnapshotTurma / gerarSnapshotManual).
+ *
+ * Roda em segundo plano, em lotes de "lote" snapshots, cada lote numa transação curta com exclusões
+ * set-based (uma por tabela). Entre lotes há uma pausa, e a execução para se o pool de conexões estiver
+ * ocupado com a avaliação. Snapshots mais novos que "idade-minima-horas" não são tocados.
+ */
+@Slf4j
+@Service
+public class CompactacaoSnapshotService {
+
+    private final SnapshotDisciplinaRepository snapshotRepository;
+    private final CapacidadeRepository capacidadeRepository;
+    private final CriterioRepository criterioRepository;
+    private final NivelAvaliacaoRepository nivelRepository;
+    private final ResumoAvaliacaoRepository resumoRepository;
+    private final AvaliacaoAlteracaoRepository alteracaoRepository;
+    private final ReguaNiveisService reguaNiveisService;
+    private final EstruturaSnapshotService estruturaSnapshotService;
+    private final TransactionTemplate transactionTemplate;
+    private final DataSource dataSource;
+
+    private final boolean habilitado;
+    private final int tamanhoLote;
+    private final int maxLotes;
+    private final long pausaMs;
+    private final long idadeMinimaHoras;
+    private final int maxConexoesAtivas;
+
+    private record LoteExcluido(List<Long> ids, int snapshots, int capacidades, int criterios,
+                                int niveis, int resumos, int alteracoes) {}
+
+    private final AtomicBoolean emExecucao = new AtomicBoolean(false);
+    private volatile RelatorioCompactacaoDTO ultimoRelatorio;
+
+    public CompactacaoSnapshotService(SnapshotDisciplinaRepository snapshotRepository,
+                                      CapacidadeRepository capacidadeRepository,
+                                      CriterioRepository criterioRepository,
+                                      NivelAvaliacaoRepository nivelRepository,
+                                      ResumoAvaliacaoRepository resumoRepository,
+                                      AvaliacaoAlteracaoRepository alteracaoRepository,
+                                      ReguaNiveisService reguaNiveisService,
+                                      EstruturaSnapshotService estruturaSnapshotService,
+                                      PlatformTransactionManager transactionManager,
+                                      DataSource dataSource,
+                                      @Value("${criterios.snapshots.gc.habilitado:true}") boolean habilitado,
+                                      @Value("${criterios.snapshots.gc.lote:20}") int tamanhoLote,
+                                      @Value("${criterios.snapshots.gc.max-lotes:50}") int maxLotes,
+                                      @Value("${criterios.snapshots.gc.pausa-ms:500}") long pausaMs,
+                                      @Value("${criterios.snapshots.gc.idade-minima-horas:24}") long idadeMinimaHoras,
+                                      @Value("${criterios.snapshots.gc.max-conexoes-ativas:2}") int maxConexoesAtivas) {
+        this.snapshotRepository = snapshotRepository;
+        this.capacidadeRepository = capacidadeRepository;
+        this.criterioRepository = criterioRepository;
+        this.nivelRepository = nivelRepository;
+        this.resumoRepository = resumoRepository;
+        this.alteracaoRepository = alteracaoRepository;
+        this.reguaNiveisService = reguaNiveisService;
+        this.estruturaSnapshotService = estruturaSnapshotService;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.dataSource = dataSource;
+        this.habilitado = habilitado;
+        this.tamanhoLote = tamanhoLote;
+        this.maxLotes = maxLotes;
+        this.pausaMs = pausaMs;
+        this.idadeMinimaHoras = idadeMinimaHoras;
+        this.maxConexoesAtivas = maxConexoesAtivas;
+    }
+
+    @Scheduled(initialDelayString = "${criterios.snapshots.gc.atraso-inicial-ms:300000}",
+               fixedDelayString = "${criterios.snapshots.gc.intervalo-ms:3600000}")
+    public void compactarPeriodicamente() {
+        if (!habilitado) return;
+        try {
+            compactar();
+        } catch (RuntimeException e) {
+            log.error("Falha na compactação de snapshots órfãos: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Executa uma varredura completa (limitada a "max-lotes"). Se já houver uma em andamento, não faz nada
+     * e devolve o relatório anterior.
+     */
+    public RelatorioCompactacaoDTO compactar() {
+        if (!emExecucao.compareAndSet(false, true)) {
+            return ultimoRelatorio;
+        }
+        try {
+            RelatorioCompactacaoDTO relatorio = new RelatorioCompactacaoDTO();
+            relatorio.setInicio(LocalDateTime.now());
+            long inicio = System.nanoTime();
+            LocalDateTime criadoAntesDe = LocalDateTime.now().minusHours(idadeMinimaHoras);
+
+            Long ultimoId = 0L;
+            while (true) {
+                if (relatorio.getLotes() >= maxLotes) {
+                    relatorio.setInterrompidaPor("Limite de " + maxLotes + " lotes por execução");
+                    break;
+                }
+                if (poolOcupado()) {
+                    relatorio.setInterrompidaPor("Pool de conexões ocupado");
+                    break;
+                }
+
+                List<Long> candidatos = snapshotRepository.findOrfaos(ultimoId, criadoAntesDe, tamanhoLote);
+                if (candidatos.isEmpty()) break;
+                ultimoId = candidatos.get(candidatos.size() - 1);
+
+                LoteExcluido lote = excluirLote(candidatos);
+                somar(relatorio, lote);
+                lote.ids().forEach(id -> {
+                    reguaNiveisService.invalidar(id);
+                    estruturaSnapshotService.invalidar(id);
+                });
+                relatorio.setLotes(relatorio.getLotes() + 1);
+
+                if (candidatos.size() < tamanhoLote) break;
+                if (!pausar()) {
+                    relatorio.setInterrompidaPor("Interrompida");
+                    break;
+                }
+            }
+
+            relatorio.setDuracaoMs((System.nanoTime() - inicio) / 1_000_000);
+            if (relatorio.getSnapshots() > 0 || relatorio.getInterrompidaPor() != null) {
+                log.info("Compactação de snapshots: {} snapshots, {} capacidades, {} critérios, {} níveis, {} resumos, " +
+                                "{} alterações removidos em {} lotes ({} ms){}",
+                        relatorio.getSnapshots(), relatorio.getCapacidades(), relatorio.getCriterios(), relatorio.getNiveis(),
+                        relatorio.getResumos(), relatorio.getAlteracoes(), relatorio.getLotes(), relatorio.getDuracaoMs(),
+                        relatorio.getInterrompidaPor() != null ? " - parada: " + relatorio.getInterrompidaPor() : "");
+            }
+            ultimoRelatorio = relatorio;
+            return relatorio;
+        } finally {
+            emExecucao.set(false);
+        }
+    }
+
+    public RelatorioCompactacaoDTO getUltimoRelatorio() {
+        return ultimoRelatorio;
+    }
+
+    // Um lote numa transação: trava e revalida os candidatos, depois exclui filhos antes dos pais
+    private LoteExcluido excluirLote(List<Long> candidatos) {
+        return transactionTemplate.execute(status -> {
+            List<Long> ids = snapshotRepository.travarOrfaos(candidatos);
+            if (ids.isEmpty()) return new LoteExcluido(ids, 0, 0, 0, 0, 0, 0);
+
+            int alteracoes = alteracaoRepository.excluirPorSnapshots(ids);
+            int resumos = resumoRepository.excluirPorSnapshots(ids);
+            int niveis = nivelRepository.excluirPorSnapshots(ids);
+            int criterios = criterioRepository.excluirPorSnapshots(ids);
+            int capacidades = capacidadeRepository.excluirPorSnapshots(ids);
+            int snapshots = snapshotRepository.excluirPorIds(ids);
+            return new LoteExcluido(ids, snapshots, capacidades, criterios, niveis, resumos, alteracoes);
+        });
+    }
+
+    // Soma só depois do commit: um lote desfeito não entra no relatório
+    private static void somar(RelatorioCompactacaoDTO relatorio, LoteExcluido lote) {
+        relatorio.setSnapshots(relatorio.getSnapshots() + lote.snapshots());
+        relatorio.setCapacidades(relatorio.getCapacidades() + lote.capacidades());
+        relatorio.setCriterios(relatorio.getCriterios() + lote.criterios());
+        relatorio.setNiveis(relatorio.getNiveis() + lote.niveis());
+        relatorio.setResumos(relatorio.getResumos() + lote.resumos());
+        relatorio.setAlteracoes(relatorio.getAlteracoes() + lote.alteracoes());
+    }
+
+    // Conexões em uso por outras requisições acima do limite = há avaliação acontecendo; tenta na próxima execução
+    private boolean poolOcupado() {
+        if (dataSource instanceof HikariDataSource hikari && hikari.getHikariPoolMXBean() != null) {
+            return hikari.getHikariPoolMXBean().getActiveConnections() > maxConexoesAtivas;
+        }
+        return false;
+    }
+
+    private boolean pausar() {
+        try {
+            Thread.sleep(pausaMs);
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+}
@@ -0,0 +1,21 @@
+package com.criterios.services;
+
+import com.criterios.entities.NivelAvaliacao;
+
+import java.util.List;
+
+/**
+ * Regra que monta a régua de níveis de um template a partir dos totais de critérios críticos e desejáveis.
+ * Cada implementação é um bean do Spring, escolhido pelo nome em {@link GeracaoNiveisService}.
+ */
+public interface EstrategiaNiveis {
+
+    /** Nome usado para escolher a estratégia (parâmetro "estrategia" dos endpoints). */
+    String getNome();
+
+    /**
+     * Níveis (nivel, minCriticos, minDesejaveis) ainda não vinculados a template nem snapshot.
+     * Só é chamada com totalCriticos > 0.
+     */
+    List<NivelAvaliacao> gerar(int totalCriticos, int totalDesejaveis);
+}
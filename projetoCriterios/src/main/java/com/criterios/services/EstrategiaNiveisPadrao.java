@@ -0,0 +1,48 @@
+package com.criterios.services;
+
+import com.criterios.entities.NivelAvaliacao;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Régua padrão, de 5 a 100 em passos de 5: até o nível 50 cresce a exigência de críticos (proporcional ao nível);
+ * acima de 50 todos os críticos são exigidos e cada passo acrescenta um desejável até o 100.
+ */
+@Component
+public class EstrategiaNiveisPadrao implements EstrategiaNiveis {
+
+    public static final String NOME = "padrao";
+
+    @Override
+    public String getNome() {
+        return NOME;
+    }
+
+    @Override
+    public List<NivelAvaliacao> gerar(int totalCriticos, int totalDesejaveis) {
+        List<NivelAvaliacao> niveis = new ArrayList<>(20);
+        for (int nivel = 5; nivel <= 100; nivel += 5) {
+            NivelAvaliacao novoNivel = new NivelAvaliacao();
+            novoNivel.setNivel(nivel);
+
+            if (nivel <= 50) {
+                double proporcao = (double) nivel / 50.0;
+                int qtdCriticos = (int) Math.ceil(proporcao * totalCriticos);
+
+                if (qtdCriticos == 0 && totalCriticos > 0) qtdCriticos = 1;
+
+                novoNivel.setMinCriticos(qtdCriticos);
+                novoNivel.setMinDesejaveis(0);
+            } else {
+                novoNivel.setMinCriticos(totalCriticos);
+
+                int degrausAbaixoDe100 = (100 - nivel) / 5;
+                novoNivel.setMinDesejaveis(Math.max(totalDesejaveis - degrausAbaixoDe100, 0));
+            }
+            niveis.add(novoNivel);
+        }
+        return niveis;
+    }
+}
@@ -0,0 +1,35 @@
+package com.criterios.services;
+
+import com.criterios.entities.NivelAvaliacao;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Régua de 5 a 100 em passos de 5 em que críticos e desejáveis crescem juntos, na proporção do nível
+ * (nível 40 exige 40% dos críticos e 40% dos desejáveis, arredondados para cima). O nível 5 exige ao menos um crítico.
+ */
+@Component
+public class EstrategiaNiveisProporcional implements EstrategiaNiveis {
+
+    public static final String NOME = "proporcional";
+
+    @Override
+    public String getNome() {
+        return NOME;
+    }
+
+    @Override
+    public List<NivelAvaliacao> gerar(int totalCriticos, int totalDesejaveis) {
+        List<NivelAvaliacao> niveis = new ArrayList<>(20);
+        for (int nivel = 5; nivel <= 100; nivel += 5) {
+            NivelAvaliacao novoNivel = new NivelAvaliacao();
+            novoNivel.setNivel(nivel);
+            novoNivel.setMinCriticos(Math.max((int) Math.ceil(nivel * totalCriticos / 100.0), 1));
+            novoNivel.setMinDesejaveis((int) Math.ceil(nivel * totalDesejaveis / 100.0));
+            niveis.add(novoNivel);
+        }
+        return niveis;
+    }
+}
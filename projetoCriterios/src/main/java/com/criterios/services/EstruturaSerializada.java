@@ -0,0 +1,8 @@
+package com.criterios.services;
+
+/**
+ * Árvore Capacidade -> Critério de um Snapshot já serializada em JSON (e em gzip),
+ * com o ETag forte calculado sobre os bytes do JSON.
+ */
+public record EstruturaSerializada(byte[] json, byte[] gzip, String etag) {
+}
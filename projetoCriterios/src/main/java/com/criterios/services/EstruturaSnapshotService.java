@@ -0,0 +1,69 @@
+package com.criterios.services;
+
+import com.criterios.cache.CacheLimitado;
+import com.criterios.entities.Capacidade;
+import com.criterios.repository.CapacidadeRepository;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import tools.jackson.databind.ObjectMapper;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Serve a estrutura (capacidades + critérios) de um Snapshot para a tela de avaliação.
+ * Como o Snapshot é imutável, o JSON é gerado uma única vez e reaproveitado byte a byte;
+ * o cache só é invalidado quando o snapshot é excluído.
+ */
+@Service
+@RequiredArgsConstructor
+public class EstruturaSnapshotService {
+
+    private static final EstruturaSerializada VAZIA = serializarBytes("[]".getBytes(StandardCharsets.UTF_8));
+
+    private final CapacidadeRepository capacidadeRepository;
+    private final ObjectMapper objectMapper;
+    private final CacheLimitado<Long, EstruturaSerializada> cacheEstrutura;
+
+    @Transactional(readOnly = true)
+    public EstruturaSerializada obterEstrutura(Long snapshotId) {
+        EstruturaSerializada estrutura = cacheEstrutura.obter(snapshotId, this::carregar);
+        // Snapshot inexistente (ou ainda sem capacidades) não é guardado no cache
+        return estrutura != null ? estrutura : VAZIA;
+    }
+
+    public void invalidar(Long snapshotId) {
+        cacheEstrutura.invalidar(snapshotId);
+    }
+
+    private EstruturaSerializada carregar(Long snapshotId) {
+        // JOIN FETCH: a árvore completa vem numa única consulta
+        List<Capacidade> capacidades = capacidadeRepository.findBySnapshotDisciplinaIdFetchCriterios(snapshotId);
+        if (capacidades.isEmpty()) return null;
+        return serializarBytes(objectMapper.writeValueAsBytes(capacidades));
+    }
+
+    private static EstruturaSerializada serializarBytes(byte[] json) {
+        try {
+            ByteArrayOutputStream out = new ByteArrayOutputStream(Math.max(64, json.length / 4));
+            try (GZIPOutputStream gzip = new GZIPOutputStream(out)) {
+                gzip.write(json);
+            }
+            byte[] hash = MessageDigest.getInstance("SHA-256").digest(json);
+            String etag = "\"" + HexFormat.of().formatHex(hash, 0, 16) + "\"";
+            return new EstruturaSerializada(json, out.toByteArray(), etag);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
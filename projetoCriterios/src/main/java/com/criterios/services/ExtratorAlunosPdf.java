@@ -0,0 +1,129 @@
+package com.criterios.services;
+
+import jakarta.annotation.PreDestroy;
+import org.apache.pdfbox.multipdf.Splitter;
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.text.PDFTextStripper;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.IntConsumer;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Extração dos nomes de alunos de um PDF de lista de chamada.
+ *
+ * O documento é dividido em blocos de páginas extraídos em paralelo num pool limitado e compartilhado entre
+ * as importações. PDDocument não é thread-safe: o arquivo é lido uma vez só, na thread de quem chama, e cada bloco
+ * é separado (Splitter) e serializado num PDF pequeno que o worker carrega sozinho. Assim o upload inteiro é
+ * analisado uma única vez e cada worker guarda em memória só as páginas do seu bloco.
+ * Documentos com um único bloco são extraídos na própria thread de quem chama. Os nomes saem na ordem das páginas.
+ */
+@Component
+public class ExtratorAlunosPdf {
+
+    // "12345678 NOME" / "12345678,NOME" / "12345678|NOME", com ou sem aspas (exportações do portal)
+    private static final Pattern LINHA_ALUNO = Pattern.compile("(?m)^[\\s\"]*(\\d{8})[\\s\"]*[,|]?[\\s\"]*([^\"|\\n]+)");
+
+    private final int paginasPorBloco;
+    private final ExecutorService executor;
+
+    public ExtratorAlunosPdf(@Value("${criterios.importacao.pdf.threads:4}") int threads,
+                             @Value("${criterios.importacao.pdf.paginas-por-bloco:25}") int paginasPorBloco) {
+        this.paginasPorBloco = Math.max(1, paginasPorBloco);
+        AtomicInteger contador = new AtomicInteger();
+        this.executor = Executors.newFixedThreadPool(threads, r -> {
+            Thread t = new Thread(r, "extracao-pdf-" + contador.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
+    /**
+     * Nomes (maiúsculos, sem aspas) das linhas "matrícula + nome", sem as linhas de cabeçalho.
+     * {@code progresso} recebe a quantidade de nomes de cada bloco assim que ele termina (pode ser chamado em paralelo).
+     */
+    public List<String> extrairNomes(byte[] pdf, IntConsumer progresso) throws IOException {
+        List<Future<List<String>>> blocos = new ArrayList<>();
+        try {
+            try (PDDocument documento = PDDocument.load(pdf)) {
+                int paginas = documento.getNumberOfPages();
+                if (paginas <= paginasPorBloco) {
+                    List<String> nomes = extrair(documento, 1, paginas);
+                    progresso.accept(nomes.size());
+                    return nomes;
+                }
+
+                // Cada bloco vira um PDF próprio; o worker começa assim que o seu bloco é serializado
+                Splitter splitter = new Splitter();
+                splitter.setSplitAtPage(paginasPorBloco);
+                for (PDDocument parte : splitter.split(documento)) {
+                    byte[] bloco;
+                    try (PDDocument p = parte) {
+                        ByteArrayOutputStream saida = new ByteArrayOutputStream();
+                        p.save(saida);
+                        bloco = saida.toByteArray();
+                    }
+                    blocos.add(executor.submit(() -> {
+                        try (PDDocument documentoBloco = PDDocument.load(bloco)) {
+                            List<String> nomesBloco = extrair(documentoBloco, 1, documentoBloco.getNumberOfPages());
+                            progresso.accept(nomesBloco.size());
+                            return nomesBloco;
+                        }
+                    }));
+                }
+            }
+
+            List<String> nomes = new ArrayList<>();
+            for (Future<List<String>> bloco : blocos) {
+                nomes.addAll(bloco.get());
+            }
+            return nomes;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Extração do PDF interrompida", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException io) throw io;
+            throw new IOException("Erro ao extrair texto do PDF: " + e.getCause().getMessage(), e.getCause());
+        } finally {
+            blocos.forEach(b -> b.cancel(true));
+        }
+    }
+
+    @PreDestroy
+    void encerrar() {
+        executor.shutdownNow();
+    }
+
+    private static List<String> extrair(PDDocument documento, int primeiraPagina, int ultimaPagina) throws IOException {
+        PDFTextStripper stripper = new PDFTextStripper();
+        stripper.setSortByPosition(true);
+        stripper.setStartPage(primeiraPagina);
+        stripper.setEndPage(ultimaPagina);
+        String texto = stripper.getText(documento);
+
+        List<String> nomes = new ArrayList<>();
+        Matcher matcher = LINHA_ALUNO.matcher(texto);
+        while (matcher.find()) {
+            String nome = matcher.group(2).replace("\"", "").trim().toUpperCase();
+            if (nome.isEmpty() || eCabecalho(nome)) continue;
+            nomes.add(nome);
+        }
+        return nomes;
+    }
+
+    private static boolean eCabecalho(String texto) {
+        return texto.contains("SENAI") || texto.contains("CURSO") || texto.contains("DOCENTE") ||
+               texto.contains("TURMA") || texto.contains("MATRÍCULA") || texto.contains("NOME DO ALUNO");
+    }
+}
@@ -0,0 +1,155 @@
+package com.criterios.services;
+
+import com.criterios.dto.PrevisaoNiveisDTO;
+import com.criterios.entities.EstruturaTemplate;
+import com.criterios.entities.NivelAvaliacao;
+import com.criterios.entities.TipoCriterio;
+import com.criterios.repository.CriterioRepository;
+import com.criterios.repository.EstruturaTemplateJdbcRepository;
+import com.criterios.repository.EstruturaTemplateRepository;
+import com.criterios.repository.ResumoAvaliacaoRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Geração da régua de níveis do template a partir de uma {@link EstrategiaNiveis}.
+ *
+ * Os totais saem de uma consulta agrupada por tipo e a régua é gravada num único lote JDBC. A prévia monta a
+ * mesma régua sem gravar e distribui os alunos dos snapshots da disciplina nela, a partir de uma única consulta
+ * agregada sobre tb_resumo_avaliacao (alunos agrupados por snapshot e par críticos/desejáveis atendidos).
+ */
+@Service
+public class GeracaoNiveisService {
+
+    private final CriterioRepository criterioRepository;
+    private final EstruturaTemplateRepository estruturaTemplateRepository;
+    private final EstruturaTemplateJdbcRepository estruturaTemplateJdbcRepository;
+    private final ResumoAvaliacaoRepository resumoAvaliacaoRepository;
+    private final ReguaNiveisService reguaNiveisService;
+
+    private final Map<String, EstrategiaNiveis> estrategias = new LinkedHashMap<>();
+    private final String estrategiaPadrao;
+
+    public GeracaoNiveisService(CriterioRepository criterioRepository,
+                                EstruturaTemplateRepository estruturaTemplateRepository,
+                                EstruturaTemplateJdbcRepository estruturaTemplateJdbcRepository,
+                                ResumoAvaliacaoRepository resumoAvaliacaoRepository,
+                                ReguaNiveisService reguaNiveisService,
+                                List<EstrategiaNiveis> estrategias,
+                                @Value("${criterios.niveis.estrategia-padrao:" + EstrategiaNiveisPadrao.NOME + "}") String estrategiaPadrao) {
+        this.criterioRepository = criterioRepository;
+        this.estruturaTemplateRepository = estruturaTemplateRepository;
+        this.estruturaTemplateJdbcRepository = estruturaTemplateJdbcRepository;
+        this.resumoAvaliacaoRepository = resumoAvaliacaoRepository;
+        this.reguaNiveisService = reguaNiveisService;
+        for (EstrategiaNiveis estrategia : estrategias) {
+            this.estrategias.put(estrategia.getNome(), estrategia);
+        }
+        if (!this.estrategias.containsKey(estrategiaPadrao)) {
+            throw new IllegalStateException("Estratégia de níveis padrão desconhecida: " + estrategiaPadrao);
+        }
+        this.estrategiaPadrao = estrategiaPadrao;
+    }
+
+    private record Totais(int criticos, int desejaveis) {}
+
+    /**
+     * Regera e grava a régua do template. Sem critérios críticos o template fica sem níveis.
+     * {@code estrategia} nulo ou em branco usa a estratégia padrão.
+     */
+    @Transactional
+    public List<NivelAvaliacao> gerar(Long estruturaTemplateId, String estrategia) {
+        EstrategiaNiveis regra = resolver(estrategia);
+        Totais totais = contar(estruturaTemplateId);
+        List<NivelAvaliacao> niveis = totais.criticos() > 0 ? regra.gerar(totais.criticos(), totais.desejaveis()) : List.of();
+        estruturaTemplateJdbcRepository.substituirNiveis(estruturaTemplateId, niveis);
+        return niveis;
+    }
+
+    @Transactional
+    public List<NivelAvaliacao> gerarParaDisciplina(Long disciplinaTemplateId, String estrategia) {
+        return gerar(buscarEstrutura(disciplinaTemplateId).getId(), estrategia);
+    }
+
+    @Transactional(readOnly = true)
+    public PrevisaoNiveisDTO previsualizar(Long disciplinaTemplateId, String estrategia) {
+        EstrategiaNiveis regra = resolver(estrategia);
+        Totais totais = contar(buscarEstrutura(disciplinaTemplateId).getId());
+        if (totais.criticos() == 0) {
+            throw new RuntimeException("O template não possui critérios CRÍTICOS; não há régua a gerar.");
+        }
+        List<NivelAvaliacao> niveis = regra.gerar(totais.criticos(), totais.desejaveis());
+        ReguaCompilada proposta = ReguaCompilada.compilar(niveis, totais.criticos(), totais.desejaveis());
+
+        PrevisaoNiveisDTO previa = new PrevisaoNiveisDTO();
+        previa.setDisciplinaTemplateId(disciplinaTemplateId);
+        previa.setEstrategia(regra.getNome());
+        previa.setTotalCriticos(totais.criticos());
+        previa.setTotalDesejaveis(totais.desejaveis());
+        previa.setNiveis(niveis.stream()
+                .map(n -> new PrevisaoNiveisDTO.Nivel(n.getNivel(), n.getMinCriticos(), n.getMinDesejaveis()))
+                .toList());
+
+        // Cada linha é um grupo de alunos com o mesmo par (críticos, desejáveis) no mesmo snapshot
+        Map<Integer, Integer> porNivel = new TreeMap<>();
+        Map<Integer, Integer> porNivelAtual = new TreeMap<>();
+        Map<Long, ReguaCompilada> reguasAtuais = new HashMap<>();
+        int totalAlunos = 0, mudaram = 0;
+        for (Object[] linha : resumoAvaliacaoRepository.findDistribuicaoParesByDisciplinaTemplateId(disciplinaTemplateId)) {
+            Long snapshotId = ((Number) linha[0]).longValue();
+            int criticos = ((Number) linha[1]).intValue();
+            int desejaveis = ((Number) linha[2]).intValue();
+            int alunos = ((Number) linha[3]).intValue();
+
+            int nivel = proposta.nivelPara(criticos, desejaveis);
+            int nivelAtual = reguasAtuais.computeIfAbsent(snapshotId, reguaNiveisService::obterRegua).nivelPara(criticos, desejaveis);
+            porNivel.merge(nivel, alunos, Integer::sum);
+            porNivelAtual.merge(nivelAtual, alunos, Integer::sum);
+            totalAlunos += alunos;
+            if (nivel != nivelAtual) mudaram += alunos;
+        }
+        previa.setSnapshots(reguasAtuais.size());
+        previa.setTotalAlunos(totalAlunos);
+        previa.setAlunosPorNivel(porNivel);
+        previa.setAlunosPorNivelAtual(porNivelAtual);
+        previa.setAlunosComMudanca(mudaram);
+        return previa;
+    }
+
+    public List<String> listarEstrategias() {
+        return List.copyOf(estrategias.keySet());
+    }
+
+    private EstrategiaNiveis resolver(String nome) {
+        EstrategiaNiveis estrategia = estrategias.get(nome == null || nome.isBlank() ? estrategiaPadrao : nome.trim());
+        if (estrategia == null) {
+            throw new RuntimeException("Estratégia de níveis desconhecida: " + nome + ". Disponíveis: " + estrategias.keySet());
+        }
+        return estrategia;
+    }
+
+    private EstruturaTemplate buscarEstrutura(Long disciplinaTemplateId) {
+        EstruturaTemplate estrutura = estruturaTemplateRepository.findByDisciplinaTemplateId(disciplinaTemplateId);
+        if (estrutura == null) {
+            throw new RuntimeException("A disciplina Template não possui Estrutura ATIVA. Importe critérios primeiro.");
+        }
+        return estrutura;
+    }
+
+    private Totais contar(Long estruturaTemplateId) {
+        int criticos = 0, desejaveis = 0;
+        for (Object[] linha : criterioRepository.countPorTipoByTemplateId(estruturaTemplateId)) {
+            int quantidade = ((Number) linha[1]).intValue();
+            if (linha[0] == TipoCriterio.CRITICO) criticos = quantidade;
+            else desejaveis = quantidade;
+        }
+        return new Totais(criticos, desejaveis);
+    }
+}
@@ -3,18 +3,33 @@ package com.criterios.services;
 
 import com.criterios.dto.CapacidadeImportDTO;
 import com.criterios.dto.CriterioImportDTO;
+import com.criterios.dto.ResultadoImportacaoEstruturaDTO;
 import com.criterios.entities.*;
+import com.criterios.eventos.TemplateAlteradoEvento;
 import com.criterios.repository.CapacidadeRepository;
 import com.criterios.repository.CriterioRepository;
 import com.criterios.repository.DisciplinaRepository;
 import com.criterios.repository.NivelAvaliacaoRepository;
+import com.criterios.repository.EstruturaTemplateJdbcRepository;
 import com.criterios.repository.EstruturaTemplateRepository; 
 import lombok.RequiredArgsConstructor;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.text.Normalizer;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
-import java.lang.Math;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
 
 @Service
 @RequiredArgsConstructor
@@ -26,121 +41,216 @@ public class GerenciamentoCriterioService {
     private final NivelAvaliacaoRepository nivelRepository;
     private final EstruturaTemplateRepository estruturaTemplateRepository; 
     private final EstruturaTemplateService estruturaTemplateService; 
+    private final EstruturaTemplateJdbcRepository estruturaTemplateJdbcRepository;
+    private final GeracaoNiveisService geracaoNiveisService;
+    private final ApplicationEventPublisher eventPublisher;
 
     @Transactional
     public Criterio criarCriterio(Long capacidadeId, String descricao, TipoCriterio tipo) {
         Capacidade capacidade = capacidadeRepository.findById(capacidadeId)
                 .orElseThrow(() -> new RuntimeException("Capacidade não encontrada"));
 
+        // Snapshots são imutáveis (a estrutura serializada e a régua ficam em cache)
+        if (capacidade.getSnapshotDisciplina() != null) {
+            throw new RuntimeException("Esta capacidade pertence a um Snapshot e não pode ser alterada.");
+        }
+
         Criterio criterio = new Criterio();
         criterio.setCapacidade(capacidade);
         criterio.setDescricao(descricao);
         criterio.setTipo(tipo);
 
-        return criterioRepository.save(criterio);
-    }
-
-    public boolean validarRegraMinimoCritico(Long disciplinaTemplateId) {
-        List<Capacidade> capacidades = capacidadeRepository.findByDisciplinaTemplateId(disciplinaTemplateId);
-        
-        for (Capacidade cap : capacidades) {
-            List<Criterio> criteriosDaCap = criterioRepository.findByCapacidadeId(cap.getId());
-            boolean temCritico = criteriosDaCap.stream()
-                    .anyMatch(c -> c.getTipo() == TipoCriterio.CRITICO);
-            
-            if (!temCritico) {
-                throw new RuntimeException("A capacidade '" + cap.getDescricao() + "' não possui nenhum critério CRÍTICO. Regra violada.");
-            }
-        }
-        return true;
+        criterio = criterioRepository.save(criterio);
+        eventPublisher.publishEvent(new TemplateAlteradoEvento(capacidade.getEstruturaTemplate().getDisciplinaTemplateId()));
+        return criterio;
     }
 
+    /**
+     * Reimporta a estrutura do template aplicando só a diferença para o que já está gravado.
+     *
+     * Capacidades (e, dentro de cada capacidade casada, os critérios) são casadas pela descrição normalizada
+     * (sem acentos, caixa e espaços extras); as que sobram dos dois lados são pareadas na ordem em que aparecem,
+     * então corrigir um erro de digitação vira um UPDATE, não DELETE + INSERT. Cada tipo de alteração é um lote JDBC.
+     * A régua de níveis só é regerada quando o total de críticos/desejáveis muda (ou o template ainda não tem níveis).
+     *
+     * Os critérios do template não têm avaliações (elas apontam para as cópias do snapshot), então
+     * reaproveitar ou trocar ids aqui não afeta turmas existentes.
+     */
     @Transactional
-    public void salvarImportacaoEmMassa(Long disciplinaTemplateId, List<CapacidadeImportDTO> dados) {
+    public ResultadoImportacaoEstruturaDTO salvarImportacaoEmMassa(Long disciplinaTemplateId, List<CapacidadeImportDTO> dados) {
         Disciplina disciplinaTemplate = disciplinaRepository.findById(disciplinaTemplateId)
                 .orElseThrow(() -> new RuntimeException("Disciplina (Template) não encontrada"));
+        validarImportacao(dados);
 
-        // 1. [LIMPEZA] Encontra e Deleta TODA a estrutura TEMPLATE antiga.
-        EstruturaTemplate estruturaAntiga = estruturaTemplateRepository.findByDisciplinaTemplateId(disciplinaTemplateId);
-        if (estruturaAntiga != null) {
-            estruturaTemplateRepository.delete(estruturaAntiga);
+        EstruturaTemplate estrutura = estruturaTemplateRepository.findByDisciplinaTemplateId(disciplinaTemplateId);
+        if (estrutura == null) {
+            estrutura = estruturaTemplateService.criarTemplateInicial(disciplinaTemplateId, disciplinaTemplate);
         }
-        
-        // 2. RECRIAR O NOVO TEMPLATE DA ESTRUTURA 
-        EstruturaTemplate novaEstruturaTemplate = estruturaTemplateService.criarTemplateInicial(disciplinaTemplateId, disciplinaTemplate);
-        
-        // 3. Salva a nova estrutura de Capacidades e Critérios
+
+        // 1. Estrutura atual (uma consulta) e totais por tipo antes da importação
+        Map<Long, CapacidadeAtual> atuais = new LinkedHashMap<>();
+        int criticosAntes = 0, desejaveisAntes = 0;
+        for (Object[] linha : capacidadeRepository.findEstruturaComIdsByTemplateId(estrutura.getId())) {
+            CapacidadeAtual cap = atuais.computeIfAbsent((Long) linha[0], id ->
+                    new CapacidadeAtual(new EstruturaTemplateJdbcRepository.Linha(id, null, (String) linha[1], nomeDe(linha[2]))));
+            if (linha[3] != null) {
+                cap.criterios.add(new EstruturaTemplateJdbcRepository.Linha((Long) linha[3], cap.linha.id(),
+                        (String) linha[4], nomeDe(linha[5])));
+                if (linha[5] == TipoCriterio.CRITICO) criticosAntes++;
+                else desejaveisAntes++;
+            }
+        }
+
+        // 2. Diff
+        ResultadoImportacaoEstruturaDTO resultado = new ResultadoImportacaoEstruturaDTO();
+        List<EstruturaTemplateJdbcRepository.Linha> capacidadesAtualizar = new ArrayList<>();
+        List<EstruturaTemplateJdbcRepository.Linha> criteriosAtualizar = new ArrayList<>();
+        List<EstruturaTemplateJdbcRepository.Linha> criteriosInserir = new ArrayList<>();
+        List<Long> criteriosExcluir = new ArrayList<>();
+        List<CapacidadeImportDTO> capacidadesNovas = new ArrayList<>();
+
+        List<CapacidadeAtual> sobraAtuais = new ArrayList<>(atuais.values());
+        Map<CapacidadeImportDTO, CapacidadeAtual> casadas = casar(dados, sobraAtuais,
+                CapacidadeImportDTO::getDescricao, cap -> cap.linha.descricao());
         for (CapacidadeImportDTO capDTO : dados) {
-            Capacidade cap = new Capacidade();
-            // Liga a Capacidade ao novo objeto Template
-            cap.setEstruturaTemplate(novaEstruturaTemplate); 
-            
-            cap.setDescricao(capDTO.getDescricao());
-            cap.setTipo(capDTO.getTipo());
-            
-            cap = capacidadeRepository.save(cap);
-
-            if (capDTO.getCriterios() != null) {
-                for (CriterioImportDTO critDTO : capDTO.getCriterios()) {
-                    Criterio crit = new Criterio();
-                    crit.setCapacidade(cap);
-                    crit.setDescricao(critDTO.getDescricao());
-                    crit.setTipo(critDTO.getTipo());
-                    criterioRepository.save(crit);
-                }
+            CapacidadeAtual atual = casadas.get(capDTO);
+            if (atual == null) {
+                capacidadesNovas.add(capDTO);
+                continue;
             }
+            EstruturaTemplateJdbcRepository.Linha nova = new EstruturaTemplateJdbcRepository.Linha(
+                    atual.linha.id(), null, capDTO.getDescricao(), capDTO.getTipo().name());
+            if (!nova.equals(atual.linha)) capacidadesAtualizar.add(nova);
+
+            List<CriterioImportDTO> criteriosDTO = criteriosDe(capDTO);
+            List<EstruturaTemplateJdbcRepository.Linha> sobraCriterios = new ArrayList<>(atual.criterios);
+            Map<CriterioImportDTO, EstruturaTemplateJdbcRepository.Linha> criteriosCasados = casar(criteriosDTO, sobraCriterios,
+                    CriterioImportDTO::getDescricao, EstruturaTemplateJdbcRepository.Linha::descricao);
+            for (CriterioImportDTO critDTO : criteriosDTO) {
+                EstruturaTemplateJdbcRepository.Linha critAtual = criteriosCasados.get(critDTO);
+                EstruturaTemplateJdbcRepository.Linha critNovo = new EstruturaTemplateJdbcRepository.Linha(
+                        critAtual != null ? critAtual.id() : null, atual.linha.id(), critDTO.getDescricao(), critDTO.getTipo().name());
+                if (critAtual == null) criteriosInserir.add(critNovo);
+                else if (!critNovo.equals(critAtual)) criteriosAtualizar.add(critNovo);
+            }
+            sobraCriterios.forEach(c -> criteriosExcluir.add(c.id()));
+        }
+        List<Long> capacidadesExcluir = sobraAtuais.stream().map(c -> c.linha.id()).toList();
+
+        // 3. Aplica: exclusões, atualizações e inserções, cada uma num lote
+        estruturaTemplateJdbcRepository.excluirCriterios(criteriosExcluir);
+        estruturaTemplateJdbcRepository.excluirCapacidades(capacidadesExcluir);
+        estruturaTemplateJdbcRepository.atualizarCapacidades(capacidadesAtualizar);
+        estruturaTemplateJdbcRepository.atualizarCriterios(criteriosAtualizar);
+
+        List<EstruturaTemplateJdbcRepository.Linha> capacidadesInserir = capacidadesNovas.stream()
+                .map(c -> new EstruturaTemplateJdbcRepository.Linha(null, null, c.getDescricao(), c.getTipo().name()))
+                .toList();
+        List<Long> novosIds = estruturaTemplateJdbcRepository.inserirCapacidades(capacidadesInserir, estrutura.getId());
+        for (int i = 0; i < capacidadesNovas.size(); i++) {
+            for (CriterioImportDTO critDTO : criteriosDe(capacidadesNovas.get(i))) {
+                criteriosInserir.add(new EstruturaTemplateJdbcRepository.Linha(null, novosIds.get(i),
+                        critDTO.getDescricao(), critDTO.getTipo().name()));
+            }
+        }
+        estruturaTemplateJdbcRepository.inserirCriterios(criteriosInserir);
+
+        int removidosComCapacidades = sobraAtuais.stream().mapToInt(c -> c.criterios.size()).sum();
+        resultado.setCapacidadesInseridas(capacidadesNovas.size());
+        resultado.setCapacidadesAtualizadas(capacidadesAtualizar.size());
+        resultado.setCapacidadesRemovidas(capacidadesExcluir.size());
+        resultado.setCriteriosInseridos(criteriosInserir.size());
+        resultado.setCriteriosAtualizados(criteriosAtualizar.size());
+        resultado.setCriteriosRemovidos(criteriosExcluir.size() + removidosComCapacidades);
+
+        // 4. Níveis: só quando os totais mudaram (a régua gerada depende apenas deles)
+        int criticosDepois = 0, desejaveisDepois = 0;
+        for (CapacidadeImportDTO capDTO : dados) {
+            for (CriterioImportDTO critDTO : criteriosDe(capDTO)) {
+                if (critDTO.getTipo() == TipoCriterio.CRITICO) criticosDepois++;
+                else desejaveisDepois++;
+            }
+        }
+        if (criticosDepois != criticosAntes || desejaveisDepois != desejaveisAntes
+                || nivelRepository.countByTemplateId(estrutura.getId()) == 0) {
+            geracaoNiveisService.gerar(estrutura.getId(), null);
+            resultado.setNiveisRegerados(true);
         }
-        
-        // 4. Gera os Níveis para a nova Estrutura (usando o novo ID)
-        gerarNiveisAutomaticos(novaEstruturaTemplate.getId());
+
+        eventPublisher.publishEvent(new TemplateAlteradoEvento(disciplinaTemplateId));
+        return resultado;
     }
 
-    @Transactional
-    public void gerarNiveisAutomaticos(Long estruturaTemplateId) { 
-        
-        // 1. Limpa níveis antigos
-        nivelRepository.deleteByTemplateId(estruturaTemplateId); 
-
-        // 2. Conta totais 
-        long totalCriticos = criterioRepository.countByTemplateIdAndTipo(estruturaTemplateId, TipoCriterio.CRITICO);
-        long totalDesejaveis = criterioRepository.countByTemplateIdAndTipo(estruturaTemplateId, TipoCriterio.DESEJAVEL);
-
-        if (totalCriticos == 0) return;
-
-        EstruturaTemplate templatePlaceholder = new EstruturaTemplate();
-        templatePlaceholder.setId(estruturaTemplateId);
-        
-        // 3. Gera de 5 a 100
-        for (int nivel = 5; nivel <= 100; nivel += 5) {
-            NivelAvaliacao novoNivel = new NivelAvaliacao();
-            // Liga ao Template
-            novoNivel.setEstruturaTemplate(templatePlaceholder); 
-            novoNivel.setNivel(nivel);
-            
-            if (nivel <= 50) {
-                double proporcao = (double) nivel / 50.0;
-                int qtdCriticos = (int) Math.ceil(proporcao * totalCriticos);
-                
-                if (qtdCriticos == 0 && totalCriticos > 0) qtdCriticos = 1;
-                
-                novoNivel.setMinCriticos(qtdCriticos);
-                novoNivel.setMinDesejaveis(0);
-            } else {
-                novoNivel.setMinCriticos((int) totalCriticos); 
-
-                if (totalDesejaveis > 0) {
-                    int degrausAbaixoDe100 = (100 - nivel) / 5;
-                    int qtdDesejaveis = (int) totalDesejaveis - degrausAbaixoDe100;
-
-                    if (qtdDesejaveis < 0) qtdDesejaveis = 0;
-                    
-                    novoNivel.setMinDesejaveis(qtdDesejaveis);
-                } else {
-                    novoNivel.setMinDesejaveis(0);
+    // Capacidade gravada no template, com seus critérios
+    private static final class CapacidadeAtual {
+        private final EstruturaTemplateJdbcRepository.Linha linha;
+        private final List<EstruturaTemplateJdbcRepository.Linha> criterios = new ArrayList<>();
+
+        private CapacidadeAtual(EstruturaTemplateJdbcRepository.Linha linha) {
+            this.linha = linha;
+        }
+    }
+
+    /**
+     * Casa cada item importado com um item atual: primeiro pela descrição normalizada (repetidas na ordem),
+     * depois as sobras dos dois lados, na ordem. Os atuais casados são retirados de {@code atuais};
+     * o que ficar lá deve ser excluído.
+     */
+    private static <I, A> Map<I, A> casar(List<I> importados, List<A> atuais,
+                                          Function<I, String> descricaoImportado, Function<A, String> descricaoAtual) {
+        Map<String, Deque<A>> porDescricao = new HashMap<>();
+        for (A atual : atuais) {
+            porDescricao.computeIfAbsent(normalizar(descricaoAtual.apply(atual)), k -> new ArrayDeque<>()).add(atual);
+        }
+
+        Map<I, A> casados = new IdentityHashMap<>();
+        List<I> semPar = new ArrayList<>();
+        for (I importado : importados) {
+            Deque<A> candidatos = porDescricao.get(normalizar(descricaoImportado.apply(importado)));
+            A atual = candidatos != null ? candidatos.poll() : null;
+            if (atual != null) casados.put(importado, atual);
+            else semPar.add(importado);
+        }
+
+        Set<A> usados = Collections.newSetFromMap(new IdentityHashMap<>());
+        usados.addAll(casados.values());
+        atuais.removeIf(usados::contains);
+
+        // Sobras pareadas na ordem: descrição editada vira atualização
+        int pares = Math.min(semPar.size(), atuais.size());
+        for (int i = 0; i < pares; i++) {
+            casados.put(semPar.get(i), atuais.get(i));
+        }
+        atuais.subList(0, pares).clear();
+        return casados;
+    }
+
+    private static String normalizar(String descricao) {
+        String semAcentos = Normalizer.normalize(descricao, Normalizer.Form.NFD).replaceAll("\\p{M}", "");
+        return semAcentos.trim().replaceAll("\\s+", " ").toLowerCase(Locale.ROOT);
+    }
+
+    private static void validarImportacao(List<CapacidadeImportDTO> dados) {
+        if (dados == null || dados.isEmpty()) {
+            throw new RuntimeException("Nenhuma capacidade informada para importação.");
+        }
+        for (CapacidadeImportDTO capDTO : dados) {
+            if (capDTO.getDescricao() == null || capDTO.getDescricao().isBlank() || capDTO.getTipo() == null) {
+                throw new RuntimeException("Capacidade sem descrição ou tipo na importação.");
+            }
+            for (CriterioImportDTO critDTO : criteriosDe(capDTO)) {
+                if (critDTO.getDescricao() == null || critDTO.getDescricao().isBlank() || critDTO.getTipo() == null) {
+                    throw new RuntimeException("A capacidade '" + capDTO.getDescricao() + "' tem critério sem descrição ou tipo.");
                 }
             }
-
-            nivelRepository.save(novoNivel);
         }
     }
-}
\ No newline at end of file
+
+    private static List<CriterioImportDTO> criteriosDe(CapacidadeImportDTO capDTO) {
+        return capDTO.getCriterios() != null ? capDTO.getCriterios() : List.of();
+    }
+
+    private static String nomeDe(Object tipo) {
+        return ((Enum<?>) tipo).name();
+    }
+}
@@ -0,0 +1,322 @@
+package com.criterios.services;
+
+import com.criterios.dto.ResultadoImportacaoLoteAlunosDTO;
+import com.criterios.entities.TipoUsuario;
+import com.criterios.entities.Usuario;
+import com.criterios.repository.TurmaRepository;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.compress.archivers.zip.ZipArchiveEntry;
+import org.apache.commons.compress.archivers.zip.ZipArchiveInputStream;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.CharacterCodingException;
+import java.nio.charset.Charset;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.IntConsumer;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Importação das listas de chamada de várias turmas num único .zip (um PDF por turma).
+ *
+ * Cada arquivo é associado a uma turma pelo nome: "42.pdf" ou "42 - Redes 1A.pdf" usam o id 42; senão o nome do
+ * arquivo é comparado ao nome da turma (sem acentos, maiúsculas ou '_'). Gestores podem importar para qualquer
+ * turma; professores só para as turmas em que lecionam (as demais não são encontradas). Os PDFs são processados em paralelo num
+ * pool limitado; o .zip é lido em sequência e só é descompactado o próximo arquivo quando há vaga, o que limita a
+ * memória a poucos PDFs por vez. Contra .zip malicioso (zip bomb) há três limites: bytes descompactados por arquivo
+ * ("max-bytes-arquivo", o arquivo é recusado), bytes descompactados no lote inteiro ("max-bytes-total") e quantidade
+ * de entradas ("max-arquivos"); estes dois interrompem a importação. Cada turma é gravada na sua própria transação (ArquivoService.incluirAlunosNaTurma):
+ * a falha de um arquivo não desfaz as demais turmas e aparece no relatório.
+ *
+ * Nomes de arquivo sem a marca UTF-8 do .zip (o "Enviar para > Pasta compactada" do Windows grava na página de
+ * código OEM) são decodificados por entrada: UTF-8 quando os bytes formam UTF-8 válido, senão IBM850.
+ */
+@Slf4j
+@Service
+public class ImportacaoLoteAlunosService {
+
+    private static final Pattern PREFIXO_ID = Pattern.compile("^(\\d+)(?:\\s*[-_ ].*)?$");
+    private static final Pattern ESPACOS = Pattern.compile("\\s+");
+    private static final Pattern MARCAS = Pattern.compile("\\p{M}");
+    private static final Charset OEM_WINDOWS = Charset.forName("IBM850");
+
+    private final ArquivoService arquivoService;
+    private final ExtratorAlunosPdf extratorAlunosPdf;
+    private final TurmaRepository turmaRepository;
+    private final ExecutorService executor;
+    private final int threads;
+    private final long maxBytesArquivo;
+    private final long maxBytesTotal;
+    private final int maxArquivos;
+
+    public ImportacaoLoteAlunosService(ArquivoService arquivoService,
+                                       ExtratorAlunosPdf extratorAlunosPdf,
+                                       TurmaRepository turmaRepository,
+                                       @Value("${criterios.importacao.lote.threads:3}") int threads,
+                                       @Value("${criterios.importacao.lote.max-bytes-arquivo:10485760}") long maxBytesArquivo,
+                                       @Value("${criterios.importacao.lote.max-bytes-total:104857600}") long maxBytesTotal,
+                                       @Value("${criterios.importacao.lote.max-arquivos:500}") int maxArquivos) {
+        this.arquivoService = arquivoService;
+        this.extratorAlunosPdf = extratorAlunosPdf;
+        this.turmaRepository = turmaRepository;
+        this.threads = threads;
+        this.maxBytesArquivo = maxBytesArquivo;
+        this.maxBytesTotal = maxBytesTotal;
+        this.maxArquivos = maxArquivos;
+        AtomicInteger contador = new AtomicInteger();
+        this.executor = Executors.newFixedThreadPool(threads, r -> {
+            Thread t = new Thread(r, "importacao-lote-" + contador.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
+    // Turmas indexadas por id e por nome normalizado (nomes repetidos ficam com todos os ids)
+    private record Turmas(Map<Long, String> porId, Map<String, List<Long>> porNome) {}
+
+    /** {@code progresso} recebe a quantidade de alunos lidos de cada bloco de páginas (chamado em paralelo). */
+    public ResultadoImportacaoLoteAlunosDTO importarZip(InputStream zip, Usuario usuario, IntConsumer progresso) throws IOException {
+        long inicio = System.currentTimeMillis();
+        Turmas turmas = carregarTurmas(usuario);
+
+        // Um arquivo adiantado por thread: o leitor do .zip espera vaga antes de descompactar o próximo
+        Semaphore vagas = new Semaphore(threads * 2);
+        Map<Long, Object> travasPorTurma = new ConcurrentHashMap<>();
+        List<ResultadoImportacaoLoteAlunosDTO.Entrada> entradas = new ArrayList<>();
+        List<Future<?>> tarefas = new ArrayList<>();
+        long orcamento = maxBytesTotal;
+        int lidas = 0;
+
+        try (ZipArchiveInputStream in = new ZipArchiveInputStream(zip, StandardCharsets.UTF_8.name(), true, true)) {
+            ZipArchiveEntry item;
+            while ((item = proximaEntrada(in, entradas)) != null) {
+                if (++lidas > maxArquivos) {
+                    throw new RuntimeException("O .zip tem mais de " + maxArquivos + " arquivos.");
+                }
+                String caminho = nomeEntrada(item);
+                String nomeArquivo = nomeArquivo(caminho);
+                if (item.isDirectory() || nomeArquivo.isEmpty() || nomeArquivo.startsWith(".") || caminho.startsWith("__MACOSX/")) {
+                    continue;
+                }
+
+                ResultadoImportacaoLoteAlunosDTO.Entrada entrada = new ResultadoImportacaoLoteAlunosDTO.Entrada();
+                entrada.setArquivo(nomeArquivo);
+                entradas.add(entrada);
+                if (!nomeArquivo.toLowerCase(Locale.ROOT).endsWith(".pdf")) {
+                    entrada.setErro("O arquivo não é um PDF.");
+                    continue;
+                }
+                Long turmaId = resolverTurma(nomeArquivo.substring(0, nomeArquivo.length() - 4).trim(), turmas, entrada);
+                if (turmaId == null) continue;
+
+                adquirir(vagas);
+                long limite = Math.min(maxBytesArquivo, orcamento);
+                byte[] pdf;
+                try {
+                    pdf = lerLimitado(in, limite);
+                } catch (IOException e) {
+                    vagas.release();
+                    entrada.setErro(e.getMessage());
+                    continue;
+                }
+                if (pdf == null) {
+                    vagas.release();
+                    if (limite < maxBytesArquivo) {
+                        throw new RuntimeException("O conteúdo descompactado do .zip passa do limite de " + megabytes(maxBytesTotal) + " MB.");
+                    }
+                    orcamento -= limite;
+                    entrada.setErro("Arquivo maior que o limite de " + megabytes(maxBytesArquivo) + " MB.");
+                    continue;
+                }
+                orcamento -= pdf.length;
+                Object trava = travasPorTurma.computeIfAbsent(turmaId, id -> new Object());
+                tarefas.add(executor.submit(() -> {
+                    try {
+                        importar(entrada, turmaId, pdf, trava, progresso);
+                    } finally {
+                        vagas.release();
+                    }
+                }));
+            }
+        } finally {
+            aguardar(tarefas);
+        }
+
+        if (entradas.isEmpty()) {
+            throw new RuntimeException("Nenhum arquivo encontrado. Envie um .zip com um PDF de chamada por turma.");
+        }
+
+        ResultadoImportacaoLoteAlunosDTO resultado = new ResultadoImportacaoLoteAlunosDTO();
+        resultado.setArquivos(entradas.size());
+        resultado.setTurmasImportadas((int) entradas.stream().filter(e -> e.getErro() == null)
+                .map(ResultadoImportacaoLoteAlunosDTO.Entrada::getTurmaId).distinct().count());
+        resultado.setFalhas((int) entradas.stream().filter(e -> e.getErro() != null).count());
+        resultado.setTotalImportados(entradas.stream().mapToInt(ResultadoImportacaoLoteAlunosDTO.Entrada::getImportados).sum());
+        resultado.setTempoMs(System.currentTimeMillis() - inicio);
+        resultado.setEntradas(entradas);
+        return resultado;
+    }
+
+    @PreDestroy
+    void encerrar() {
+        executor.shutdownNow();
+    }
+
+    private void importar(ResultadoImportacaoLoteAlunosDTO.Entrada entrada, Long turmaId, byte[] pdf,
+                          Object trava, IntConsumer progresso) {
+        try {
+            List<String> nomes = extratorAlunosPdf.extrairNomes(pdf, progresso);
+            entrada.setAlunosLidos(nomes.size());
+            if (nomes.isEmpty()) {
+                entrada.setErro("Nenhum aluno identificado.");
+                return;
+            }
+            // Dois arquivos da mesma turma no lote: um de cada vez, para o segundo enxergar os alunos do primeiro
+            int importados;
+            synchronized (trava) {
+                importados = arquivoService.incluirAlunosNaTurma(turmaId, nomes);
+            }
+            entrada.setImportados(importados);
+            entrada.setIgnorados(nomes.size() - importados);
+        } catch (Exception e) {
+            log.warn("Importação de {} para a turma {} falhou: {}", entrada.getArquivo(), turmaId, e.getMessage());
+            entrada.setErro(e.getMessage() != null ? e.getMessage() : e.getClass().getSimpleName());
+        }
+    }
+
+    private Turmas carregarTurmas(Usuario usuario) {
+        List<Object[]> linhas = usuario.getTipo() == TipoUsuario.GESTOR
+                ? turmaRepository.findIdsENomes()
+                : turmaRepository.findIdsENomesByProfessorId(usuario.getId());
+        Map<Long, String> porId = new HashMap<>();
+        Map<String, List<Long>> porNome = new HashMap<>();
+        for (Object[] linha : linhas) {
+            Long id = (Long) linha[0];
+            String nome = (String) linha[1];
+            porId.put(id, nome);
+            if (nome != null) porNome.computeIfAbsent(normalizar(nome), k -> new ArrayList<>()).add(id);
+        }
+        return new Turmas(porId, porNome);
+    }
+
+    // Id no início do nome do arquivo; senão o nome da turma. Preenche turmaId/turmaNome ou o erro da entrada.
+    private static Long resolverTurma(String base, Turmas turmas, ResultadoImportacaoLoteAlunosDTO.Entrada entrada) {
+        Matcher prefixo = PREFIXO_ID.matcher(base);
+        if (prefixo.matches()) {
+            Long id = Long.valueOf(prefixo.group(1));
+            if (turmas.porId().containsKey(id)) {
+                entrada.setTurmaId(id);
+                entrada.setTurmaNome(turmas.porId().get(id));
+                return id;
+            }
+        }
+
+        List<Long> ids = turmas.porNome().getOrDefault(normalizar(base), List.of());
+        if (ids.size() == 1) {
+            entrada.setTurmaId(ids.get(0));
+            entrada.setTurmaNome(turmas.porId().get(ids.get(0)));
+            return ids.get(0);
+        }
+        entrada.setErro(ids.isEmpty()
+                ? "Nenhuma turma corresponde ao arquivo '" + base + "'. Use o id ou o nome da turma no nome do arquivo."
+                : "Nome de turma ambíguo (ids " + ids + "). Use o id da turma no nome do arquivo.");
+        return null;
+    }
+
+    private static String normalizar(String texto) {
+        String semAcentos = MARCAS.matcher(Normalizer.normalize(texto.replace('_', ' '), Normalizer.Form.NFD)).replaceAll("");
+        return ESPACOS.matcher(semAcentos.trim()).replaceAll(" ").toUpperCase(Locale.ROOT);
+    }
+
+    // Nome marcado como UTF-8 (flag EFS ou campo extra Unicode) já vem certo; senão decide pelos bytes brutos
+    private static String nomeEntrada(ZipArchiveEntry item) {
+        if (item.getNameSource() != ZipArchiveEntry.NameSource.NAME) return item.getName();
+        byte[] bruto = item.getRawName();
+        try {
+            return StandardCharsets.UTF_8.newDecoder()
+                    .onMalformedInput(CodingErrorAction.REPORT)
+                    .onUnmappableCharacter(CodingErrorAction.REPORT)
+                    .decode(ByteBuffer.wrap(bruto)).toString();
+        } catch (CharacterCodingException e) {
+            return new String(bruto, OEM_WINDOWS);
+        }
+    }
+
+    private static String nomeArquivo(String caminho) {
+        return caminho.substring(caminho.lastIndexOf('/') + 1).trim();
+    }
+
+    // .zip corrompido no meio: o que já foi lido segue e o problema vira uma entrada do relatório
+    private static ZipArchiveEntry proximaEntrada(ZipArchiveInputStream in, List<ResultadoImportacaoLoteAlunosDTO.Entrada> entradas) throws IOException {
+        try {
+            return in.getNextZipEntry();
+        } catch (IOException | IllegalArgumentException e) {
+            if (entradas.isEmpty()) throw new IOException("Arquivo .zip inválido: " + e.getMessage(), e);
+            ResultadoImportacaoLoteAlunosDTO.Entrada erro = new ResultadoImportacaoLoteAlunosDTO.Entrada();
+            erro.setArquivo("(restante do .zip)");
+            erro.setErro("Arquivo .zip corrompido a partir deste ponto: " + e.getMessage());
+            entradas.add(erro);
+            return null;
+        }
+    }
+
+    // null se a entrada passar de "limite" bytes descompactados (o restante dela não é guardado)
+    private static byte[] lerLimitado(InputStream in, long limite) throws IOException {
+        ByteArrayOutputStream saida = new ByteArrayOutputStream();
+        byte[] buffer = new byte[8192];
+        int lidos;
+        while ((lidos = in.read(buffer)) >= 0) {
+            if (saida.size() + lidos > limite) return null;
+            saida.write(buffer, 0, lidos);
+        }
+        return saida.toByteArray();
+    }
+
+    private static long megabytes(long bytes) {
+        return bytes / (1024 * 1024);
+    }
+
+    private static void adquirir(Semaphore vagas) throws IOException {
+        try {
+            vagas.acquire();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Importação interrompida", e);
+        }
+    }
+
+    private static void aguardar(List<Future<?>> tarefas) throws IOException {
+        for (Future<?> tarefa : tarefas) {
+            try {
+                tarefa.get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                tarefas.forEach(t -> t.cancel(true));
+                throw new IOException("Importação interrompida", e);
+            } catch (ExecutionException e) {
+                // importar() já registra as falhas na própria entrada
+                log.warn("Falha inesperada na importação em lote", e.getCause());
+            }
+        }
+    }
+}
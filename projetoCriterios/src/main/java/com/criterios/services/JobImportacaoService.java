@@ -0,0 +1,160 @@
+package com.criterios.services;
+
+import com.criterios.dto.JobImportacaoDTO;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.IntConsumer;
+
+/**
+ * Importações de arquivo assíncronas: o upload é copiado para um temporário, a requisição devolve o id do job
+ * e o processamento (os mesmos métodos de ArquivoService) roda fora das threads do Tomcat.
+ *
+ * Um pool fixo limita quantas importações rodam ao mesmo tempo e um semáforo limita quantas podem estar aceitas
+ * (na fila ou rodando), o que também limita o espaço em disco dos temporários: com a fila cheia o upload é recusado.
+ * Os jobs ficam em memória e são descartados algum tempo depois de terminar.
+ */
+@Slf4j
+@Service
+public class JobImportacaoService {
+
+    /** Trabalho do job: recebe o arquivo em disco e um contador de linhas processadas; devolve o resultado. */
+    @FunctionalInterface
+    public interface Tarefa {
+        Object executar(MultipartFile arquivo, IntConsumer progresso) throws Exception;
+    }
+
+    private static final class Job {
+        final String id = UUID.randomUUID().toString();
+        final JobImportacaoDTO.Tipo tipo;
+        final String nomeArquivo;
+        final String usuario;
+        final Instant criadoEm = Instant.now();
+        final AtomicLong linhasProcessadas = new AtomicLong();
+        final List<String> erros = new CopyOnWriteArrayList<>();
+        volatile JobImportacaoDTO.Status status = JobImportacaoDTO.Status.AGUARDANDO;
+        volatile Object resultado;
+        volatile Instant iniciadoEm;
+        volatile Instant concluidoEm;
+
+        Job(JobImportacaoDTO.Tipo tipo, String nomeArquivo, String usuario) {
+            this.tipo = tipo;
+            this.nomeArquivo = nomeArquivo;
+            this.usuario = usuario;
+        }
+    }
+
+    private final Map<String, Job> jobs = new ConcurrentHashMap<>();
+    private final ExecutorService executor;
+    private final Semaphore vagas;
+    private final Duration retencao;
+
+    public JobImportacaoService(@Value("${criterios.importacao.jobs.threads:2}") int threads,
+                                @Value("${criterios.importacao.jobs.max-pendentes:16}") int maxPendentes,
+                                @Value("${criterios.importacao.jobs.retencao-minutos:30}") long retencaoMinutos) {
+        AtomicInteger contador = new AtomicInteger();
+        this.executor = Executors.newFixedThreadPool(threads, r -> {
+            Thread t = new Thread(r, "importacao-" + contador.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        });
+        this.vagas = new Semaphore(Math.max(threads, maxPendentes));
+        this.retencao = Duration.ofMinutes(retencaoMinutos);
+    }
+
+    /** Aceita o upload e agenda a tarefa. Lança RuntimeException se a fila estiver cheia. */
+    public JobImportacaoDTO submeter(JobImportacaoDTO.Tipo tipo, MultipartFile upload, String usuario, Tarefa tarefa) throws IOException {
+        if (!vagas.tryAcquire()) {
+            throw new RuntimeException("Fila de importação cheia. Tente novamente em instantes.");
+        }
+        ArquivoEmDisco arquivo;
+        try {
+            arquivo = ArquivoEmDisco.copiar(upload);
+        } catch (IOException | RuntimeException e) {
+            vagas.release();
+            throw e;
+        }
+
+        Job job = new Job(tipo, upload.getOriginalFilename(), usuario);
+        jobs.put(job.id, job);
+        try {
+            executor.execute(() -> executar(job, arquivo, tarefa));
+        } catch (RejectedExecutionException e) {
+            jobs.remove(job.id);
+            arquivo.excluir();
+            vagas.release();
+            throw new RuntimeException("Importação indisponível no momento.", e);
+        }
+        return paraDTO(job);
+    }
+
+    /** Situação do job, só para quem o submeteu. */
+    public Optional<JobImportacaoDTO> consultar(String id, String usuario) {
+        return Optional.ofNullable(jobs.get(id))
+                .filter(job -> job.usuario.equals(usuario))
+                .map(this::paraDTO);
+    }
+
+    @Scheduled(fixedDelayString = "${criterios.importacao.jobs.limpeza-ms:60000}")
+    void removerConcluidos() {
+        Instant limite = Instant.now().minus(retencao);
+        jobs.values().removeIf(job -> job.concluidoEm != null && job.concluidoEm.isBefore(limite));
+    }
+
+    @PreDestroy
+    void encerrar() {
+        executor.shutdownNow();
+    }
+
+    private void executar(Job job, ArquivoEmDisco arquivo, Tarefa tarefa) {
+        job.iniciadoEm = Instant.now();
+        job.status = JobImportacaoDTO.Status.EXECUTANDO;
+        try {
+            job.resultado = tarefa.executar(arquivo, job.linhasProcessadas::addAndGet);
+            job.concluidoEm = Instant.now();
+            job.status = JobImportacaoDTO.Status.CONCLUIDO;
+        } catch (Exception e) {
+            log.warn("Importação {} ({}) falhou: {}", job.id, job.tipo, e.getMessage());
+            job.erros.add(e.getMessage() != null ? e.getMessage() : e.getClass().getSimpleName());
+            job.concluidoEm = Instant.now();
+            job.status = JobImportacaoDTO.Status.FALHOU;
+        } finally {
+            arquivo.excluir();
+            vagas.release();
+        }
+    }
+
+    private JobImportacaoDTO paraDTO(Job job) {
+        JobImportacaoDTO dto = new JobImportacaoDTO();
+        dto.setId(job.id);
+        dto.setTipo(job.tipo);
+        dto.setStatus(job.status);
+        dto.setNomeArquivo(job.nomeArquivo);
+        dto.setLinhasProcessadas(job.linhasProcessadas.get());
+        dto.setErros(List.copyOf(job.erros));
+        dto.setResultado(job.resultado);
+        dto.setCriadoEm(job.criadoEm);
+        dto.setIniciadoEm(job.iniciadoEm);
+        dto.setConcluidoEm(job.concluidoEm);
+        return dto;
+    }
+}
@@ -0,0 +1,142 @@
+package com.criterios.services;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Leitor de CSV (RFC 4180) em passada única, como máquina de estados sobre um buffer de caracteres.
+ *
+ * Campos entre aspas podem conter o delimitador, quebras de linha e aspas escapadas ({@code ""}).
+ * O delimitador (';' ou ',') é detectado no primeiro bloco lido, contando os que aparecem fora de aspas;
+ * o BOM UTF-8 do Excel é descartado. Linhas totalmente vazias são ignoradas. Tolerante a arquivos "quase CSV":
+ * aspas no meio de um campo sem aspas e texto depois da aspa de fechamento entram como texto comum.
+ */
+public final class LeitorCsv implements Closeable {
+
+    private static final int TAMANHO_BUFFER = 8192;
+
+    private enum Estado { INICIO_CAMPO, SEM_ASPAS, COM_ASPAS, ASPA_EM_CAMPO_COM_ASPAS }
+
+    private final Reader origem;
+    private final char delimitador;
+    private final char[] buffer = new char[TAMANHO_BUFFER];
+    private int posicao;
+    private int limite;
+    private boolean fim;
+    private boolean pularLf;
+
+    // Reaproveitados entre registros
+    private final StringBuilder campo = new StringBuilder();
+    private final List<String> registro = new ArrayList<>();
+
+    private LeitorCsv(Reader origem) throws IOException {
+        this.origem = origem;
+        preencher();
+        if (limite > 0 && buffer[0] == '\uFEFF') posicao = 1;
+        this.delimitador = detectarDelimitador();
+    }
+
+    /** Lê o fluxo como UTF-8, detectando o delimitador. */
+    public static LeitorCsv abrir(InputStream in) throws IOException {
+        return new LeitorCsv(new InputStreamReader(in, StandardCharsets.UTF_8));
+    }
+
+    public char getDelimitador() {
+        return delimitador;
+    }
+
+    /**
+     * Próximo registro, ou null no fim do arquivo. A lista devolvida é reaproveitada na chamada seguinte:
+     * copie se precisar guardá-la.
+     */
+    public List<String> proximo() throws IOException {
+        registro.clear();
+        campo.setLength(0);
+        Estado estado = Estado.INICIO_CAMPO;
+        boolean consumiu = false;
+
+        while (true) {
+            while (posicao == limite && !fim) preencher();
+            if (posicao == limite) break;
+            char c = buffer[posicao++];
+
+            // "\r\n": o '\n' logo após o '\r' que encerrou o registro anterior é descartado
+            if (pularLf) {
+                pularLf = false;
+                if (c == '\n') continue;
+            }
+
+            switch (estado) {
+                case COM_ASPAS:
+                    if (c == '"') estado = Estado.ASPA_EM_CAMPO_COM_ASPAS;
+                    else campo.append(c);
+                    break;
+                case ASPA_EM_CAMPO_COM_ASPAS:
+                    if (c == '"') {
+                        campo.append('"');
+                        estado = Estado.COM_ASPAS;
+                        break;
+                    }
+                    // Aspa de fechamento: o caractere é tratado como em um campo sem aspas
+                    estado = Estado.SEM_ASPAS;
+                    // fallthrough
+                default:
+                    if (c == delimitador) {
+                        registro.add(campo.toString());
+                        campo.setLength(0);
+                        estado = Estado.INICIO_CAMPO;
+                        consumiu = true;
+                    } else if (c == '\n' || c == '\r') {
+                        pularLf = c == '\r';
+                        if (!consumiu && estado == Estado.INICIO_CAMPO) continue; // linha vazia
+                        registro.add(campo.toString());
+                        return registro;
+                    } else if (c == '"' && estado == Estado.INICIO_CAMPO) {
+                        estado = Estado.COM_ASPAS;
+                        consumiu = true;
+                    } else {
+                        campo.append(c);
+                        estado = Estado.SEM_ASPAS;
+                        consumiu = true;
+                    }
+            }
+        }
+
+        // Fim do arquivo: entrega o último registro (mesmo sem quebra de linha ou com aspas não fechadas)
+        if (!consumiu) return null;
+        registro.add(campo.toString());
+        return registro;
+    }
+
+    @Override
+    public void close() throws IOException {
+        origem.close();
+    }
+
+    private void preencher() throws IOException {
+        int lidos = origem.read(buffer, 0, buffer.length);
+        posicao = 0;
+        limite = Math.max(lidos, 0);
+        fim = lidos < 0;
+    }
+
+    // Conta ';' e ',' fora de aspas no primeiro bloco lido (vírgulas soltas no texto não decidem sozinhas)
+    private char detectarDelimitador() {
+        int pontoEVirgula = 0, virgula = 0;
+        boolean entreAspas = false;
+        for (int i = posicao; i < limite; i++) {
+            char c = buffer[i];
+            if (c == '"') entreAspas = !entreAspas;
+            else if (entreAspas) continue;
+            else if (c == ';') pontoEVirgula++;
+            else if (c == ',') virgula++;
+        }
+        return pontoEVirgula > virgula ? ';' : ',';
+    }
+}
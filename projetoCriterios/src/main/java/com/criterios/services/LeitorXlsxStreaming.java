@@ -0,0 +1,109 @@
+package com.criterios.services;
+
+import org.apache.poi.openxml4j.opc.OPCPackage;
+import org.apache.poi.openxml4j.opc.PackageAccess;
+import org.apache.poi.ss.usermodel.DataFormatter;
+import org.apache.poi.util.XMLHelper;
+import org.apache.poi.xssf.eventusermodel.ReadOnlySharedStringsTable;
+import org.apache.poi.xssf.eventusermodel.XSSFReader;
+import org.apache.poi.xssf.eventusermodel.XSSFSheetXMLHandler;
+import org.apache.poi.xssf.model.StylesTable;
+import org.apache.poi.xssf.usermodel.XSSFComment;
+import org.xml.sax.InputSource;
+import org.xml.sax.XMLReader;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.function.Consumer;
+
+/**
+ * Leitura da primeira aba de um .xlsx no modelo de eventos (SAX), sem montar o DOM do XSSFWorkbook.
+ *
+ * O pacote é aberto a partir de arquivo (acesso aleatório ao zip, nada é descompactado inteiro em memória) e a aba
+ * é percorrida como fluxo XML: cada linha é entregue assim que termina, com as células já formatadas como o
+ * DataFormatter faria na planilha. Em memória ficam só a tabela de strings compartilhadas e os estilos.
+ */
+public final class LeitorXlsxStreaming {
+
+    private LeitorXlsxStreaming() {
+    }
+
+    /**
+     * Entrega as {@code colunas} primeiras colunas (A, B, ...) de cada linha não vazia da primeira aba, já com trim.
+     * Células ausentes chegam como "". O array entregue é reaproveitado entre linhas: copie se precisar guardá-lo.
+     */
+    public static void lerPrimeiraAba(File arquivo, int colunas, Consumer<String[]> linha) throws IOException {
+        try (OPCPackage pacote = OPCPackage.open(arquivo, PackageAccess.READ)) {
+            XSSFReader leitor = new XSSFReader(pacote);
+            ReadOnlySharedStringsTable strings = new ReadOnlySharedStringsTable(pacote, false);
+            StylesTable estilos = leitor.getStylesTable();
+
+            Iterator<InputStream> abas = leitor.getSheetsData();
+            if (!abas.hasNext()) return;
+
+            try (InputStream aba = abas.next()) {
+                XMLReader parser = XMLHelper.newXMLReader();
+                parser.setContentHandler(new XSSFSheetXMLHandler(estilos, null, strings,
+                        new ColetorLinhas(colunas, linha), new DataFormatter(), false));
+                parser.parse(new InputSource(aba));
+            }
+        } catch (IOException e) {
+            throw e;
+        } catch (Exception e) {
+            // OpenXML4JException / SAXException / ParserConfigurationException: arquivo que não é um .xlsx válido
+            throw new IOException("Erro ao processar arquivo Excel/XLSX: " + e.getMessage(), e);
+        }
+    }
+
+    // Acumula as células da linha corrente e entrega ao terminar a linha
+    private static final class ColetorLinhas implements XSSFSheetXMLHandler.SheetContentsHandler {
+
+        private final String[] valores;
+        private final Consumer<String[]> destino;
+        private int proximaColuna;
+        private boolean vazia;
+
+        private ColetorLinhas(int colunas, Consumer<String[]> destino) {
+            this.valores = new String[colunas];
+            this.destino = destino;
+        }
+
+        @Override
+        public void startRow(int numeroLinha) {
+            Arrays.fill(valores, "");
+            proximaColuna = 0;
+            vazia = true;
+        }
+
+        @Override
+        public void endRow(int numeroLinha) {
+            if (!vazia) destino.accept(valores);
+        }
+
+        @Override
+        public void cell(String referencia, String valorFormatado, XSSFComment comentario) {
+            // Sem referência (arquivos gerados por algumas ferramentas) a célula é a seguinte à anterior
+            int coluna = referencia != null ? coluna(referencia) : proximaColuna;
+            proximaColuna = coluna + 1;
+            if (coluna >= valores.length || valorFormatado == null) return;
+
+            String valor = valorFormatado.trim();
+            valores[coluna] = valor;
+            if (!valor.isEmpty()) vazia = false;
+        }
+
+        // "AB12" -> 27 (base 26 sobre as letras, A = 0), sem alocar
+        private static int coluna(String referencia) {
+            int coluna = 0;
+            for (int i = 0; i < referencia.length(); i++) {
+                char c = referencia.charAt(i);
+                if (c < 'A' || c > 'Z') break;
+                coluna = coluna * 26 + (c - 'A' + 1);
+            }
+            return coluna - 1;
+        }
+    }
+}
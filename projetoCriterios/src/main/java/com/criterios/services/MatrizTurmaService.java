@@ -0,0 +1,96 @@
+package com.criterios.services;
+
+import com.criterios.dto.MatrizTurmaDTO;
+import com.criterios.entities.Aluno;
+import com.criterios.entities.TipoCriterio;
+import com.criterios.repository.AlunoRepository;
+import com.criterios.repository.AvaliacaoRepository;
+import com.criterios.repository.CriterioRepository;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Monta a matriz de avaliação da turma: uma consulta de critérios, uma de alunos e uma única consulta
+ * sobre tb_avaliacao; os estados das células viram bitsets por aluno.
+ */
+@Service
+@RequiredArgsConstructor
+public class MatrizTurmaService {
+
+    private final CriterioRepository criterioRepository;
+    private final AlunoRepository alunoRepository;
+    private final AvaliacaoRepository avaliacaoRepository;
+    private final ReguaNiveisService reguaNiveisService;
+
+    // Estado acumulado de um aluno enquanto as células são lidas
+    private static final class Acumulador {
+        final BitSet respondidos = new BitSet();
+        final BitSet atendidos = new BitSet();
+        final BitSet comObservacao = new BitSet();
+        int criticosAtendidos;
+        int desejaveisAtendidos;
+        boolean finalizada;
+        Integer nivelFinal;
+    }
+
+    @Transactional(readOnly = true)
+    public MatrizTurmaDTO montar(Long turmaId, Long snapshotDisciplinaId) {
+        // Critérios do snapshot: posição na lista = índice do bit
+        List<Long> criterioIds = new ArrayList<>();
+        Map<Long, Integer> indicePorCriterio = new HashMap<>();
+        BitSet criticos = new BitSet();
+        for (Object[] linha : criterioRepository.findIdsETiposBySnapshotDisciplinaId(snapshotDisciplinaId)) {
+            int indice = criterioIds.size();
+            criterioIds.add((Long) linha[0]);
+            indicePorCriterio.put((Long) linha[0], indice);
+            if (linha[1] == TipoCriterio.CRITICO) criticos.set(indice);
+        }
+
+        Map<Long, Acumulador> porAluno = new HashMap<>();
+        for (Object[] celula : avaliacaoRepository.findCelulasDaTurma(turmaId, snapshotDisciplinaId)) {
+            Integer indice = indicePorCriterio.get((Long) celula[1]);
+            if (indice == null) continue;
+            Acumulador acc = porAluno.computeIfAbsent((Long) celula[0], k -> new Acumulador());
+
+            Boolean atendeu = (Boolean) celula[2];
+            if (atendeu != null) acc.respondidos.set(indice);
+            if (Boolean.TRUE.equals(atendeu)) {
+                acc.atendidos.set(indice);
+                if (criticos.get(indice)) acc.criticosAtendidos++;
+                else acc.desejaveisAtendidos++;
+            }
+            if (Boolean.TRUE.equals(celula[5])) acc.comObservacao.set(indice);
+            if (Boolean.TRUE.equals(celula[3])) {
+                acc.finalizada = true;
+                acc.nivelFinal = (Integer) celula[4];
+            }
+        }
+
+        ReguaCompilada regua = reguaNiveisService.obterRegua(snapshotDisciplinaId);
+        Acumulador vazio = new Acumulador();
+        List<MatrizTurmaDTO.Linha> linhas = new ArrayList<>();
+        for (Aluno aluno : alunoRepository.findByTurmaId(turmaId)) {
+            Acumulador acc = porAluno.getOrDefault(aluno.getId(), vazio);
+            Integer nivel = acc.finalizada && acc.nivelFinal != null
+                    ? acc.nivelFinal
+                    : regua.nivelPara(acc.criticosAtendidos, acc.desejaveisAtendidos);
+            linhas.add(new MatrizTurmaDTO.Linha(aluno.getId(), aluno.getNome(),
+                    codificar(acc.respondidos), codificar(acc.atendidos), codificar(acc.comObservacao),
+                    acc.finalizada, nivel));
+        }
+
+        return new MatrizTurmaDTO(turmaId, snapshotDisciplinaId, criterioIds, codificar(criticos), linhas);
+    }
+
+    private static String codificar(BitSet bits) {
+        return Base64.getEncoder().encodeToString(bits.toByteArray());
+    }
+}
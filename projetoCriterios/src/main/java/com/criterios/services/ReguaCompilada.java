@@ -0,0 +1,94 @@
+package com.criterios.services;
+
+import com.criterios.entities.NivelAvaliacao;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Régua de níveis de um Snapshot compilada em arrays primitivos (ordem decrescente de nível),
+ * junto com os totais de críticos/desejáveis do snapshot.
+ * Imutável: pode ser compartilhada entre threads e mantida em cache.
+ */
+public final class ReguaCompilada {
+
+    private final int[] niveis;
+    private final int[] minCriticos;
+    private final int[] minDesejaveis;
+    private final int totalCriticos;
+    private final int totalDesejaveis;
+
+    // true quando os mínimos nunca crescem ao descer na régua (caso das réguas geradas automaticamente),
+    // o que permite busca binária pelo primeiro nível atendido
+    private final boolean monotona;
+
+    private ReguaCompilada(int[] niveis, int[] minCriticos, int[] minDesejaveis, int totalCriticos, int totalDesejaveis) {
+        this.niveis = niveis;
+        this.minCriticos = minCriticos;
+        this.minDesejaveis = minDesejaveis;
+        this.totalCriticos = totalCriticos;
+        this.totalDesejaveis = totalDesejaveis;
+
+        boolean ok = true;
+        for (int i = 1; i < niveis.length && ok; i++) {
+            ok = minCriticos[i] <= minCriticos[i - 1] && minDesejaveis[i] <= minDesejaveis[i - 1];
+        }
+        this.monotona = ok;
+    }
+
+    public static ReguaCompilada compilar(List<NivelAvaliacao> niveis, int totalCriticos, int totalDesejaveis) {
+        List<NivelAvaliacao> ordenados = new ArrayList<>(niveis);
+        ordenados.sort(Comparator.comparing(NivelAvaliacao::getNivel).reversed());
+
+        int n = ordenados.size();
+        int[] nivel = new int[n];
+        int[] minC = new int[n];
+        int[] minD = new int[n];
+        for (int i = 0; i < n; i++) {
+            NivelAvaliacao na = ordenados.get(i);
+            nivel[i] = na.getNivel();
+            minC[i] = na.getMinCriticos();
+            minD[i] = na.getMinDesejaveis();
+        }
+        return new ReguaCompilada(nivel, minC, minD, totalCriticos, totalDesejaveis);
+    }
+
+    /**
+     * Maior nível cujos mínimos de críticos E desejáveis foram atingidos (0 se nenhum).
+     * Não aloca memória.
+     */
+    public int nivelPara(int criticosAtendidos, int desejaveisAtendidos) {
+        int n = niveis.length;
+        if (monotona) {
+            // Na régua monotônica, "atende" é falso até um índice e verdadeiro dali em diante
+            int lo = 0, hi = n;
+            while (lo < hi) {
+                int meio = (lo + hi) >>> 1;
+                if (atende(meio, criticosAtendidos, desejaveisAtendidos)) hi = meio;
+                else lo = meio + 1;
+            }
+            return lo < n ? niveis[lo] : 0;
+        }
+        for (int i = 0; i < n; i++) {
+            if (atende(i, criticosAtendidos, desejaveisAtendidos)) return niveis[i];
+        }
+        return 0;
+    }
+
+    private boolean atende(int i, int criticos, int desejaveis) {
+        return criticos >= minCriticos[i] && desejaveis >= minDesejaveis[i];
+    }
+
+    public int getTotalCriticos() {
+        return totalCriticos;
+    }
+
+    public int getTotalDesejaveis() {
+        return totalDesejaveis;
+    }
+
+    public int getQuantidadeNiveis() {
+        return niveis.length;
+    }
+}
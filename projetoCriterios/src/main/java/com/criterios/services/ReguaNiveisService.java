@@ -0,0 +1,53 @@
+package com.criterios.services;
+
+import com.criterios.cache.CacheLimitado;
+import com.criterios.entities.NivelAvaliacao;
+import com.criterios.entities.TipoCriterio;
+import com.criterios.repository.CriterioRepository;
+import com.criterios.repository.NivelAvaliacaoRepository;
+import com.criterios.repository.SnapshotDisciplinaRepository;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Service;
+
+import java.util.List;
+
+/**
+ * Fornece a régua compilada (níveis + totais) de cada Snapshot.
+ * Os níveis de um snapshot não mudam após SnapshotService.criarSnapshot, então a régua
+ * é carregada uma vez e servida do cache até o snapshot ser removido.
+ * Id inexistente (ou snapshot já removido) lança exceção e não entra no cache.
+ */
+@Service
+@RequiredArgsConstructor
+public class ReguaNiveisService {
+
+    private final NivelAvaliacaoRepository nivelRepository;
+    private final CriterioRepository criterioRepository;
+    private final SnapshotDisciplinaRepository snapshotDisciplinaRepository;
+    private final CacheLimitado<Long, ReguaCompilada> cacheRegua;
+
+    public ReguaCompilada obterRegua(Long snapshotDisciplinaId) {
+        return cacheRegua.obter(snapshotDisciplinaId, this::compilar);
+    }
+
+    public void invalidar(Long snapshotDisciplinaId) {
+        cacheRegua.invalidar(snapshotDisciplinaId);
+    }
+
+    private ReguaCompilada compilar(Long snapshotDisciplinaId) {
+        int totalCriticos = 0;
+        int totalDesejaveis = 0;
+        List<Object[]> totais = criterioRepository.countBySnapshotDisciplinaGroupByTipo(snapshotDisciplinaId);
+        for (Object[] linha : totais) {
+            if (linha[0] == TipoCriterio.CRITICO) totalCriticos = ((Long) linha[1]).intValue();
+            else if (linha[0] == TipoCriterio.DESEJAVEL) totalDesejaveis = ((Long) linha[1]).intValue();
+        }
+        List<NivelAvaliacao> niveis = nivelRepository.findBySnapshotDisciplinaIdOrderByNivelDesc(snapshotDisciplinaId);
+
+        // Régua vazia só é válida para um snapshot que existe; a consulta extra fica restrita a esse caso
+        if (totais.isEmpty() && niveis.isEmpty() && !snapshotDisciplinaRepository.existsById(snapshotDisciplinaId)) {
+            throw new RuntimeException("Snapshot não encontrado");
+        }
+        return ReguaCompilada.compilar(niveis, totalCriticos, totalDesejaveis);
+    }
+}
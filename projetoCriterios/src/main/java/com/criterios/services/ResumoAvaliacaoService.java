@@ -0,0 +1,189 @@
+package com.criterios.services;
+
+import com.criterios.dto.AvaliacaoDTO;
+import com.criterios.entities.ResumoAvaliacao;
+import com.criterios.entities.TipoCriterio;
+import com.criterios.repository.AvaliacaoJdbcRepository;
+import com.criterios.repository.CriterioRepository;
+import com.criterios.repository.ResumoAvaliacaoJdbcRepository;
+import com.criterios.repository.ResumoAvaliacaoRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+/**
+ * Mantém a tabela de contadores materializados (tb_resumo_avaliacao).
+ *
+ * As gravações de nota somam à linha (aluno, snapshot) a diferença entre o valor anterior e o novo de cada célula,
+ * na mesma transação: nenhuma releitura de tb_avaliacao e nenhum lock compartilhado na faixa do aluno.
+ * O recálculo completo fica para a importação de arquivo e para a reconstrução da tabela.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class ResumoAvaliacaoService {
+
+    private static final int TAMANHO_LOTE_RECONSTRUCAO = 500;
+
+    private final ResumoAvaliacaoRepository resumoRepository;
+    private final ResumoAvaliacaoJdbcRepository resumoJdbcRepository;
+    private final CriterioRepository criterioRepository;
+    private final TransactionTemplate transactionTemplate;
+
+    /**
+     * Recalcula os contadores dos alunos informados no snapshot a partir de todas as suas avaliações.
+     * Deve ser chamado dentro da transação que escreveu em tb_avaliacao (importação de arquivo).
+     */
+    @Transactional
+    public void recalcular(Collection<Long> alunoIds, Long snapshotDisciplinaId) {
+        if (alunoIds.isEmpty()) return;
+        resumoRepository.atualizarContadores(alunoIds, snapshotDisciplinaId);
+    }
+
+    /**
+     * Soma aos contadores a diferença de uma célula gravada (valor anterior -> novo). Valor anterior desconhecido
+     * (nulo): recalcula o aluno. Deve ser chamado dentro da transação que escreveu em tb_avaliacao.
+     */
+    @Transactional
+    public void aplicarAlteracao(AvaliacaoDTO dto, AvaliacaoJdbcRepository.ValorAnterior anterior, TipoCriterio tipo) {
+        if (anterior == null) {
+            resumoRepository.atualizarContadores(List.of(dto.getAlunoId()), dto.getEstruturaDisciplinaId());
+            return;
+        }
+        Map<ChaveResumo, int[]> deltas = new TreeMap<>(ORDEM_CHAVE);
+        acumular(deltas, dto, anterior, tipo);
+        somar(deltas);
+    }
+
+    /**
+     * Soma aos contadores a diferença de cada célula gravada em lote. Alunos com alguma célula de valor anterior
+     * desconhecido (inserção concorrente) são recalculados por inteiro em vez de receber delta.
+     * Deve ser chamado dentro da transação que escreveu em tb_avaliacao.
+     */
+    @Transactional
+    public void aplicarAlteracoes(Collection<AvaliacaoDTO> avaliacoes, AvaliacaoJdbcRepository.GravacaoLote gravacao) {
+        if (avaliacoes.isEmpty()) return;
+
+        Set<Long> criterioIds = new HashSet<>();
+        for (AvaliacaoDTO dto : avaliacoes) criterioIds.add(dto.getCriterioId());
+        Map<Long, TipoCriterio> tipoPorCriterio = new HashMap<>();
+        for (Object[] linha : criterioRepository.findTiposByIds(criterioIds)) {
+            tipoPorCriterio.put((Long) linha[0], (TipoCriterio) linha[1]);
+        }
+
+        Map<Long, Set<Long>> recalcularPorSnapshot = new TreeMap<>();
+        for (AvaliacaoDTO dto : avaliacoes) {
+            if (gravacao.semAnterior().contains(AvaliacaoJdbcRepository.celula(dto))) {
+                recalcularPorSnapshot.computeIfAbsent(dto.getEstruturaDisciplinaId(), k -> new TreeSet<>()).add(dto.getAlunoId());
+            }
+        }
+
+        Map<ChaveResumo, int[]> deltas = new TreeMap<>(ORDEM_CHAVE);
+        for (AvaliacaoDTO dto : avaliacoes) {
+            Set<Long> recalculados = recalcularPorSnapshot.get(dto.getEstruturaDisciplinaId());
+            if (recalculados != null && recalculados.contains(dto.getAlunoId())) continue;
+            acumular(deltas, dto, gravacao.anteriores().get(AvaliacaoJdbcRepository.celula(dto)),
+                    tipoPorCriterio.get(dto.getCriterioId()));
+        }
+        somar(deltas);
+        recalcularPorSnapshot.forEach((snapshotId, alunos) -> resumoRepository.atualizarContadores(alunos, snapshotId));
+    }
+
+    private record ChaveResumo(long alunoId, long snapshotId) {}
+
+    // Mesma ordem em todas as transações ao travar as linhas de resumo
+    private static final Comparator<ChaveResumo> ORDEM_CHAVE =
+            Comparator.comparingLong(ChaveResumo::alunoId).thenComparingLong(ChaveResumo::snapshotId);
+
+    // Delta por chave: [atendidos, respondidos, total] do tipo do critério, em posições separadas por tipo
+    private static void acumular(Map<ChaveResumo, int[]> deltas, AvaliacaoDTO dto,
+                                 AvaliacaoJdbcRepository.ValorAnterior anterior, TipoCriterio tipo) {
+        if (anterior == null || tipo == null) return;
+        int atendidos = (Boolean.TRUE.equals(dto.getAtendeu()) ? 1 : 0) - (Boolean.TRUE.equals(anterior.atendeu()) ? 1 : 0);
+        int respondidos = (dto.getAtendeu() != null ? 1 : 0) - (anterior.atendeu() != null ? 1 : 0);
+        int total = anterior.existia() ? 0 : 1;
+        if (atendidos == 0 && respondidos == 0 && total == 0) return;
+
+        int[] delta = deltas.computeIfAbsent(new ChaveResumo(dto.getAlunoId(), dto.getEstruturaDisciplinaId()), k -> new int[5]);
+        int base = tipo == TipoCriterio.CRITICO ? 0 : 2;
+        delta[base] += atendidos;
+        delta[base + 1] += respondidos;
+        delta[4] += total;
+    }
+
+    private void somar(Map<ChaveResumo, int[]> deltas) {
+        List<ResumoAvaliacaoJdbcRepository.Delta> linhas = new ArrayList<>(deltas.size());
+        deltas.forEach((chave, d) -> linhas.add(new ResumoAvaliacaoJdbcRepository.Delta(
+                chave.alunoId(), chave.snapshotId(), d[0], d[1], d[2], d[3], d[4])));
+        resumoJdbcRepository.somarDeltas(linhas);
+    }
+
+    @Transactional(readOnly = true)
+    public Optional<ResumoAvaliacao> buscar(Long alunoId, Long snapshotDisciplinaId) {
+        return resumoRepository.findByAlunoAndSnapshot(alunoId, snapshotDisciplinaId);
+    }
+
+    /**
+     * Contadores de todos os alunos da turma no snapshot, indexados pelo id do aluno.
+     * Aluno sem entrada no mapa = nenhuma avaliação registrada.
+     */
+    @Transactional(readOnly = true)
+    public Map<Long, ResumoAvaliacao> buscarPorTurma(Long turmaId, Long snapshotDisciplinaId) {
+        Map<Long, ResumoAvaliacao> resumos = new HashMap<>();
+        for (ResumoAvaliacao r : resumoRepository.findByTurmaAndSnapshot(turmaId, snapshotDisciplinaId)) {
+            resumos.put(r.getAluno().getId(), r);
+        }
+        return resumos;
+    }
+
+    @Transactional(readOnly = true)
+    public Map<Long, ResumoAvaliacao> buscarPorAlunos(Collection<Long> alunoIds, Long snapshotDisciplinaId) {
+        Map<Long, ResumoAvaliacao> resumos = new HashMap<>();
+        for (ResumoAvaliacao r : resumoRepository.findByAlunosAndSnapshot(alunoIds, snapshotDisciplinaId)) {
+            resumos.put(r.getAluno().getId(), r);
+        }
+        return resumos;
+    }
+
+    /**
+     * Recalcula toda a tabela a partir de tb_avaliacao, em blocos de alunos
+     * (cada bloco na sua própria transação, para não segurar locks por muito tempo).
+     * Retorna a quantidade de linhas de resumo gravadas.
+     */
+    public long reconstruir() {
+        long linhas = 0;
+        Long ultimoAluno = 0L;
+
+        while (true) {
+            final Long aPartirDe = ultimoAluno;
+            List<Long> alunos = resumoRepository.findProximosAlunosComAvaliacao(aPartirDe, TAMANHO_LOTE_RECONSTRUCAO);
+            if (alunos.isEmpty()) break;
+
+            Long inicio = alunos.get(0);
+            Long fim = alunos.get(alunos.size() - 1);
+            Integer gravadas = transactionTemplate.execute(status -> {
+                resumoRepository.deleteByAlunoIdEntre(inicio, fim);
+                return resumoRepository.inserirContadoresEntre(inicio, fim);
+            });
+            linhas += gravadas != null ? gravadas : 0;
+            ultimoAluno = fim;
+        }
+
+        log.info("Resumos de avaliação reconstruídos: {} linhas", linhas);
+        return linhas;
+    }
+}
@@ -0,0 +1,182 @@
+package com.criterios.services;
+
+import com.criterios.dto.ResultadoSimulacaoDTO;
+import com.criterios.dto.SimulacaoNiveisDTO;
+import com.criterios.entities.NivelAvaliacao;
+import com.criterios.entities.TipoCriterio;
+import com.criterios.repository.AlunoRepository;
+import com.criterios.repository.AvaliacaoRepository;
+import com.criterios.repository.CriterioRepository;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.stream.IntStream;
+
+/**
+ * Simulação "e se" de réguas de níveis sobre as avaliações reais de um snapshot.
+ *
+ * As células atendidas são carregadas uma vez numa matriz de bits (aluno x critério); dela saem os pares
+ * (críticos atendidos, desejáveis atendidos) de cada aluno, agrupados por par distinto. Como o nível só
+ * depende desse par, cada régua candidata é avaliada uma vez por par (no máximo (C+1) x (D+1) combinações),
+ * em paralelo entre as candidatas. Nada é gravado.
+ */
+@Service
+@RequiredArgsConstructor
+public class SimulacaoReguaService {
+
+    private static final int MAX_CANDIDATAS = 200;
+
+    private final CriterioRepository criterioRepository;
+    private final AlunoRepository alunoRepository;
+    private final AvaliacaoRepository avaliacaoRepository;
+    private final ReguaNiveisService reguaNiveisService;
+
+    /**
+     * Quantidade de alunos por par (críticos, desejáveis) atendidos: índice = c * (totalDesejaveis + 1) + d.
+     */
+    private record DistribuicaoPares(int totalCriticos, int totalDesejaveis, int totalAlunos, int[] alunosPorPar) {}
+
+    @Transactional(readOnly = true)
+    public ResultadoSimulacaoDTO simular(Long snapshotDisciplinaId, SimulacaoNiveisDTO dto) {
+        List<SimulacaoNiveisDTO.ReguaCandidata> candidatas = dto != null ? dto.getCandidatas() : null;
+        if (candidatas == null || candidatas.isEmpty()) {
+            throw new RuntimeException("Informe ao menos uma régua candidata.");
+        }
+        if (candidatas.size() > MAX_CANDIDATAS) {
+            throw new RuntimeException("Máximo de " + MAX_CANDIDATAS + " réguas candidatas por simulação.");
+        }
+
+        long inicio = System.nanoTime();
+        DistribuicaoPares pares = carregar(snapshotDisciplinaId);
+
+        // Compila tudo antes (erros de validação saem antes do cálculo)
+        List<ReguaCompilada> reguas = new ArrayList<>(candidatas.size());
+        for (SimulacaoNiveisDTO.ReguaCandidata candidata : candidatas) {
+            reguas.add(compilar(candidata, pares));
+        }
+
+        ReguaCompilada reguaAtual = reguaNiveisService.obterRegua(snapshotDisciplinaId);
+        int[] nivelAtualPorPar = niveisPorPar(reguaAtual, pares);
+        ResultadoSimulacaoDTO.Distribuicao atual = distribuir("Atual", nivelAtualPorPar, nivelAtualPorPar, pares);
+
+        List<ResultadoSimulacaoDTO.Distribuicao> resultados = IntStream.range(0, reguas.size())
+                .parallel()
+                .mapToObj(i -> distribuir(nomeDe(candidatas.get(i), i),
+                        niveisPorPar(reguas.get(i), pares), nivelAtualPorPar, pares))
+                .toList();
+
+        long tempoMs = (System.nanoTime() - inicio) / 1_000_000;
+        return new ResultadoSimulacaoDTO(snapshotDisciplinaId, pares.totalAlunos(), tempoMs, atual, resultados);
+    }
+
+    // Matriz de bits aluno x critério -> alunos por par (críticos, desejáveis)
+    private DistribuicaoPares carregar(Long snapshotDisciplinaId) {
+        Map<Long, Integer> indicePorCriterio = new HashMap<>();
+        List<Boolean> criticoPorIndice = new ArrayList<>();
+        for (Object[] linha : criterioRepository.findIdsETiposBySnapshotDisciplinaId(snapshotDisciplinaId)) {
+            indicePorCriterio.put((Long) linha[0], criticoPorIndice.size());
+            criticoPorIndice.add(linha[1] == TipoCriterio.CRITICO);
+        }
+        if (indicePorCriterio.isEmpty()) {
+            throw new RuntimeException("Snapshot sem critérios.");
+        }
+
+        int palavras = (criticoPorIndice.size() + 63) >>> 6;
+        long[] mascaraCriticos = new long[palavras];
+        int totalCriticos = 0;
+        for (int i = 0; i < criticoPorIndice.size(); i++) {
+            if (criticoPorIndice.get(i)) {
+                mascaraCriticos[i >>> 6] |= 1L << i;
+                totalCriticos++;
+            }
+        }
+        int totalDesejaveis = criticoPorIndice.size() - totalCriticos;
+
+        // Alunos das turmas do snapshot (inclusive os ainda sem avaliação) + quem tem células nele
+        Map<Long, Integer> indicePorAluno = new HashMap<>();
+        for (Long alunoId : alunoRepository.findIdsBySnapshotDisciplinaId(snapshotDisciplinaId)) {
+            indicePorAluno.putIfAbsent(alunoId, indicePorAluno.size());
+        }
+        List<Object[]> atendidas = avaliacaoRepository.findAtendidasDoSnapshot(snapshotDisciplinaId);
+        for (Object[] celula : atendidas) {
+            indicePorAluno.putIfAbsent((Long) celula[0], indicePorAluno.size());
+        }
+
+        int totalAlunos = indicePorAluno.size();
+        long[] bits = new long[totalAlunos * palavras];
+        for (Object[] celula : atendidas) {
+            Integer criterio = indicePorCriterio.get((Long) celula[1]);
+            if (criterio == null) continue;
+            int base = indicePorAluno.get((Long) celula[0]) * palavras;
+            bits[base + (criterio >>> 6)] |= 1L << criterio;
+        }
+
+        int[] alunosPorPar = new int[(totalCriticos + 1) * (totalDesejaveis + 1)];
+        for (int a = 0; a < totalAlunos; a++) {
+            int c = 0, d = 0;
+            int base = a * palavras;
+            for (int w = 0; w < palavras; w++) {
+                c += Long.bitCount(bits[base + w] & mascaraCriticos[w]);
+                d += Long.bitCount(bits[base + w] & ~mascaraCriticos[w]);
+            }
+            alunosPorPar[c * (totalDesejaveis + 1) + d]++;
+        }
+        return new DistribuicaoPares(totalCriticos, totalDesejaveis, totalAlunos, alunosPorPar);
+    }
+
+    private ReguaCompilada compilar(SimulacaoNiveisDTO.ReguaCandidata candidata, DistribuicaoPares pares) {
+        if (candidata.getNiveis() == null || candidata.getNiveis().isEmpty()) {
+            throw new RuntimeException("Régua candidata sem níveis: " + candidata.getNome());
+        }
+        List<NivelAvaliacao> niveis = new ArrayList<>(candidata.getNiveis().size());
+        for (SimulacaoNiveisDTO.Regra regra : candidata.getNiveis()) {
+            if (regra.getNivel() == null || regra.getMinCriticos() == null || regra.getMinDesejaveis() == null
+                    || regra.getMinCriticos() < 0 || regra.getMinDesejaveis() < 0) {
+                throw new RuntimeException("Regra inválida na régua candidata: " + candidata.getNome());
+            }
+            NivelAvaliacao nivel = new NivelAvaliacao();
+            nivel.setNivel(regra.getNivel());
+            nivel.setMinCriticos(regra.getMinCriticos());
+            nivel.setMinDesejaveis(regra.getMinDesejaveis());
+            niveis.add(nivel);
+        }
+        return ReguaCompilada.compilar(niveis, pares.totalCriticos(), pares.totalDesejaveis());
+    }
+
+    private static int[] niveisPorPar(ReguaCompilada regua, DistribuicaoPares pares) {
+        int[] alunosPorPar = pares.alunosPorPar();
+        int largura = pares.totalDesejaveis() + 1;
+        int[] niveis = new int[alunosPorPar.length];
+        for (int i = 0; i < alunosPorPar.length; i++) {
+            if (alunosPorPar[i] > 0) niveis[i] = regua.nivelPara(i / largura, i % largura);
+        }
+        return niveis;
+    }
+
+    private static ResultadoSimulacaoDTO.Distribuicao distribuir(String nome, int[] nivelPorPar, int[] nivelAtualPorPar,
+                                                                 DistribuicaoPares pares) {
+        int[] alunosPorPar = pares.alunosPorPar();
+        Map<Integer, Integer> histograma = new TreeMap<>();
+        long soma = 0;
+        int mudaram = 0;
+        for (int i = 0; i < alunosPorPar.length; i++) {
+            int qtd = alunosPorPar[i];
+            if (qtd == 0) continue;
+            histograma.merge(nivelPorPar[i], qtd, Integer::sum);
+            soma += (long) nivelPorPar[i] * qtd;
+            if (nivelPorPar[i] != nivelAtualPorPar[i]) mudaram += qtd;
+        }
+        double media = pares.totalAlunos() > 0 ? (double) soma / pares.totalAlunos() : 0.0;
+        return new ResultadoSimulacaoDTO.Distribuicao(nome, histograma, media, mudaram);
+    }
+
+    private static String nomeDe(SimulacaoNiveisDTO.ReguaCandidata candidata, int indice) {
+        return candidata.getNome() != null && !candidata.getNome().isBlank() ? candidata.getNome() : "Candidata " + (indice + 1);
+    }
+}
@@ -6,6 +6,11 @@ import lombok.RequiredArgsConstructor;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
 import java.util.List;
 
 @Service
@@ -31,65 +36,85 @@ public class SnapshotService {
             throw new RuntimeException("A disciplina Template não possui Estrutura ATIVA. Importe critérios primeiro.");
         }
         
+        // Estrutura idêntica já copiada antes (outra turma, mesmo template)? Snapshot é imutável: reaproveita.
+        String hash = calcularHashEstrutura(template);
+        SnapshotDisciplina existente = snapshotDisciplinaRepository.findTopByHashEstruturaOrderByIdDesc(hash);
+        if (existente != null) {
+            return existente;
+        }
+
         // 1. Cria o SnapshotDisciplina (Cabeçalho)
         SnapshotDisciplina snapshot = new SnapshotDisciplina();
         snapshot.setDisciplinaTemplateId(template.getId());
         snapshot.setNomeDisciplina(template.getNome());
         snapshot.setSiglaDisciplina(template.getSigla());
+        snapshot.setHashEstrutura(hash);
         
         snapshot = snapshotDisciplinaRepository.save(snapshot); 
 
-        // 2. Busca Capacidades do TEMPLATE para copiar
-        List<Capacidade> capacidadesTemplate = capacidadeRepository.findByDisciplinaTemplateId(disciplinaTemplateId);
+        // 2. Cópia em massa (INSERT ... SELECT): número fixo de comandos, independente do tamanho do template.
+        // As capacidades copiadas guardam origem_id, que liga cada critério à sua nova capacidade.
+        int capacidades = capacidadeRepository.copiarDoTemplateParaSnapshot(disciplinaTemplateId, snapshot.getId());
+        
+        if (capacidades == 0) {
+            throw new RuntimeException("A estrutura Template não possui Capacidades/Critérios para gerar o Snapshot.");
+        }
+
+        // 3. Copia Critérios
+        criterioRepository.copiarParaSnapshot(snapshot.getId());
         
-        if (capacidadesTemplate.isEmpty()) {
+        // 4. Copia Níveis de Avaliação
+        nivelRepository.copiarDoTemplateParaSnapshot(disciplinaTemplateId, snapshot.getId());
+
+        return snapshot;
+    }
+
+    /**
+     * SHA-256 de tudo o que o snapshot copia: metadados da disciplina, capacidades e critérios (na ordem da cópia)
+     * e níveis. Cada campo entra com prefixo de tamanho, então textos com separadores não colidem.
+     */
+    private String calcularHashEstrutura(Disciplina template) {
+        List<Object[]> estrutura = capacidadeRepository.findEstruturaPlanaByDisciplinaTemplateId(template.getId());
+        if (estrutura.isEmpty()) {
             throw new RuntimeException("A estrutura Template não possui Capacidades/Critérios para gerar o Snapshot.");
         }
 
-        for (Capacidade capTemplate : capacidadesTemplate) {
-            Capacidade capSnapshot = new Capacidade();
-            capSnapshot.setDescricao(capTemplate.getDescricao());
-            capSnapshot.setTipo(capTemplate.getTipo());
-            
-            // CORREÇÃO: Vincula APENAS ao Snapshot, removendo o vínculo com o Template volátil
-            capSnapshot.setSnapshotDisciplina(snapshot); 
-            // capSnapshot.setEstruturaTemplate(estruturaTemplate); // <--- LINHA REMOVIDA
-            
-            capSnapshot = capacidadeRepository.save(capSnapshot);
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+        atualizar(digest, "D", template.getId(), template.getNome(), template.getSigla());
 
-            // 3. Copia Critérios
-            List<Criterio> criteriosTemplate = criterioRepository.findByCapacidadeTemplateId(capTemplate.getId());
-            
-            for (Criterio critTemplate : criteriosTemplate) {
-                Criterio critSnapshot = new Criterio();
-                critSnapshot.setDescricao(critTemplate.getDescricao());
-                critSnapshot.setTipo(critTemplate.getTipo());
-                
-                critSnapshot.setCapacidade(capSnapshot); 
-                criterioRepository.save(critSnapshot);
+        Long capacidadeAtual = null;
+        for (Object[] linha : estrutura) {
+            if (!linha[0].equals(capacidadeAtual)) {
+                capacidadeAtual = (Long) linha[0];
+                atualizar(digest, "C", linha[1], linha[2]);
+            }
+            if (linha[3] != null) {
+                atualizar(digest, "R", linha[3], linha[4]);
             }
         }
-        
-        // 4. Copia Níveis de Avaliação
-        List<NivelAvaliacao> niveisTemplate = nivelRepository.findByDisciplinaTemplateId(disciplinaTemplateId);
-        
-        for (NivelAvaliacao nivelTemplate : niveisTemplate) {
-            NivelAvaliacao nivelSnapshot = new NivelAvaliacao();
-            nivelSnapshot.setNivel(nivelTemplate.getNivel());
-            nivelSnapshot.setMinCriticos(nivelTemplate.getMinCriticos());
-            nivelSnapshot.setMinDesejaveis(nivelTemplate.getMinDesejaveis());
-            
-            nivelSnapshot.setSigla(nivelTemplate.getSigla());
-            nivelSnapshot.setDescricao(nivelTemplate.getDescricao());
-            
-            // CORREÇÃO: Vincula APENAS ao Snapshot
-            nivelSnapshot.setSnapshotDisciplina(snapshot); 
-            // nivelSnapshot.setEstruturaTemplate(estruturaTemplate); // <--- LINHA REMOVIDA
-            
-            nivelRepository.save(nivelSnapshot);
+        for (NivelAvaliacao nivel : nivelRepository.findByDisciplinaTemplateId(template.getId())) {
+            atualizar(digest, "N", nivel.getNivel(), nivel.getMinCriticos(), nivel.getMinDesejaveis(),
+                    nivel.getSigla(), nivel.getDescricao());
         }
+        return HexFormat.of().formatHex(digest.digest());
+    }
 
-        return snapshot;
+    private static void atualizar(MessageDigest digest, Object... campos) {
+        for (Object campo : campos) {
+            if (campo == null) {
+                digest.update((byte) 0);
+                continue;
+            }
+            byte[] bytes = campo.toString().getBytes(StandardCharsets.UTF_8);
+            digest.update((byte) 1);
+            digest.update(ByteBuffer.allocate(4).putInt(bytes.length).array());
+            digest.update(bytes);
+        }
     }
     
     @Transactional(readOnly = true)
@@ -1,19 +1,27 @@
 package com.criterios.services;
 
+import com.criterios.dto.BootstrapTurmaDTO;
 import com.criterios.dto.TurmaDTO;
 import com.criterios.dto.TurmaResponseDTO;
 import com.criterios.dto.UsuarioResponseDTO;
+import com.criterios.entities.Aluno;
+import com.criterios.entities.Disciplina;
 import com.criterios.entities.SnapshotDisciplina; 
 import com.criterios.entities.TipoUsuario;
 import com.criterios.entities.Turma;
 import com.criterios.entities.Usuario;
+import com.criterios.repository.AlunoRepository;
+import com.criterios.repository.DisciplinaRepository;
+import com.criterios.repository.SnapshotDisciplinaRepository;
 import com.criterios.repository.TurmaRepository;
 import com.criterios.repository.UsuarioRepository;
 import lombok.RequiredArgsConstructor;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.stream.Collectors;
 
 @Service
@@ -23,6 +31,9 @@ public class TurmaService {
     private final TurmaRepository turmaRepository;
     private final UsuarioRepository usuarioRepository;
     private final SnapshotService snapshotService; 
+    private final AlunoRepository alunoRepository;
+    private final DisciplinaRepository disciplinaRepository;
+    private final SnapshotDisciplinaRepository snapshotDisciplinaRepository;
 
     public static TurmaResponseDTO toResponseDTO(Turma turma) {
         List<UsuarioResponseDTO> professoresDTO = turma.getProfessores().stream()
@@ -137,7 +148,7 @@ public class TurmaService {
         Turma turma = turmaRepository.findById(turmaId)
                 .orElseThrow(() -> new RuntimeException("Turma não encontrada"));
 
-        // 1. Gera o snapshot profundo
+        // 1. Gera o snapshot profundo (ou reaproveita um idêntico já existente)
         SnapshotDisciplina novoSnapshot = snapshotService.criarSnapshot(templateId);
 
         // 2. Atualiza a referência do snapshot
@@ -156,4 +167,40 @@ public class TurmaService {
                 .orElseThrow(() -> new RuntimeException("Turma não encontrada"));
          return toResponseDTO(turma);
     }
-}
\ No newline at end of file
+
+    /**
+     * [NOVO] Carga inicial das telas da turma numa única requisição: turma, alunos e disciplinas elegíveis
+     * com o snapshot de cada uma (o da própria turma para a disciplina principal; senão o mais recente do template,
+     * resolvido para todas as disciplinas com uma consulta agrupada).
+     */
+    @Transactional(readOnly = true)
+    public BootstrapTurmaDTO buscarBootstrap(Long id, boolean incluirAlunos) {
+        Turma turma = turmaRepository.findById(id)
+                .orElseThrow(() -> new RuntimeException("Turma não encontrada"));
+        TurmaResponseDTO turmaDTO = toResponseDTO(turma);
+
+        Integer termo = turma.getTermoAtual() != null ? turma.getTermoAtual() : 1;
+        List<Disciplina> disciplinas = disciplinaRepository.findByTermoOrAnual(termo);
+
+        Map<Long, Long> ultimoSnapshot = new HashMap<>();
+        if (!disciplinas.isEmpty()) {
+            List<Long> templateIds = disciplinas.stream().map(Disciplina::getId).toList();
+            for (Object[] linha : snapshotDisciplinaRepository.findUltimoIdPorDisciplinaTemplateIds(templateIds)) {
+                ultimoSnapshot.put((Long) linha[0], (Long) linha[1]);
+            }
+        }
+
+        List<BootstrapTurmaDTO.DisciplinaSnapshot> opcoes = disciplinas.stream()
+                .map(d -> {
+                    Long snapshotId = d.getId().equals(turmaDTO.getDisciplinaId()) && turmaDTO.getEstruturaSnapshotId() != null
+                            ? turmaDTO.getEstruturaSnapshotId()
+                            : ultimoSnapshot.get(d.getId());
+                    return new BootstrapTurmaDTO.DisciplinaSnapshot(d.getId(), d.getNome(), d.getSigla(),
+                            d.getPeriodicidade(), d.getTermo(), snapshotId);
+                })
+                .collect(Collectors.toList());
+
+        List<Aluno> alunos = incluirAlunos ? alunoRepository.findByTurmaId(id) : List.of();
+        return new BootstrapTurmaDTO(turmaDTO, alunos, opcoes);
+    }
+}
@@ -0,0 +1,82 @@
+package com.criterios.services;
+
+import com.criterios.cache.CacheLimitado;
+import com.criterios.dto.RelatorioValidacaoTemplateDTO;
+import com.criterios.eventos.TemplateAlteradoEvento;
+import com.criterios.repository.CapacidadeRepository;
+import com.criterios.repository.DisciplinaRepository;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Relatório de validação da estrutura TEMPLATE de uma disciplina.
+ *
+ * Os totais de críticos/desejáveis de todas as capacidades saem de uma única consulta agrupada, e o relatório
+ * lista todas as violações (não para na primeira). Fica em cache por disciplina até a próxima
+ * {@link TemplateAlteradoEvento}, tratada depois do commit de quem alterou o template.
+ */
+@Service
+@RequiredArgsConstructor
+public class ValidacaoTemplateService {
+
+    private final CapacidadeRepository capacidadeRepository;
+    private final DisciplinaRepository disciplinaRepository;
+    private final CacheLimitado<Long, RelatorioValidacaoTemplateDTO> cacheValidacaoTemplate;
+
+    @Transactional(readOnly = true)
+    public RelatorioValidacaoTemplateDTO validar(Long disciplinaTemplateId) {
+        return cacheValidacaoTemplate.obter(disciplinaTemplateId, this::montar);
+    }
+
+    // fallbackExecution: escritas feitas fora de transação também invalidam
+    @TransactionalEventListener(fallbackExecution = true)
+    public void aoAlterarTemplate(TemplateAlteradoEvento evento) {
+        cacheValidacaoTemplate.invalidar(evento.disciplinaTemplateId());
+    }
+
+    private RelatorioValidacaoTemplateDTO montar(Long disciplinaTemplateId) {
+        if (!disciplinaRepository.existsById(disciplinaTemplateId)) {
+            throw new RuntimeException("Disciplina (Template) não encontrada");
+        }
+
+        List<RelatorioValidacaoTemplateDTO.Capacidade> capacidades = new ArrayList<>();
+        List<RelatorioValidacaoTemplateDTO.Violacao> violacoes = new ArrayList<>();
+        int totalCriticos = 0, totalDesejaveis = 0;
+        for (Object[] linha : capacidadeRepository.countCriteriosPorCapacidadeByDisciplinaTemplateId(disciplinaTemplateId)) {
+            Long id = (Long) linha[0];
+            String descricao = (String) linha[1];
+            int criticos = ((Number) linha[2]).intValue();
+            int desejaveis = ((Number) linha[3]).intValue();
+            capacidades.add(new RelatorioValidacaoTemplateDTO.Capacidade(id, descricao, criticos, desejaveis));
+            totalCriticos += criticos;
+            totalDesejaveis += desejaveis;
+
+            if (criticos + desejaveis == 0) {
+                violacoes.add(new RelatorioValidacaoTemplateDTO.Violacao(RelatorioValidacaoTemplateDTO.TipoViolacao.CAPACIDADE_VAZIA,
+                        id, "A capacidade '" + descricao + "' não possui critérios."));
+            } else if (criticos == 0) {
+                violacoes.add(new RelatorioValidacaoTemplateDTO.Violacao(RelatorioValidacaoTemplateDTO.TipoViolacao.SEM_CRITICO,
+                        id, "A capacidade '" + descricao + "' não possui nenhum critério CRÍTICO."));
+            }
+        }
+        if (capacidades.isEmpty()) {
+            violacoes.add(new RelatorioValidacaoTemplateDTO.Violacao(RelatorioValidacaoTemplateDTO.TipoViolacao.TEMPLATE_VAZIO,
+                    null, "A disciplina não possui capacidades no template. Importe critérios primeiro."));
+        }
+
+        RelatorioValidacaoTemplateDTO relatorio = new RelatorioValidacaoTemplateDTO();
+        relatorio.setDisciplinaTemplateId(disciplinaTemplateId);
+        relatorio.setValido(violacoes.isEmpty());
+        relatorio.setTotalCapacidades(capacidades.size());
+        relatorio.setTotalCriticos(totalCriticos);
+        relatorio.setTotalDesejaveis(totalDesejaveis);
+        relatorio.setCapacidades(List.copyOf(capacidades));
+        relatorio.setViolacoes(List.copyOf(violacoes));
+        return relatorio;
+    }
+}
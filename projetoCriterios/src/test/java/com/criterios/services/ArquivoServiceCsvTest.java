@@ -0,0 +1,136 @@
+package com.criterios.services;
+
+import com.criterios.dto.CapItemDTO;
+import com.criterios.dto.CritItemDTO;
+import com.criterios.dto.EstruturaImportacaoDTO;
+import com.criterios.entities.Capacidade;
+import com.criterios.entities.Criterio;
+import com.criterios.entities.Disciplina;
+import com.criterios.entities.EstruturaTemplate;
+import com.criterios.entities.TipoCriterio;
+import com.criterios.repository.AlunoJdbcRepository;
+import com.criterios.repository.AlunoRepository;
+import com.criterios.repository.AvaliacaoRepository;
+import com.criterios.repository.CapacidadeRepository;
+import com.criterios.repository.CriterioRepository;
+import com.criterios.repository.DisciplinaRepository;
+import com.criterios.repository.SnapshotDisciplinaRepository;
+import com.criterios.repository.TurmaRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.mock.web.MockMultipartFile;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/** Regras das importações por CSV de ArquivoService que ficam por cima do {@link LeitorCsv}. */
+class ArquivoServiceCsvTest {
+
+    private final DisciplinaRepository disciplinaRepository = mock(DisciplinaRepository.class);
+    private final CapacidadeRepository capacidadeRepository = mock(CapacidadeRepository.class);
+    private final CriterioRepository criterioRepository = mock(CriterioRepository.class);
+    private ArquivoService arquivoService;
+
+    @BeforeEach
+    void criar() {
+        arquivoService = new ArquivoService(mock(AlunoRepository.class), mock(TurmaRepository.class),
+                mock(AvaliacaoRepository.class), disciplinaRepository, capacidadeRepository, criterioRepository,
+                mock(SnapshotDisciplinaRepository.class), mock(AlunoJdbcRepository.class), mock(ExtratorAlunosPdf.class),
+                mock(ApplicationEventPublisher.class), mock(PlatformTransactionManager.class));
+
+        Disciplina disciplina = new Disciplina();
+        disciplina.setNome("Redes");
+        when(disciplinaRepository.findById(1L)).thenReturn(Optional.of(disciplina));
+    }
+
+    @Test
+    void linhaInteiraEntreAspasEhSeparadaAntesDoUltimoCampoEntreAspas() throws Exception {
+        // Excel regravando um CSV que já tinha aspas: a vírgula da capacidade não separa campos
+        List<CapItemDTO> capacidades = preProcessar(
+                "\"Cap A, com virgula ,\"\"crit 1\"\"\"\n" +
+                "\"Cap B ,\"\"crit \"\"\"\"entre aspas\"\"\"\"\"\"\"\n");
+
+        assertEquals(List.of("Cap A, com virgula", "Cap B"), descricoes(capacidades));
+        assertEquals(List.of("crit 1"), criterios(capacidades.get(0)));
+        assertEquals(List.of("crit \"entre aspas\""), criterios(capacidades.get(1)));
+    }
+
+    @Test
+    void campoUnicoSemCampoFinalEntreAspasContinuaSendoCapacidade() throws Exception {
+        List<CapItemDTO> capacidades = preProcessar("\"Cap A, sem criterio\"\n");
+
+        assertEquals(List.of("Cap A, sem criterio"), descricoes(capacidades));
+        assertEquals(List.of(), criterios(capacidades.get(0)));
+    }
+
+    @Test
+    void capacidadeRepetidaEmLinhasSeguidasAcumulaCriterios() throws Exception {
+        // Caso 0 (uma linha por critério), depois linha só com critério (Caso 2) e nova capacidade (Caso 1)
+        List<CapItemDTO> capacidades = preProcessar(
+                "Cap A;crit 1\n" +
+                "Cap A;crit 2\n" +
+                ";crit 3\n" +
+                "Cap A;\n" +
+                "Cap B;crit 4\n" +
+                "Cap A;crit 5\n");
+
+        assertEquals(List.of("Cap A", "Cap B", "Cap A"), descricoes(capacidades));
+        assertEquals(List.of("crit 1", "crit 2", "crit 3"), criterios(capacidades.get(0)));
+        assertEquals(List.of("crit 4"), criterios(capacidades.get(1)));
+        assertEquals(List.of("crit 5"), criterios(capacidades.get(2)));
+    }
+
+    @Test
+    void importacaoDeCriteriosSoTiraAUltimaColunaQuandoElaEhOTipo() throws Exception {
+        Capacidade capacidade = new Capacidade();
+        capacidade.setCriterios(new ArrayList<>());
+        EstruturaTemplate template = new EstruturaTemplate();
+        template.setDisciplinaTemplateId(1L);
+        capacidade.setEstruturaTemplate(template);
+        when(capacidadeRepository.findById(7L)).thenReturn(Optional.of(capacidade));
+
+        String csv = "# descricao;tipo\n" +
+                "Usa EPI; conforme a norma;DESEJAVEL\n" +
+                "Mede a peca;com paquimetro\n" +
+                "Texto solto;\n" +
+                "Outro;Critico\n" +
+                "usa epi; CONFORME A NORMA;CRITICO\n";
+        String resultado = arquivoService.importarCriteriosViaArquivo(arquivo("criterios.csv", csv), 7L);
+
+        ArgumentCaptor<Criterio> salvos = ArgumentCaptor.forClass(Criterio.class);
+        verify(criterioRepository, times(4)).save(salvos.capture());
+        assertEquals(List.of("Usa EPI; conforme a norma", "Mede a peca;com paquimetro", "Texto solto", "Outro"),
+                salvos.getAllValues().stream().map(Criterio::getDescricao).toList());
+        assertEquals(List.of(TipoCriterio.DESEJAVEL, TipoCriterio.CRITICO, TipoCriterio.CRITICO, TipoCriterio.CRITICO),
+                salvos.getAllValues().stream().map(Criterio::getTipo).toList());
+        assertEquals("Importação concluída! 4 critérios adicionados.", resultado);
+    }
+
+    private List<CapItemDTO> preProcessar(String csv) throws Exception {
+        EstruturaImportacaoDTO dto = arquivoService.preProcessarEstrutura(arquivo("estrutura.csv", csv), 1L);
+        return dto.getCapacidades();
+    }
+
+    private static MockMultipartFile arquivo(String nome, String conteudo) {
+        return new MockMultipartFile("file", nome, "text/csv", conteudo.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static List<String> descricoes(List<CapItemDTO> capacidades) {
+        return capacidades.stream().map(CapItemDTO::getDescricao).toList();
+    }
+
+    private static List<String> criterios(CapItemDTO capacidade) {
+        return capacidade.getCriterios().stream().map(CritItemDTO::getDescricao).toList();
+    }
+}
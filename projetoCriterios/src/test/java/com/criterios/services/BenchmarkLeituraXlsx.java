@@ -0,0 +1,165 @@
+package com.criterios.services;
+
+import org.apache.poi.ss.usermodel.Cell;
+import org.apache.poi.ss.usermodel.DataFormatter;
+import org.apache.poi.ss.usermodel.Row;
+import org.apache.poi.ss.usermodel.Sheet;
+import org.apache.poi.ss.usermodel.Workbook;
+import org.apache.poi.ss.usermodel.WorkbookFactory;
+import org.apache.poi.xssf.streaming.SXSSFWorkbook;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.InputStream;
+import java.io.OutputStream;
+import com.sun.management.GarbageCollectionNotificationInfo;
+
+import javax.management.Notification;
+import javax.management.NotificationEmitter;
+import javax.management.NotificationListener;
+import javax.management.openmbean.CompositeData;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.nio.file.Files;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Benchmark manual (não é teste do Surefire): leitura da estrutura em .xlsx pelo DOM (WorkbookFactory, caminho antigo)
+ * e pelo {@link LeitorXlsxStreaming} (SAX), numa planilha gerada com strings compartilhadas, como as do Excel.
+ *
+ * Mede tempo, bytes alocados pela thread e o maior heap em uso logo após um GC durante a leitura
+ * (aproxima o conjunto vivo; o heap "em uso" entre coletas conta lixo ainda não coletado).
+ *
+ * <pre>
+ * mvn -q test-compile dependency:build-classpath -Dmdep.outputFile=target/cp.txt
+ * java -Xmx1g -cp target/classes:target/test-classes:$(cat target/cp.txt) com.criterios.services.BenchmarkLeituraXlsx 200000
+ * </pre>
+ */
+public class BenchmarkLeituraXlsx {
+
+    private static final int RODADAS = 3;
+
+    private interface Leitura {
+        long ler(File arquivo) throws Exception;
+    }
+
+    public static void main(String[] args) throws Exception {
+        int linhas = args.length > 0 ? Integer.parseInt(args[0]) : 200_000;
+        File planilha = gerarPlanilha(linhas);
+        try {
+            System.out.printf("Planilha: %,d linhas, %,d KB%n", linhas, planilha.length() / 1024);
+            medir("DOM (WorkbookFactory)", planilha, BenchmarkLeituraXlsx::lerDom);
+            medir("SAX (LeitorXlsxStreaming)", planilha, BenchmarkLeituraXlsx::lerStreaming);
+        } finally {
+            Files.deleteIfExists(planilha.toPath());
+        }
+    }
+
+    // Mesmo laço do caminho antigo de ArquivoService: pasta de trabalho inteira a partir do InputStream do upload
+    private static long lerDom(File arquivo) throws Exception {
+        long linhasLidas = 0;
+        try (InputStream in = new FileInputStream(arquivo); Workbook workbook = WorkbookFactory.create(in)) {
+            Sheet sheet = workbook.getSheetAt(0);
+            DataFormatter dataFormatter = new DataFormatter();
+            for (Row row : sheet) {
+                Cell cellCapacidade = row.getCell(0);
+                String colCapacidade = (cellCapacidade != null) ? dataFormatter.formatCellValue(cellCapacidade).trim() : "";
+                Cell cellCriterio = row.getCell(1);
+                String colCriterio = (cellCriterio != null) ? dataFormatter.formatCellValue(cellCriterio).trim() : "";
+                if (colCapacidade.isEmpty() && colCriterio.isEmpty()) continue;
+                linhasLidas++;
+            }
+        }
+        return linhasLidas;
+    }
+
+    private static long lerStreaming(File arquivo) throws Exception {
+        AtomicLong linhasLidas = new AtomicLong();
+        LeitorXlsxStreaming.lerPrimeiraAba(arquivo, 2, colunas -> linhasLidas.incrementAndGet());
+        return linhasLidas.get();
+    }
+
+    private static void medir(String nome, File planilha, Leitura leitura) throws Exception {
+        leitura.ler(planilha); // aquecimento (JIT, classes do POI)
+
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long melhorTempo = Long.MAX_VALUE, maiorPico = 0, alocados = 0, linhasLidas = 0;
+        for (int r = 0; r < RODADAS; r++) {
+            System.gc();
+            long base = heapEmUso();
+            MonitorGc monitor = new MonitorGc();
+
+            long alocadosAntes = threads.getCurrentThreadAllocatedBytes();
+            long inicio = System.nanoTime();
+            linhasLidas = leitura.ler(planilha);
+            long tempo = System.nanoTime() - inicio;
+            alocados = threads.getCurrentThreadAllocatedBytes() - alocadosAntes;
+
+            monitor.parar();
+            melhorTempo = Math.min(melhorTempo, tempo);
+            maiorPico = Math.max(maiorPico, monitor.maiorHeapAposGc - base);
+        }
+        System.out.printf("%-28s %,10d linhas | %,7d ms | heap vivo máx. %,7d KB | alocados %,9d KB%n",
+                nome, linhasLidas, melhorTempo / 1_000_000, maiorPico / 1024, alocados / 1024);
+    }
+
+    // Uma capacidade a cada 10 linhas; os critérios repetem textos, como nas planilhas reais
+    private static File gerarPlanilha(int linhas) throws Exception {
+        File arquivo = Files.createTempFile("benchmark-estrutura-", ".xlsx").toFile();
+        try (SXSSFWorkbook workbook = new SXSSFWorkbook(null, 100, true, true);
+             OutputStream out = new FileOutputStream(arquivo)) {
+            Sheet sheet = workbook.createSheet("Estrutura");
+            for (int i = 0; i < linhas; i++) {
+                Row row = sheet.createRow(i);
+                if (i % 10 == 0) row.createCell(0).setCellValue("Capacidade " + (i / 10) + " - Comunicação técnica e resolução de problemas");
+                row.createCell(1).setCellValue("Critério " + (i % 10) + ": executa o procedimento conforme a norma " + (i % 500));
+            }
+            workbook.write(out);
+            workbook.dispose();
+        }
+        return arquivo;
+    }
+
+    private static long heapEmUso() {
+        Runtime runtime = Runtime.getRuntime();
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+
+    // Soma do heap em uso após cada GC (notificações do coletor) e guarda o maior valor. Só os pools de heap:
+    // o GcInfo traz também Metaspace e CodeHeap, que a base (Runtime) não conta
+    private static final class MonitorGc implements NotificationListener {
+        private final Set<String> poolsHeap = new HashSet<>();
+        private volatile long maiorHeapAposGc;
+
+        private MonitorGc() {
+            for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+                if (pool.getType() == MemoryType.HEAP) poolsHeap.add(pool.getName());
+            }
+            for (GarbageCollectorMXBean coletor : ManagementFactory.getGarbageCollectorMXBeans()) {
+                ((NotificationEmitter) coletor).addNotificationListener(this, null, null);
+            }
+        }
+
+        @Override
+        public void handleNotification(Notification notificacao, Object handback) {
+            if (!GarbageCollectionNotificationInfo.GARBAGE_COLLECTION_NOTIFICATION.equals(notificacao.getType())) return;
+            GarbageCollectionNotificationInfo info = GarbageCollectionNotificationInfo.from((CompositeData) notificacao.getUserData());
+            long emUso = info.getGcInfo().getMemoryUsageAfterGc().entrySet().stream()
+                    .filter(pool -> poolsHeap.contains(pool.getKey()))
+                    .mapToLong(pool -> pool.getValue().getUsed()).sum();
+            maiorHeapAposGc = Math.max(maiorHeapAposGc, emUso);
+        }
+
+        void parar() throws Exception {
+            Thread.sleep(50); // notificações são entregues de forma assíncrona
+            for (GarbageCollectorMXBean coletor : ManagementFactory.getGarbageCollectorMXBeans()) {
+                ((NotificationEmitter) coletor).removeNotificationListener(this);
+            }
+        }
+    }
+}
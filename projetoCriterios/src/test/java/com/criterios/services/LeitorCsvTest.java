@@ -0,0 +1,86 @@
+package com.criterios.services;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class LeitorCsvTest {
+
+    @Test
+    void quebraDeLinhaEntreAspasFicaNoCampo() throws IOException {
+        List<List<String>> registros = ler("\"linha 1\nlinha 2\";x\r\ny;\"a\r\nb\"\r\n");
+
+        assertEquals(List.of(List.of("linha 1\nlinha 2", "x"), List.of("y", "a\r\nb")), registros);
+    }
+
+    @Test
+    void aspasDobradasViramUmaAspa() throws IOException {
+        List<List<String>> registros = ler("\"ele disse \"\"oi\"\"\";\"\"\"\"\n\"\";fim\n");
+
+        assertEquals(List.of(List.of("ele disse \"oi\"", "\""), List.of("", "fim")), registros);
+    }
+
+    @Test
+    void crLfDivididoEntreDoisBlocosNaoGeraLinhaVazia() throws IOException {
+        // O '\r' cai em cada posição ao redor do fim do buffer de 8192 caracteres; o '\n' vem no bloco seguinte
+        for (int posicaoCr = 8188; posicaoCr <= 8194; posicaoCr++) {
+            String primeiro = "a;" + "x".repeat(posicaoCr - 2);
+            List<List<String>> registros = ler(primeiro + "\r\nb;c\r\nd;e");
+
+            assertEquals(List.of(List.of("a", primeiro.substring(2)), List.of("b", "c"), List.of("d", "e")), registros,
+                    "\\r na posição " + posicaoCr);
+        }
+    }
+
+    @Test
+    void bomDoExcelEhDescartado() throws IOException {
+        try (LeitorCsv csv = abrir("\uFEFFcapacidade;criterio\n")) {
+            assertEquals(';', csv.getDelimitador());
+            assertEquals(List.of("capacidade", "criterio"), csv.proximo());
+        }
+    }
+
+    @Test
+    void delimitadorContaSoOsQueEstaoForaDeAspas() throws IOException {
+        try (LeitorCsv csv = abrir("cap;\"texto, com, virgulas\"\ncap;outro\n")) {
+            assertEquals(';', csv.getDelimitador());
+            assertEquals(List.of("cap", "texto, com, virgulas"), csv.proximo());
+        }
+        try (LeitorCsv csv = abrir("cap,\"texto; com; ponto e virgula\"\n")) {
+            assertEquals(',', csv.getDelimitador());
+            assertEquals(List.of("cap", "texto; com; ponto e virgula"), csv.proximo());
+        }
+        // Empate (ou nenhum delimitador): vírgula
+        try (LeitorCsv csv = abrir("a;b,c\n")) {
+            assertEquals(',', csv.getDelimitador());
+        }
+    }
+
+    @Test
+    void linhasVaziasSaoIgnoradasEUltimaLinhaSemQuebraEntra() throws IOException {
+        List<List<String>> registros = ler("\n\r\na;b\n\n;\nc;d");
+
+        assertEquals(List.of(List.of("a", "b"), List.of("", ""), List.of("c", "d")), registros);
+    }
+
+    private static LeitorCsv abrir(String conteudo) throws IOException {
+        return LeitorCsv.abrir(new ByteArrayInputStream(conteudo.getBytes(StandardCharsets.UTF_8)));
+    }
+
+    private static List<List<String>> ler(String conteudo) throws IOException {
+        List<List<String>> registros = new ArrayList<>();
+        try (LeitorCsv csv = abrir(conteudo)) {
+            List<String> campos;
+            while ((campos = csv.proximo()) != null) {
+                registros.add(List.copyOf(campos));
+            }
+        }
+        return registros;
+    }
+}